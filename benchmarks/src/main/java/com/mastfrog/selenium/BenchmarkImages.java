@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Synthetic screenshots - mostly flat colour with blocks and text, as web
+ * pages tend to be, which matters for how well PNG compresses them.
+ *
+ * @author Tim Boudreau
+ */
+final class BenchmarkImages {
+
+    private BenchmarkImages() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Parse a resolution parameter such as 1280x1024.
+     */
+    static int[] dimensions(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    static BufferedImage page(String resolution, long seed) {
+        int[] dims = dimensions(resolution);
+        int width = dims[0];
+        int height = dims[1];
+        Random rnd = new Random(seed);
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(new Color(40, 60, 120));
+            g.fillRect(0, 0, width, 64);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+            for (int y = 90; y < height; y += 24) {
+                if (rnd.nextInt(6) == 0) {
+                    g.setColor(new Color(rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)));
+                    g.fillRect(20, y - 14, 60 + rnd.nextInt(Math.max(1, width / 3)), 18);
+                }
+                g.setColor(Color.DARK_GRAY);
+                g.drawString("Line " + y + " of some text on a page " + Long.toHexString(rnd.nextLong()), 100, y);
+            }
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * A copy of an image with a small block changed, as when a screenshot
+     * differs slightly from its golden image.
+     */
+    static BufferedImage changed(BufferedImage image) {
+        BufferedImage result = ScreenshotWriter.copyOf(image);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setColor(Color.RED);
+            g.fillRect(image.getWidth() / 2, image.getHeight() / 2, 40, 20);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+}
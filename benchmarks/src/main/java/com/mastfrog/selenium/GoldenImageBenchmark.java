@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Comparing screenshots with golden images at several resolutions - the
+ * comparison itself, and through GoldenImageCache as &#064;ScreenCapture
+ * does it, for a screenshot identical to its golden image and one with a
+ * small difference.
+ *
+ * @author Tim Boudreau
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoldenImageBenchmark {
+
+    private static final double MAX_DEVIATION = 0.01;
+    @Param({"800x600", "1280x1024", "1920x1080", "2560x1440"})
+    public String resolution;
+    private BufferedImage golden;
+    private BufferedImage identical;
+    private BufferedImage changed;
+    private File dir;
+    private File goldenFile;
+    private GoldenImageCache cache;
+
+    @Setup
+    public void setup() throws IOException {
+        golden = BenchmarkImages.page(resolution, 1);
+        // A separately rendered image, so nothing is shortcut by identity
+        identical = BenchmarkImages.page(resolution, 1);
+        changed = BenchmarkImages.changed(golden);
+        dir = Files.createTempDirectory("golden-bench").toFile();
+        goldenFile = new File(dir, "golden.png");
+        ImageIO.write(golden, "png", goldenFile);
+        cache = new GoldenImageCache(new File(dir, "cache"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] cached = new File(dir, "cache").listFiles();
+        if (cached != null) {
+            for (File f : cached) {
+                f.delete();
+            }
+        }
+        new File(dir, "cache").delete();
+        goldenFile.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public Object compareIdentical() {
+        return ImageComparator.compare(identical, golden, MAX_DEVIATION);
+    }
+
+    @Benchmark
+    public Object compareChanged() {
+        return ImageComparator.compare(changed, golden, MAX_DEVIATION);
+    }
+
+    @Benchmark
+    public Object cachedCompareIdentical() throws IOException {
+        return cache.compare(identical, goldenFile, MAX_DEVIATION);
+    }
+
+    @Benchmark
+    public Object cachedCompareChanged() throws IOException {
+        return cache.compare(changed, goldenFile, MAX_DEVIATION);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.mastfrog.giulius.Dependencies;
+import com.mastfrog.giulius.DependenciesBuilder;
+import com.mastfrog.settings.Settings;
+import com.mastfrog.settings.SettingsBuilder;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.TestClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating the per-test injector with the modules SeleniumRunner adds, with
+ * and without then getting a page model from it, which launches HtmlUnit and
+ * loads the page from a local server.
+ *
+ * @author Tim Boudreau
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InjectorCreationBenchmark {
+
+    private BenchmarkServer server;
+    private SeleniumRunner runner;
+    private TestClass testClass;
+    private FrameworkMethod method;
+    private Settings settings;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new BenchmarkServer();
+        runner = new SeleniumRunner(SearchTest.class);
+        testClass = new TestClass(SearchTest.class);
+        method = testClass.getAnnotatedMethods(Test.class).get(0);
+        settings = new SettingsBuilder()
+                .add("_" + SeleniumRunner.BASE_URL_NAME, server.url())
+                .add("browser", "htmlunit")
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    private Dependencies injector() throws IOException {
+        DependenciesBuilder builder = new DependenciesBuilder().add(settings);
+        runner.onBeforeCreateDependencies(testClass, method, settings, builder);
+        return builder.build();
+    }
+
+    private static void shutdown(Dependencies deps) {
+        deps.shutdown();
+        // SeleniumRunner normally closes the browser once failure reporting
+        // is done with it
+        WebDriverModule.closeFinishedDriver();
+    }
+
+    @Benchmark
+    public Object createInjector() throws IOException {
+        Dependencies deps = injector();
+        try {
+            // Dependencies creates the Guice injector lazily
+            return deps.getInjector();
+        } finally {
+            shutdown(deps);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object createInjectorAndPageModel() throws IOException {
+        Dependencies deps = injector();
+        try {
+            return deps.getInstance(BenchmarkPage.class);
+        } finally {
+            shutdown(deps);
+        }
+    }
+
+    public static class SearchTest {
+
+        @Test
+        public void search(BenchmarkPage page) {
+            // only its signature is used
+        }
+    }
+}
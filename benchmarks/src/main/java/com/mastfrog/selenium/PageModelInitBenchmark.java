@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.support.PageFactory;
+
+/**
+ * PageFactory initialization of a page model against HtmlUnitDriver, on its
+ * own (which only creates proxies) and followed by resolving every element,
+ * which is what a test actually pays for.
+ *
+ * @author Tim Boudreau
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageModelInitBenchmark {
+
+    private BenchmarkServer server;
+    private HtmlUnitDriver driver;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new BenchmarkServer();
+        driver = new HtmlUnitDriver(false);
+        driver.get(server.url());
+    }
+
+    @TearDown
+    public void tearDown() {
+        driver.quit();
+        server.stop();
+    }
+
+    @Benchmark
+    public Object initElements() {
+        return PageFactory.initElements(driver, BenchmarkPage.class);
+    }
+
+    @Benchmark
+    public void initElementsAndResolve(Blackhole bh) {
+        BenchmarkPage page = PageFactory.initElements(driver, BenchmarkPage.class);
+        bh.consume(page.searchField.getAttribute("name"));
+        bh.consume(page.searchSubmit.getAttribute("type"));
+        bh.consume(page.prev.getText());
+        bh.consume(page.form.getAttribute("action"));
+        for (WebElement field : page.extraFields) {
+            bh.consume(field.getAttribute("value"));
+        }
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindBy;
+
+/**
+ * Class hierarchies 32 deep, for timing the walk up them looking for
+ * Selenium annotations. In one, the only annotated field is in the root
+ * class, so every level is searched before it is found; in the other there
+ * are none at all.
+ *
+ * @author Tim Boudreau
+ */
+final class DeepHierarchy {
+
+    static final int MAX_DEPTH = 32;
+
+    private DeepHierarchy() {
+        throw new AssertionError();
+    }
+
+    /**
+     * The leaf class of a hierarchy.
+     *
+     * @param depth The number of classes in it, up to MAX_DEPTH
+     * @param annotated Whether its root class has an annotated field
+     * @return A class
+     */
+    static Class<?> leaf(int depth, boolean annotated) {
+        return (annotated ? ANNOTATED : PLAIN)[depth - 1];
+    }
+
+    private static final Class<?>[] ANNOTATED = {
+        Annotated0.class,
+        Annotated1.class,
+        Annotated2.class,
+        Annotated3.class,
+        Annotated4.class,
+        Annotated5.class,
+        Annotated6.class,
+        Annotated7.class,
+        Annotated8.class,
+        Annotated9.class,
+        Annotated10.class,
+        Annotated11.class,
+        Annotated12.class,
+        Annotated13.class,
+        Annotated14.class,
+        Annotated15.class,
+        Annotated16.class,
+        Annotated17.class,
+        Annotated18.class,
+        Annotated19.class,
+        Annotated20.class,
+        Annotated21.class,
+        Annotated22.class,
+        Annotated23.class,
+        Annotated24.class,
+        Annotated25.class,
+        Annotated26.class,
+        Annotated27.class,
+        Annotated28.class,
+        Annotated29.class,
+        Annotated30.class,
+        Annotated31.class
+    };
+
+    private static final Class<?>[] PLAIN = {
+        Plain0.class,
+        Plain1.class,
+        Plain2.class,
+        Plain3.class,
+        Plain4.class,
+        Plain5.class,
+        Plain6.class,
+        Plain7.class,
+        Plain8.class,
+        Plain9.class,
+        Plain10.class,
+        Plain11.class,
+        Plain12.class,
+        Plain13.class,
+        Plain14.class,
+        Plain15.class,
+        Plain16.class,
+        Plain17.class,
+        Plain18.class,
+        Plain19.class,
+        Plain20.class,
+        Plain21.class,
+        Plain22.class,
+        Plain23.class,
+        Plain24.class,
+        Plain25.class,
+        Plain26.class,
+        Plain27.class,
+        Plain28.class,
+        Plain29.class,
+        Plain30.class,
+        Plain31.class
+    };
+
+    static class Annotated0 {
+
+        @FindBy(id = "root")
+        WebElement root;
+        String name;
+        int count;
+    }
+
+    static class Plain0 {
+
+        WebElement root;
+        String name;
+        int count;
+    }
+
+    static class Annotated1 extends Annotated0 {
+
+        String field1;
+        WebElement element1;
+    }
+
+    static class Annotated2 extends Annotated1 {
+
+        String field2;
+        WebElement element2;
+    }
+
+    static class Annotated3 extends Annotated2 {
+
+        String field3;
+        WebElement element3;
+    }
+
+    static class Annotated4 extends Annotated3 {
+
+        String field4;
+        WebElement element4;
+    }
+
+    static class Annotated5 extends Annotated4 {
+
+        String field5;
+        WebElement element5;
+    }
+
+    static class Annotated6 extends Annotated5 {
+
+        String field6;
+        WebElement element6;
+    }
+
+    static class Annotated7 extends Annotated6 {
+
+        String field7;
+        WebElement element7;
+    }
+
+    static class Annotated8 extends Annotated7 {
+
+        String field8;
+        WebElement element8;
+    }
+
+    static class Annotated9 extends Annotated8 {
+
+        String field9;
+        WebElement element9;
+    }
+
+    static class Annotated10 extends Annotated9 {
+
+        String field10;
+        WebElement element10;
+    }
+
+    static class Annotated11 extends Annotated10 {
+
+        String field11;
+        WebElement element11;
+    }
+
+    static class Annotated12 extends Annotated11 {
+
+        String field12;
+        WebElement element12;
+    }
+
+    static class Annotated13 extends Annotated12 {
+
+        String field13;
+        WebElement element13;
+    }
+
+    static class Annotated14 extends Annotated13 {
+
+        String field14;
+        WebElement element14;
+    }
+
+    static class Annotated15 extends Annotated14 {
+
+        String field15;
+        WebElement element15;
+    }
+
+    static class Annotated16 extends Annotated15 {
+
+        String field16;
+        WebElement element16;
+    }
+
+    static class Annotated17 extends Annotated16 {
+
+        String field17;
+        WebElement element17;
+    }
+
+    static class Annotated18 extends Annotated17 {
+
+        String field18;
+        WebElement element18;
+    }
+
+    static class Annotated19 extends Annotated18 {
+
+        String field19;
+        WebElement element19;
+    }
+
+    static class Annotated20 extends Annotated19 {
+
+        String field20;
+        WebElement element20;
+    }
+
+    static class Annotated21 extends Annotated20 {
+
+        String field21;
+        WebElement element21;
+    }
+
+    static class Annotated22 extends Annotated21 {
+
+        String field22;
+        WebElement element22;
+    }
+
+    static class Annotated23 extends Annotated22 {
+
+        String field23;
+        WebElement element23;
+    }
+
+    static class Annotated24 extends Annotated23 {
+
+        String field24;
+        WebElement element24;
+    }
+
+    static class Annotated25 extends Annotated24 {
+
+        String field25;
+        WebElement element25;
+    }
+
+    static class Annotated26 extends Annotated25 {
+
+        String field26;
+        WebElement element26;
+    }
+
+    static class Annotated27 extends Annotated26 {
+
+        String field27;
+        WebElement element27;
+    }
+
+    static class Annotated28 extends Annotated27 {
+
+        String field28;
+        WebElement element28;
+    }
+
+    static class Annotated29 extends Annotated28 {
+
+        String field29;
+        WebElement element29;
+    }
+
+    static class Annotated30 extends Annotated29 {
+
+        String field30;
+        WebElement element30;
+    }
+
+    static class Annotated31 extends Annotated30 {
+
+        String field31;
+        WebElement element31;
+    }
+
+    static class Plain1 extends Plain0 {
+
+        String field1;
+        WebElement element1;
+    }
+
+    static class Plain2 extends Plain1 {
+
+        String field2;
+        WebElement element2;
+    }
+
+    static class Plain3 extends Plain2 {
+
+        String field3;
+        WebElement element3;
+    }
+
+    static class Plain4 extends Plain3 {
+
+        String field4;
+        WebElement element4;
+    }
+
+    static class Plain5 extends Plain4 {
+
+        String field5;
+        WebElement element5;
+    }
+
+    static class Plain6 extends Plain5 {
+
+        String field6;
+        WebElement element6;
+    }
+
+    static class Plain7 extends Plain6 {
+
+        String field7;
+        WebElement element7;
+    }
+
+    static class Plain8 extends Plain7 {
+
+        String field8;
+        WebElement element8;
+    }
+
+    static class Plain9 extends Plain8 {
+
+        String field9;
+        WebElement element9;
+    }
+
+    static class Plain10 extends Plain9 {
+
+        String field10;
+        WebElement element10;
+    }
+
+    static class Plain11 extends Plain10 {
+
+        String field11;
+        WebElement element11;
+    }
+
+    static class Plain12 extends Plain11 {
+
+        String field12;
+        WebElement element12;
+    }
+
+    static class Plain13 extends Plain12 {
+
+        String field13;
+        WebElement element13;
+    }
+
+    static class Plain14 extends Plain13 {
+
+        String field14;
+        WebElement element14;
+    }
+
+    static class Plain15 extends Plain14 {
+
+        String field15;
+        WebElement element15;
+    }
+
+    static class Plain16 extends Plain15 {
+
+        String field16;
+        WebElement element16;
+    }
+
+    static class Plain17 extends Plain16 {
+
+        String field17;
+        WebElement element17;
+    }
+
+    static class Plain18 extends Plain17 {
+
+        String field18;
+        WebElement element18;
+    }
+
+    static class Plain19 extends Plain18 {
+
+        String field19;
+        WebElement element19;
+    }
+
+    static class Plain20 extends Plain19 {
+
+        String field20;
+        WebElement element20;
+    }
+
+    static class Plain21 extends Plain20 {
+
+        String field21;
+        WebElement element21;
+    }
+
+    static class Plain22 extends Plain21 {
+
+        String field22;
+        WebElement element22;
+    }
+
+    static class Plain23 extends Plain22 {
+
+        String field23;
+        WebElement element23;
+    }
+
+    static class Plain24 extends Plain23 {
+
+        String field24;
+        WebElement element24;
+    }
+
+    static class Plain25 extends Plain24 {
+
+        String field25;
+        WebElement element25;
+    }
+
+    static class Plain26 extends Plain25 {
+
+        String field26;
+        WebElement element26;
+    }
+
+    static class Plain27 extends Plain26 {
+
+        String field27;
+        WebElement element27;
+    }
+
+    static class Plain28 extends Plain27 {
+
+        String field28;
+        WebElement element28;
+    }
+
+    static class Plain29 extends Plain28 {
+
+        String field29;
+        WebElement element29;
+    }
+
+    static class Plain30 extends Plain29 {
+
+        String field30;
+        WebElement element30;
+    }
+
+    static class Plain31 extends Plain30 {
+
+        String field31;
+        WebElement element31;
+    }
+}
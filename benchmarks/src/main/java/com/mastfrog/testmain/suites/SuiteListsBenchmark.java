@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain.suites;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the suite lists SuitesProcessor generates, from a class loader
+ * which sees only a generated list of the given size.
+ *
+ * @author Tim Boudreau
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuiteListsBenchmark {
+
+    @Param({"10", "100"})
+    public int suites;
+    @Param({"10", "100"})
+    public int classesPerSuite;
+    private File dir;
+    private File list;
+    private URLClassLoader loader;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("suites-bench").toFile();
+        list = new File(dir, Suites.SUITES_FILE);
+        list.getParentFile().mkdirs();
+        try (PrintWriter out = new PrintWriter(list, StandardCharsets.UTF_8.name())) {
+            out.println("# Generated");
+            for (int i = 0; i < suites; i++) {
+                for (int j = 0; j < classesPerSuite; j++) {
+                    out.println("suite" + i + ":com.example.tests.pkg" + j + ".SomeTest" + (i * classesPerSuite + j));
+                }
+            }
+        }
+        // No parent, so no other suite lists on the classpath are read
+        loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+        list.delete();
+        list.getParentFile().delete();
+        list.getParentFile().getParentFile().delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader old = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            SuiteLists result = new SuiteLists();
+            result.typeNames("suite0");
+            return result;
+        } finally {
+            thread.setContextClassLoader(old);
+        }
+    }
+}
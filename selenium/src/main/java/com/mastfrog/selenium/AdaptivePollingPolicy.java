@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mastfrog.settings.Settings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default PollingPolicy. With nothing known about a condition, polls back off
+ * exponentially from <code>selenium.wait.poll.min.ms</code> (default 10) to
+ * <code>selenium.wait.poll.max.ms</code> (default 500), with &plusmn;20%
+ * jitter. Once a condition has been waited for, a moving average of how long
+ * it took is kept, and later waits home in on that time, halving the
+ * distance to it with each poll, then back off again if it passes.
+ * <p>
+ * Averages are shared by all tests in the JVM, and saved on exit to
+ * <code>selenium.wait.latency.file</code> (default
+ * target/selenium-wait-latencies.properties, if there is a target
+ * directory), to be used by later runs. Conditions not waited for in 30 days
+ * are forgotten, as are the least recently used once there are more than
+ * <code>selenium.wait.latency.max.entries</code> (default 500).
+ *
+ * @author Tim Boudreau
+ */
+@Singleton
+final class AdaptivePollingPolicy implements PollingPolicy {
+
+    static final String MIN_POLL_SETTING = "selenium.wait.poll.min.ms";
+    static final String MAX_POLL_SETTING = "selenium.wait.poll.max.ms";
+    static final String LATENCY_FILE_SETTING = "selenium.wait.latency.file";
+    static final String MAX_ENTRIES_SETTING = "selenium.wait.latency.max.entries";
+    private static final double SMOOTHING = 0.3;
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final Map<String, Latencies> LATENCIES = new ConcurrentHashMap<>();
+    private final long minPoll;
+    private final long maxPoll;
+    private final Latencies latencies;
+
+    @Inject
+    AdaptivePollingPolicy(Settings settings) {
+        minPoll = Math.max(1, settings.getLong(MIN_POLL_SETTING, 10));
+        maxPoll = Math.max(minPoll, settings.getLong(MAX_POLL_SETTING, 500));
+        latencies = latencies(settings.getString(LATENCY_FILE_SETTING, defaultLatencyFile()),
+                Math.max(1, settings.getInt(MAX_ENTRIES_SETTING, 500)));
+    }
+
+    private static String defaultLatencyFile() {
+        File target = new File("target");
+        return target.isDirectory() ? new File(target, "selenium-wait-latencies.properties").getPath() : "";
+    }
+
+    private static Latencies latencies(String file, int maxEntries) {
+        Latencies result = LATENCIES.get(file);
+        if (result == null) {
+            result = new Latencies(file.isEmpty() ? null : new File(file), maxEntries);
+            Latencies old = LATENCIES.putIfAbsent(file, result);
+            if (old != null) {
+                result = old;
+            } else {
+                result.load();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long nextPollMillis(String condition, int attempt, long elapsedMillis) {
+        Double expected = latencies.expected(condition);
+        double base;
+        if (expected == null) {
+            base = minPoll * Math.pow(2, Math.min(attempt - 1, 30));
+        } else {
+            // Sleep half way to the usual time, or, once past it, half as
+            // long again as we have overshot by
+            base = Math.abs(expected - elapsedMillis) / 2;
+        }
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(minPoll, Math.min(maxPoll, Math.round(base * jitter)));
+    }
+
+    @Override
+    public void onFinished(String condition, long elapsedMillis, boolean satisfied) {
+        if (satisfied) {
+            // Timeouts say nothing about how long the condition takes
+            latencies.record(condition, elapsedMillis);
+        }
+    }
+
+    static final class Latencies implements Runnable {
+
+        private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+        private final File file;
+        private final int maxEntries;
+        private volatile boolean dirty;
+
+        Latencies(File file, int maxEntries) {
+            this.file = file;
+            this.maxEntries = maxEntries;
+        }
+
+        Double expected(String condition) {
+            Latency result = latencies.get(condition);
+            if (result == null) {
+                return null;
+            }
+            result.lastUsed = System.currentTimeMillis();
+            return result.millis;
+        }
+
+        int size() {
+            return latencies.size();
+        }
+
+        synchronized void record(String condition, long elapsedMillis) {
+            Latency old = latencies.get(condition);
+            double millis = old == null ? elapsedMillis : old.millis + SMOOTHING * (elapsedMillis - old.millis);
+            latencies.put(condition, new Latency(millis, System.currentTimeMillis()));
+            if (old == null && latencies.size() > maxEntries) {
+                evict(latencies.size() - maxEntries);
+            }
+            dirty = true;
+        }
+
+        private void evict(int count) {
+            List<Map.Entry<String, Latency>> entries = new ArrayList<>(latencies.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<String, Latency>>() {
+                @Override
+                public int compare(Map.Entry<String, Latency> a, Map.Entry<String, Latency> b) {
+                    return Long.compare(a.getValue().lastUsed, b.getValue().lastUsed);
+                }
+            });
+            for (int i = 0; i < count && i < entries.size(); i++) {
+                latencies.remove(entries.get(i).getKey());
+            }
+        }
+
+        synchronized void load() {
+            if (file == null) {
+                return;
+            }
+            if (file.exists()) {
+                Properties props = new Properties();
+                long oldest = System.currentTimeMillis() - MAX_AGE_MILLIS;
+                try (InputStream in = new FileInputStream(file)) {
+                    props.load(in);
+                    for (String key : props.stringPropertyNames()) {
+                        // millis,lastUsed - files from older versions have
+                        // no last used time
+                        String[] parts = props.getProperty(key).split(",");
+                        long lastUsed = parts.length > 1 ? Long.parseLong(parts[1].trim()) : file.lastModified();
+                        if (lastUsed >= oldest) {
+                            latencies.put(key, new Latency(Double.parseDouble(parts[0].trim()), lastUsed));
+                        } else {
+                            dirty = true;
+                        }
+                    }
+                } catch (IOException | NumberFormatException ex) {
+                    System.err.println("Could not read wait latencies from " + file + ": " + ex);
+                }
+                if (latencies.size() > maxEntries) {
+                    evict(latencies.size() - maxEntries);
+                    dirty = true;
+                }
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(this, "save-wait-latencies"));
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!dirty || file == null) {
+                return;
+            }
+            Properties props = new Properties();
+            for (Map.Entry<String, Latency> e : latencies.entrySet()) {
+                props.setProperty(e.getKey(), Math.round(e.getValue().millis) + "," + e.getValue().lastUsed);
+            }
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                props.store(out, "Typical time in milliseconds for WebDriverWait conditions, and when each was last used");
+            } catch (IOException ex) {
+                System.err.println("Could not save wait latencies to " + file + ": " + ex);
+            }
+            dirty = false;
+        }
+    }
+
+    private static final class Latency {
+
+        final double millis;
+        volatile long lastUsed;
+
+        Latency(double millis, long lastUsed) {
+            this.millis = millis;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
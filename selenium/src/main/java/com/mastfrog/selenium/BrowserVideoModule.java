@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.spi.ProvisionListener;
+import com.mastfrog.video.VideoRecorder;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Use instead of VideoModule to record each test's browser through
+ * WebDriver screenshots rather than recording the X display with ffmpeg -
+ * for headless browsers, machines with no display, or tests running several
+ * browsers at once. Recording starts when the test first gets its WebDriver,
+ * if <code>record.video</code> is true; see BrowserVideoRecorder for the
+ * settings.
+ *
+ * @author Tim Boudreau
+ */
+public final class BrowserVideoModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        bind(BrowserVideoRecorder.class).in(Singleton.class);
+        bind(VideoRecorder.class).to(BrowserVideoRecorder.class);
+        final Provider<BrowserVideoRecorder> recorder = binder().getProvider(BrowserVideoRecorder.class);
+        binder().bindListener(new AbstractMatcher<Binding<?>>() {
+            @Override
+            public boolean matches(Binding<?> t) {
+                return t.getKey().getTypeLiteral().getRawType() == WebDriver.class;
+            }
+        }, new ProvisionListener() {
+            @Override
+            public <T> void onProvision(ProvisionListener.ProvisionInvocation<T> provision) {
+                recorder.get().attach((WebDriver) provision.provision());
+            }
+        });
+    }
+}
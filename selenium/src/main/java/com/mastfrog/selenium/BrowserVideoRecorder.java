@@ -0,0 +1,497 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.google.inject.Inject;
+import com.mastfrog.settings.Settings;
+import com.mastfrog.shutdown.hooks.ShutdownHookRegistry;
+import com.mastfrog.util.time.TimeUtil;
+import com.mastfrog.video.VideoRecorder;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoAlertPresentException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.UnhandledAlertException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+/**
+ * Records what a test's browser shows by taking screenshots through
+ * WebDriver, so it works with headless browsers and without an X display,
+ * and each of several drivers running in parallel gets its own video. A
+ * tick every <code>video.browser.interval.millis</code> (default 200) asks
+ * the page, with a bit of script, whether anything has changed since the
+ * last tick; only if it has is a screenshot taken. If the test has sent the
+ * browser nothing since the last tick, only the page itself can have changed
+ * anything, so it is asked only every <code>video.browser.idle.millis</code>
+ * (default 1000), and a test which is sitting still costs nothing in between.
+ * Screenshots go into a bounded queue (<code>video.browser.queue.size</code>,
+ * default 8) and are converted to JPEG (<code>video.browser.quality</code>,
+ * default 0.7) on another thread; if the encoder falls behind, frames are
+ * dropped rather than slowing the test down.
+ * <p>
+ * Only frames which differ are written, each to its own file, along with an
+ * ffconcat playlist giving how long each was on screen, which plays at real
+ * speed with <code>ffplay [playlist]</code> and converts with
+ * <code>ffmpeg -f concat -i [playlist] [output]</code>. They go in a
+ * directory of their own in <code>video.browser.dir</code>, by default
+ * target/ if there is one, and the playlist's path is published as the
+ * system property <code>test.video.[class]#[method]</code>, as segmented
+ * ffmpeg recordings do.
+ * <p>
+ * WebDriver is not thread-safe, so the test's commands to the driver are
+ * routed through a lock (see SerializedCommands), which a tick holds while it
+ * checks the page and takes a screenshot, so it never lands in the middle of
+ * what the test is doing; the test waits for it at most that long. While a dialog is open nothing is sent to the
+ * page, since the driver would dismiss the dialog the test is about to deal
+ * with. Only RemoteWebDriver subclasses which can take screenshots are
+ * recorded - not HtmlUnit's. The capture threads are shared by every
+ * recorder; <code>video.browser.threads</code> (default 2) sets how many.
+ *
+ * @author Tim Boudreau
+ */
+final class BrowserVideoRecorder implements VideoRecorder, Runnable {
+
+    static final String CLIP_PROPERTY_PREFIX = "test.video.";
+    private static final String CHANGES_SCRIPT
+            = "var w = window;\n"
+            + "if (w.__videoChanges === undefined) {\n"
+            + "  w.__videoChanges = 0;\n"
+            + "  var bump = function() { w.__videoChanges++; };\n"
+            + "  if (w.MutationObserver && document.documentElement) {\n"
+            + "    new MutationObserver(bump).observe(document.documentElement,\n"
+            + "        {attributes: true, childList: true, characterData: true, subtree: true});\n"
+            + "  }\n"
+            + "  w.addEventListener('input', bump, true);\n"
+            + "  w.addEventListener('scroll', bump, true);\n"
+            + "  w.addEventListener('resize', bump, true);\n"
+            // A page we have not seen before
+            + "  return 'new';\n"
+            + "}\n"
+            + "return w.__videoChanges + ' ' + location.href;";
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    // Give up after this many ticks in a row fail for no known reason
+    private static final int MAX_FAILURES = 10;
+    private static final ScheduledThreadPoolExecutor CAPTURE
+            = new ScheduledThreadPoolExecutor(1, threads("browser-video-capture"));
+    private static final ExecutorService ENCODER = Executors.newCachedThreadPool(threads("browser-video-encoder"));
+    private final Settings settings;
+    private final BlockingQueue<Frame> frames;
+    private final AtomicBoolean encoding = new AtomicBoolean();
+    private final long intervalMillis;
+    private final long idleNanos;
+    private final float quality;
+    private WebDriver driver;
+    private SerializedCommands commands;
+    private String test;
+    private ScheduledFuture<?> capture;
+    private PrintWriter playlist;
+    private File file;
+    // Touched only by the capture task
+    private Object lastChange;
+    private boolean captured;
+    private int failures;
+    private long lastCommands;
+    private long lastLook;
+    // Guarded by this - the frame waiting to be listed in the playlist until
+    // it is known how long it was on screen
+    private String lastFrame;
+    private long lastFrameNanos;
+    private volatile int written;
+    private volatile int dropped;
+
+    @Inject
+    @SuppressWarnings("LeakingThisInConstructor")
+    BrowserVideoRecorder(Settings settings, ShutdownHookRegistry reg) {
+        this.settings = settings;
+        reg.add(this);
+        intervalMillis = Math.max(10, settings.getLong("video.browser.interval.millis", 200));
+        idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(intervalMillis,
+                settings.getLong("video.browser.idle.millis", 1000)));
+        quality = (float) settings.getDouble("video.browser.quality", 0.7);
+        frames = new ArrayBlockingQueue<>(Math.max(1, settings.getInt("video.browser.queue.size", 8)));
+        synchronized (CAPTURE) {
+            int threads = settings.getInt("video.browser.threads", 2);
+            if (threads > CAPTURE.getCorePoolSize()) {
+                CAPTURE.setCorePoolSize(threads);
+            }
+        }
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    private static ThreadFactory threads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + THREAD_IDS.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Called when the test's driver is handed out; starts recording it if
+     * record.video is true.
+     *
+     * @param driver The driver
+     */
+    void attach(WebDriver driver) {
+        synchronized (this) {
+            if (this.driver == driver) {
+                return;
+            }
+            this.driver = driver;
+            // Called on the test's thread
+            this.test = PhaseTimings.currentTest();
+        }
+        if (settings.getBoolean("record.video", false)) {
+            start();
+        } else {
+            log("System property record.video is not set to true - will not record video");
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (capture != null || driver == null) {
+            return;
+        }
+        if (!(driver instanceof TakesScreenshot)) {
+            log(driver.getClass().getSimpleName() + " cannot take screenshots - will not record video");
+            return;
+        }
+        commands = SerializedCommands.install(driver);
+        if (commands == null) {
+            log("Cannot keep screenshots from interleaving with the test's commands to "
+                    + driver.getClass().getSimpleName() + " - will not record video");
+            return;
+        }
+        file = videoFile();
+        try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Could not create " + file.getParent());
+            }
+            playlist = new PrintWriter(file, StandardCharsets.UTF_8.name());
+            playlist.println("ffconcat version 1.0");
+        } catch (IOException ex) {
+            System.err.println("Could not create " + file + ": " + ex);
+            return;
+        }
+        lastFrame = null;
+        captured = false;
+        written = 0;
+        if (test != null) {
+            System.setProperty(CLIP_PROPERTY_PREFIX + test, file.getPath());
+        }
+        log("Recording browser video to " + file);
+        capture = CAPTURE.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private File videoFile() {
+        String dirName = settings.getString("video.browser.dir");
+        File dir = dirName != null ? new File(dirName) : new File("target");
+        if (!dir.isDirectory() && (dirName == null || !dir.mkdirs())) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        String name = test == null ? "browser" : test.replace('#', '.').replaceAll("[^A-Za-z0-9_.$-]", "_");
+        File frameDir = new File(dir, name + "_" + TimeUtil.toSortableStringFormat(ZonedDateTime.now()));
+        return new File(frameDir, name + ".ffconcat");
+    }
+
+    private void tick() {
+        WebDriver d;
+        SerializedCommands c;
+        synchronized (this) {
+            d = driver;
+            c = commands;
+            if (d == null || capture == null) {
+                return;
+            }
+        }
+        long now = System.nanoTime();
+        if (captured && c.commands() == lastCommands && now - lastLook < idleNanos) {
+            // Nothing sent to the browser since we last looked - only the
+            // page itself can have changed anything, so look less often
+            return;
+        }
+        Frame frame = null;
+        boolean locked;
+        try {
+            // Wait for the test's current command, but skip the tick rather
+            // than fall behind
+            locked = c.lock().tryLock(intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            return;
+        }
+        if (locked) {
+            try {
+                frame = capture(d);
+                failures = 0;
+            } catch (NoSuchSessionException | SessionNotCreatedException | UnreachableBrowserException ex) {
+                // The browser has gone away, most likely because the test is over
+                log("Stopping browser video for " + test + ": " + ex.getMessage());
+                cancel();
+                return;
+            } catch (UnhandledAlertException ex) {
+                // The page opened a dialog after we checked; the driver has
+                // handled it as it would have on the test's next command
+                log("Dialog opened during browser video capture for " + test + ": " + ex.getMessage());
+                lastChange = null;
+            } catch (WebDriverException ex) {
+                log("Browser video capture failed for " + test + ": " + ex.getMessage());
+                lastChange = null;
+                if (++failures >= MAX_FAILURES) {
+                    System.err.println("Giving up on browser video for " + test + " after "
+                            + failures + " failures: " + ex);
+                    cancel();
+                    return;
+                }
+            } finally {
+                // Our own commands do not count as the test doing something
+                lastCommands = c.commands();
+                lastLook = now;
+                c.lock().unlock();
+            }
+        }
+        if (frame == null) {
+            return;
+        }
+        if (!frames.offer(frame)) {
+            dropped++;
+            // Make sure the change is captured once there is room
+            lastChange = null;
+            return;
+        }
+        if (encoding.compareAndSet(false, true)) {
+            ENCODER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    encode();
+                }
+            });
+        }
+    }
+
+    /**
+     * Take a screenshot if the page has changed, with the driver's lock held.
+     *
+     * @return A frame, or null if nothing has changed
+     */
+    private Frame capture(WebDriver d) {
+        if (dialogOpen(d)) {
+            // Any other command would dismiss it
+            return null;
+        }
+        Object change = d instanceof JavascriptExecutor
+                ? ((JavascriptExecutor) d).executeScript(CHANGES_SCRIPT)
+                : new Object();
+        if (captured && Objects.equals(change, lastChange)) {
+            return null;
+        }
+        lastChange = change;
+        captured = true;
+        long at = System.nanoTime();
+        return new Frame(((TakesScreenshot) d).getScreenshotAs(OutputType.BYTES), at);
+    }
+
+    private static boolean dialogOpen(WebDriver d) {
+        try {
+            // Alert commands are not subject to the driver's prompt handling
+            d.switchTo().alert();
+            return true;
+        } catch (NoAlertPresentException ex) {
+            return false;
+        }
+    }
+
+    private void encode() {
+        try {
+            for (;;) {
+                Frame frame;
+                while ((frame = frames.poll()) != null) {
+                    write(frame);
+                }
+                encoding.set(false);
+                // Something may have been queued after the last poll
+                if (frames.isEmpty() || !encoding.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            encoding.set(false);
+            System.err.println("Could not write browser video " + file + ": " + ex);
+            cancel();
+        }
+    }
+
+    private void write(Frame frame) throws IOException {
+        String name = String.format(Locale.US, "frame-%06d.jpg", written + 1);
+        Files.write(new File(file.getParentFile(), name).toPath(), toJpeg(frame.png));
+        synchronized (this) {
+            if (playlist != null) {
+                // The previous frame was on screen until this one
+                if (lastFrame != null) {
+                    list(playlist, lastFrame, frame.nanos - lastFrameNanos);
+                }
+                lastFrame = name;
+                lastFrameNanos = frame.nanos;
+                written++;
+            }
+        }
+    }
+
+    private static void list(PrintWriter playlist, String frame, long nanos) {
+        playlist.println("file '" + frame + "'");
+        playlist.println(String.format(Locale.US, "duration %.3f",
+                Math.max(0, nanos) / (double) TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private byte[] toJpeg(byte[] png) throws IOException {
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(png));
+        if (img == null) {
+            throw new IOException("Not an image");
+        }
+        if (img.getColorModel().hasAlpha()) {
+            // The JPEG writer cannot handle an alpha channel
+            BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+            rgb.createGraphics().drawImage(img, 0, 0, null);
+            img = rgb;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(png.length / 2);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(result)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return result.toByteArray();
+    }
+
+    private synchronized void cancel() {
+        if (capture != null) {
+            capture.cancel(false);
+        }
+    }
+
+    @Override
+    public void stop() {
+        PrintWriter p;
+        long stoppedAt = System.nanoTime();
+        synchronized (this) {
+            if (capture == null) {
+                return;
+            }
+            capture.cancel(false);
+            capture = null;
+        }
+        // Let the encoder finish what was captured
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((encoding.get() || !frames.isEmpty()) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        synchronized (this) {
+            p = playlist;
+            playlist = null;
+            if (lastFrame != null) {
+                // The last frame lasts until the recording stopped; ffmpeg
+                // ignores the last entry's duration unless it is listed again
+                list(p, lastFrame, stoppedAt - lastFrameNanos);
+                p.println("file '" + lastFrame + "'");
+            }
+        }
+        p.close();
+        if (p.checkError()) {
+            System.err.println("Could not write " + file);
+        }
+        log("Wrote " + written + " frames of browser video to " + file
+                + (dropped > 0 ? " (" + dropped + " dropped)" : ""));
+    }
+
+    @Override
+    public void run() {
+        stop();
+    }
+
+    private static final class Frame {
+
+        final byte[] png;
+        final long nanos;
+
+        Frame(byte[] png, long nanos) {
+            this.png = png;
+            this.nanos = nanos;
+        }
+    }
+}
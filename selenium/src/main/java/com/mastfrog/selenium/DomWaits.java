@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Waits for changes in the page inside the browser, using a MutationObserver,
+ * with a single executeAsyncScript() call which returns as soon as the
+ * condition holds, rather than polling over the wire. Methods return null
+ * when they cannot be used - no javascript, HtmlUnit, or an element which is
+ * not in the page yet - in which case callers should use WebDriverWait as
+ * before.
+ * <p>
+ * Since the in-page checks are approximations of WebDriver's own, a TRUE
+ * result should be confirmed with the real condition; it only means the
+ * waiting is over.
+ *
+ * @author Tim Boudreau
+ */
+final class DomWaits {
+
+    /**
+     * Setting which, if false, disables in-browser waits.
+     */
+    static final String DOM_WAITS_SETTING = "selenium.dom.waits";
+    // Installed into the page the first time it is needed; later calls
+    // in the same page reuse it
+    private static final String INSTALL
+            = "var w = window.__giuliusWaits;\n"
+            + "if (!w) {\n"
+            + "  w = window.__giuliusWaits = {\n"
+            + "    await: function(test, timeout, done) {\n"
+            + "      var finished = false, observer, timer, poll;\n"
+            + "      function finish(result) {\n"
+            + "        if (finished) { return; }\n"
+            + "        finished = true;\n"
+            + "        if (observer) { observer.disconnect(); }\n"
+            + "        clearTimeout(timer);\n"
+            + "        clearInterval(poll);\n"
+            + "        document.removeEventListener('transitionend', check, true);\n"
+            + "        document.removeEventListener('animationend', check, true);\n"
+            + "        done(result);\n"
+            + "      }\n"
+            + "      function check() {\n"
+            + "        try { if (test()) { finish(true); } } catch (e) { finish('' + e); }\n"
+            + "      }\n"
+            + "      check();\n"
+            + "      if (finished) { return; }\n"
+            + "      observer = new MutationObserver(check);\n"
+            + "      observer.observe(document.documentElement, {attributes: true, childList: true, subtree: true, characterData: true});\n"
+            + "      document.addEventListener('transitionend', check, true);\n"
+            + "      document.addEventListener('animationend', check, true);\n"
+            // Safety net for changes no event reports, such as media queries
+            + "      poll = setInterval(check, 250);\n"
+            + "      timer = setTimeout(function() { finish(false); }, timeout);\n"
+            + "    },\n"
+            + "    visible: function(el) {\n"
+            + "      if (!document.documentElement.contains(el)) { return false; }\n"
+            + "      for (var e = el; e && e.nodeType === 1; e = e.parentElement) {\n"
+            + "        if (getComputedStyle(e).display === 'none') { return false; }\n"
+            + "      }\n"
+            + "      var s = getComputedStyle(el);\n"
+            + "      if (s.visibility === 'hidden' || s.visibility === 'collapse' || parseFloat(s.opacity) === 0) { return false; }\n"
+            + "      return el.getClientRects().length > 0;\n"
+            + "    },\n"
+            + "    find: function(kind, v) {\n"
+            + "      switch (kind) {\n"
+            + "        case 'id': return document.getElementById(v);\n"
+            + "        case 'name': return document.getElementsByName(v)[0];\n"
+            + "        case 'className': return document.getElementsByClassName(v)[0];\n"
+            + "        case 'cssSelector': return document.querySelector(v);\n"
+            + "        case 'tagName': return document.getElementsByTagName(v)[0];\n"
+            + "        case 'xpath': return document.evaluate(v, document, null, 9, null).singleNodeValue;\n"
+            + "      }\n"
+            + "      return null;\n"
+            + "    }\n"
+            + "  };\n"
+            + "}\n";
+    private static final String AWAIT_VISIBLE = INSTALL
+            + "var el = arguments[0];\n"
+            + "w.await(function() { return w.visible(el); }, arguments[1], arguments[arguments.length - 1]);\n";
+    private static final String AWAIT_PRESENT = INSTALL
+            + "var kind = arguments[0], value = arguments[1];\n"
+            + "w.await(function() { return w.find(kind, value) != null; }, arguments[2], arguments[arguments.length - 1]);\n";
+
+    private final WebDriver driver;
+    private final long timeoutMillis;
+    private final long scriptTimeoutMillis;
+    private final boolean enabled;
+
+    DomWaits(WebDriver driver, long timeoutMillis, long scriptTimeoutMillis, boolean enabled) {
+        this.driver = driver;
+        this.timeoutMillis = timeoutMillis;
+        this.scriptTimeoutMillis = scriptTimeoutMillis;
+        // HtmlUnit's MutationObserver and async script support are not
+        // complete enough to rely on
+        this.enabled = enabled && driver instanceof JavascriptExecutor
+                && !(driver instanceof HtmlUnitDriver);
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Wait for an element to become visible.
+     *
+     * @param el The element
+     * @return TRUE if it became visible, FALSE on timeout, null if this
+     * approach cannot be used
+     */
+    Boolean awaitVisible(WebElement el) {
+        return run(AWAIT_VISIBLE, el, timeoutMillis);
+    }
+
+    /**
+     * Wait for an element matching a locator to be present.
+     *
+     * @param by The locator
+     * @return TRUE if one appeared, FALSE on timeout, null if this approach
+     * cannot be used, as with By.linkText() or custom locators
+     */
+    Boolean awaitPresent(By by) {
+        String kind = kind(by);
+        if (kind == null) {
+            return null;
+        }
+        String s = by.toString();
+        // By's toString() is "By.kind: value"
+        String value = s.substring(s.indexOf(": ") + 2);
+        return run(AWAIT_PRESENT, kind, value, timeoutMillis);
+    }
+
+    private static String kind(By by) {
+        if (by instanceof By.ById) {
+            return "id";
+        } else if (by instanceof By.ByName) {
+            return "name";
+        } else if (by instanceof By.ByClassName) {
+            return "className";
+        } else if (by instanceof By.ByCssSelector) {
+            return "cssSelector";
+        } else if (by instanceof By.ByTagName) {
+            return "tagName";
+        } else if (by instanceof By.ByXPath) {
+            return "xpath";
+        }
+        return null;
+    }
+
+    private Boolean run(String script, Object... args) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            // Let the script's own timeout fire first
+            driver.manage().timeouts().setScriptTimeout(timeoutMillis + 5000, TimeUnit.MILLISECONDS);
+            try {
+                Object result = ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+                if (result instanceof Boolean) {
+                    return (Boolean) result;
+                }
+                log("In-page wait failed: " + result);
+                return null;
+            } finally {
+                // WebDriver cannot tell us what the timeout was, so put back
+                // the one the harness gave the driver
+                driver.manage().timeouts().setScriptTimeout(scriptTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (WebDriverException ex) {
+            // Element not in the page yet, javascript disabled, or a page
+            // load replaced the script
+            log("In-page wait unavailable: " + ex);
+            return null;
+        }
+    }
+}
@@ -35,7 +35,9 @@ import java.lang.annotation.Target;
  * indicate a class that should be instantiated before the test is called.
  * <p/>
  * Use it if there are some pre-steps required by a lot of tests, such as
- * logging in on a login page.
+ * logging in on a login page. Fixtures like that, which only change the
+ * browser's state, can be annotated with &#064;SnapshotSession so they run
+ * once and are replayed for later tests.
  *
  * @author Tim Boudreau
  */
@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Caches golden images for &#064;ScreenCapture comparisons, keyed by the
+ * golden file's path, modification time and size. Decoded images are held
+ * softly for the life of the JVM; a hash of each band of rows is kept both in
+ * memory and on disk, so a later run can find a screenshot identical to its
+ * golden image without decoding the PNG at all, and otherwise only compares
+ * the bands whose hashes differ.
+ * <p>
+ * The on-disk cache lives in <code>selenium.golden.cache.dir</code>,
+ * defaulting to a directory under java.io.tmpdir.
+ *
+ * @author Tim Boudreau
+ */
+final class GoldenImageCache {
+
+    private static final int MAGIC = 0x474C4431;
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private final File dir;
+
+    GoldenImageCache(File dir) {
+        this.dir = dir;
+    }
+
+    static GoldenImageCache create() {
+        String dirName = System.getProperty("selenium.golden.cache.dir");
+        File dir = dirName == null
+                ? new File(System.getProperty("java.io.tmpdir"), "selenium-golden-cache")
+                : new File(dirName);
+        return new GoldenImageCache(dir);
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    /**
+     * Compare a screenshot with a golden image.
+     *
+     * @param actual The screenshot
+     * @param golden The golden image file
+     * @param maxDeviation The maximum allowed deviation, from 0 to 1
+     * @return The result
+     * @throws IOException If the golden image cannot be read
+     */
+    ImageComparator.Result compare(BufferedImage actual, File golden, double maxDeviation) throws IOException {
+        Entry entry = entry(golden);
+        long[] actualHashes = ImageComparator.bandHashes(actual);
+        boolean[] identical = null;
+        if (entry.width == actual.getWidth() && entry.height == actual.getHeight()) {
+            identical = new boolean[actualHashes.length];
+            boolean all = true;
+            for (int i = 0; i < actualHashes.length; i++) {
+                identical[i] = actualHashes[i] == entry.hashes[i];
+                all &= identical[i];
+            }
+            if (all) {
+                log("Screenshot identical to " + golden);
+                return new ImageComparator.Result(false, 0);
+            }
+        }
+        return ImageComparator.compare(actual, image(golden), maxDeviation, identical);
+    }
+
+    /**
+     * Get the decoded golden image.
+     *
+     * @param golden The file
+     * @return An image, which must not be modified
+     * @throws IOException If it cannot be read
+     */
+    BufferedImage image(File golden) throws IOException {
+        Entry entry = entry(golden);
+        BufferedImage result = entry.image.get();
+        if (result == null) {
+            result = read(golden);
+            entry.image = new SoftReference<>(result);
+        }
+        return result;
+    }
+
+    private static BufferedImage read(File golden) throws IOException {
+        BufferedImage result = ImageIO.read(golden);
+        if (result == null) {
+            throw new IOException("Not an image: " + golden);
+        }
+        return result;
+    }
+
+    private Entry entry(File golden) throws IOException {
+        String path = golden.getAbsolutePath();
+        long lastModified = golden.lastModified();
+        long length = golden.length();
+        Entry result = ENTRIES.get(path);
+        if (result != null && result.matches(lastModified, length)) {
+            return result;
+        }
+        File hashFile = new File(dir, Integer.toHexString(path.hashCode()) + "-" + golden.getName() + ".hashes");
+        result = load(hashFile, path, lastModified, length);
+        if (result == null) {
+            BufferedImage img = read(golden);
+            result = new Entry(lastModified, length, img.getWidth(), img.getHeight(),
+                    ImageComparator.bandHashes(img));
+            result.image = new SoftReference<>(img);
+            save(hashFile, path, result);
+        }
+        ENTRIES.put(path, result);
+        return result;
+    }
+
+    private static Entry load(File hashFile, String path, long lastModified, long length) {
+        if (!hashFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hashFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != ImageComparator.BAND_HEIGHT
+                    || !path.equals(in.readUTF()) || in.readLong() != lastModified || in.readLong() != length) {
+                return null;
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            long[] hashes = new long[ImageComparator.bandCount(height)];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = in.readLong();
+            }
+            return new Entry(lastModified, length, width, height, hashes);
+        } catch (IOException ex) {
+            log("Unreadable golden image cache " + hashFile + ": " + ex);
+            return null;
+        }
+    }
+
+    private void save(File hashFile, String path, Entry entry) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            log("Could not create " + dir);
+            return;
+        }
+        // Write and rename, so a concurrent reader never sees half a file
+        File tmp = new File(dir, hashFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(ImageComparator.BAND_HEIGHT);
+            out.writeUTF(path);
+            out.writeLong(entry.lastModified);
+            out.writeLong(entry.length);
+            out.writeInt(entry.width);
+            out.writeInt(entry.height);
+            for (long hash : entry.hashes) {
+                out.writeLong(hash);
+            }
+        } catch (IOException ex) {
+            log("Could not write golden image cache " + hashFile + ": " + ex);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(hashFile)) {
+            hashFile.delete();
+            if (!tmp.renameTo(hashFile)) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final long lastModified;
+        final long length;
+        final int width;
+        final int height;
+        final long[] hashes;
+        volatile SoftReference<BufferedImage> image = new SoftReference<>(null);
+
+        Entry(long lastModified, long length, int width, int height, long[] hashes) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.width = width;
+            this.height = height;
+            this.hashes = hashes;
+        }
+
+        boolean matches(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+    }
+}
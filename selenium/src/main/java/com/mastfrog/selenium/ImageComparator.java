@@ -0,0 +1,355 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares a screenshot with its golden image, computing the same deviation
+ * Shutterbug's Snapshot.equalsWithDiff() does - the mean absolute difference
+ * of the red, green and blue channels, as a fraction of 255 - but working on
+ * int[] rows rather than calling getRGB() per pixel, giving up as soon as the
+ * allowed deviation is exceeded, and splitting tall images into bands of rows
+ * compared on the fork/join pool.
+ *
+ * @author Tim Boudreau
+ */
+final class ImageComparator {
+
+    static final int BAND_HEIGHT = 64;
+    // Below this many pixels, forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 512 * 512;
+    private static final int RED_RGB = 0xFFFF0000;
+
+    private ImageComparator() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Compare two images.
+     *
+     * @param actual The new screenshot
+     * @param expected The golden image
+     * @param maxDeviation The maximum allowed deviation, from 0 to 1
+     * @return A result
+     * @throws IllegalArgumentException if the images differ in size
+     */
+    static Result compare(BufferedImage actual, BufferedImage expected, double maxDeviation) {
+        return compare(actual, expected, maxDeviation, null);
+    }
+
+    /**
+     * Compare two images, skipping bands already known to be identical.
+     *
+     * @param actual The new screenshot
+     * @param expected The golden image
+     * @param maxDeviation The maximum allowed deviation, from 0 to 1
+     * @param identicalBands Flags for each BAND_HEIGHT rows of the images
+     * which need not be compared, or null
+     * @return A result
+     * @throws IllegalArgumentException if the images differ in size
+     */
+    static Result compare(BufferedImage actual, BufferedImage expected, double maxDeviation, boolean[] identicalBands) {
+        checkDimensions(actual, expected);
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        double scale = (double) width * height * 3 * 255;
+        // Compare sums of channel differences rather than fractions, so the
+        // early exit test is a long comparison
+        long limit = (long) Math.floor(maxDeviation * scale);
+        Band band = new Band(new Images(actual, expected, identicalBands), 0, height, limit, new AtomicLong());
+        if ((long) width * height >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(band);
+        } else {
+            band.compute();
+        }
+        long total = band.total.get();
+        return new Result(total > limit, total / scale);
+    }
+
+    /**
+     * Write an image showing the differing pixels in red, in the same format
+     * Shutterbug uses, on a background thread.
+     *
+     * @param actual The new screenshot
+     * @param expected The golden image
+     * @param dest The file to write
+     */
+    static void writeDiff(BufferedImage actual, BufferedImage expected, File dest) {
+        checkDimensions(actual, expected);
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] a = new int[width];
+        int[] b = new int[width];
+        for (int y = 0; y < height; y++) {
+            actual.getRGB(0, y, width, 1, a, 0, width);
+            expected.getRGB(0, y, width, 1, b, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (a[x] != b[x]) {
+                    a[x] &= RED_RGB;
+                }
+            }
+            diff.setRGB(0, y, width, 1, a, 0, width);
+        }
+        ScreenshotWriter.write(diff, dest);
+    }
+
+    private static void checkDimensions(BufferedImage actual, BufferedImage expected) {
+        if (actual.getWidth() != expected.getWidth() || actual.getHeight() != expected.getHeight()) {
+            throw new IllegalArgumentException("Images dimensions mismatch: image1 - "
+                    + actual.getWidth() + "x" + actual.getHeight() + "; image2 - "
+                    + expected.getWidth() + "x" + expected.getHeight());
+        }
+    }
+
+    /**
+     * Sum the channel differences of one row segment.
+     */
+    static long difference(int[] a, int aOffset, int[] b, int bOffset, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            int pa = a[aOffset + i];
+            int pb = b[bOffset + i];
+            if (((pa ^ pb) & 0xFFFFFF) != 0) {
+                sum += Math.abs(((pa >> 16) & 0xFF) - ((pb >> 16) & 0xFF))
+                        + Math.abs(((pa >> 8) & 0xFF) - ((pb >> 8) & 0xFF))
+                        + Math.abs((pa & 0xFF) - (pb & 0xFF));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Hash each band of BAND_HEIGHT rows of an image, so two images can be
+     * found identical, band by band, without having both in memory.
+     *
+     * @param img An image
+     * @return One hash per band
+     */
+    static long[] bandHashes(BufferedImage img) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int[] packed = packedPixels(img);
+        long[] result = new long[bandCount(height)];
+        for (int band = 0; band < result.length; band++) {
+            int y = band * BAND_HEIGHT;
+            int rows = Math.min(BAND_HEIGHT, height - y);
+            int[] pixels = packed == null ? rows(img, y, rows) : packed;
+            int offset = packed == null ? 0 : y * width;
+            // 64-bit FNV-1a over the RGB of each pixel
+            long hash = 0xcbf29ce484222325L;
+            for (int i = offset; i < offset + rows * width; i++) {
+                hash ^= pixels[i] & 0xFFFFFF;
+                hash *= 0x100000001b3L;
+            }
+            result[band] = hash;
+        }
+        return result;
+    }
+
+    static int bandCount(int height) {
+        return (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    }
+
+    /**
+     * Get the pixels of an image which stores them as packed RGB ints, one
+     * per pixel and one row after another, without copying; null for images
+     * laid out any other way.
+     */
+    static int[] packedPixels(BufferedImage img) {
+        int type = img.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+            return null;
+        }
+        Raster raster = img.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || raster.getDataBuffer().getNumBanks() != 1
+                || raster.getDataBuffer().getOffset() != 0
+                || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0
+                || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != img.getWidth()) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Get a range of rows as packed RGB ints. PNGs decoded by ImageIO are
+     * usually byte-interleaved BGR or ABGR, which are unpacked directly;
+     * anything else goes through getRGB().
+     */
+    static int[] rows(BufferedImage img, int y, int rows) {
+        int width = img.getWidth();
+        int type = img.getType();
+        int pixelStride = type == BufferedImage.TYPE_3BYTE_BGR ? 3
+                : type == BufferedImage.TYPE_4BYTE_ABGR ? 4 : 0;
+        Raster raster = img.getRaster();
+        if (pixelStride == 0
+                || !(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel)
+                || raster.getDataBuffer().getOffset() != 0
+                || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0
+                || ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride() != width * pixelStride) {
+            return img.getRGB(0, y, width, rows, null, 0, width);
+        }
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        // Blue is the last byte of each pixel before red and green
+        int blue = pixelStride - 3;
+        int[] result = new int[width * rows];
+        for (int i = 0, pos = y * width * pixelStride; i < result.length; i++, pos += pixelStride) {
+            result[i] = ((data[pos + blue + 2] & 0xFF) << 16)
+                    | ((data[pos + blue + 1] & 0xFF) << 8)
+                    | (data[pos + blue] & 0xFF);
+        }
+        return result;
+    }
+
+    /**
+     * The outcome of a comparison.
+     */
+    static final class Result {
+
+        final boolean diverged;
+        final double deviation;
+
+        Result(boolean diverged, double deviation) {
+            this.diverged = diverged;
+            this.deviation = deviation;
+        }
+
+        @Override
+        public String toString() {
+            // If the comparison stopped early, the deviation is a lower bound
+            return (diverged ? "Diverged " : "Matched ") + deviation;
+        }
+    }
+
+    /**
+     * The pair of images being compared, with direct access to their pixels
+     * where the image type allows it.
+     */
+    static final class Images {
+
+        final BufferedImage actual;
+        final BufferedImage expected;
+        final int[] actualPixels;
+        final int[] expectedPixels;
+        final int width;
+        private final boolean[] identicalBands;
+
+        Images(BufferedImage actual, BufferedImage expected, boolean[] identicalBands) {
+            this.identicalBands = identicalBands;
+            this.actual = actual;
+            this.expected = expected;
+            this.actualPixels = packedPixels(actual);
+            this.expectedPixels = packedPixels(expected);
+            this.width = actual.getWidth();
+        }
+
+        /**
+         * Sum the channel differences of a range of rows, stopping once the
+         * running total passes the limit.
+         */
+        long compareRows(int y, int rows, long limit, AtomicLong total) {
+            if (identicalBands != null && identicalBands[y / BAND_HEIGHT]) {
+                return 0;
+            }
+            int[] a = actualPixels;
+            int[] b = expectedPixels;
+            int aBase = y * width;
+            int bBase = y * width;
+            if (a == null) {
+                a = rows(actual, y, rows);
+                aBase = 0;
+            }
+            if (b == null) {
+                b = rows(expected, y, rows);
+                bBase = 0;
+            }
+            long sum = 0;
+            for (int row = 0; row < rows; row++) {
+                long rowSum = difference(a, aBase + row * width, b, bBase + row * width, width);
+                if (rowSum != 0) {
+                    sum += rowSum;
+                    if (total.addAndGet(rowSum) > limit) {
+                        break;
+                    }
+                } else if (total.get() > limit) {
+                    break;
+                }
+            }
+            return sum;
+        }
+    }
+
+    private static final class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Images images;
+        private final int y;
+        private final int rows;
+        private final long limit;
+        final AtomicLong total;
+
+        Band(Images images, int y, int rows, long limit, AtomicLong total) {
+            this.images = images;
+            this.y = y;
+            this.rows = rows;
+            this.limit = limit;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            if (total.get() > limit) {
+                // Another band already found enough differences
+                return;
+            }
+            if (rows <= BAND_HEIGHT || !inForkJoinPool()) {
+                for (int start = y; start < y + rows && total.get() <= limit; start += BAND_HEIGHT) {
+                    images.compareRows(start, Math.min(BAND_HEIGHT, y + rows - start), limit, total);
+                }
+                return;
+            }
+            int half = ((rows / 2) / BAND_HEIGHT) * BAND_HEIGHT;
+            if (half == 0) {
+                half = BAND_HEIGHT;
+            }
+            invokeAll(new Band(images, y, half, limit, total),
+                    new Band(images, y + half, rows - half, limit, total));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+/**
+ * The parts of running a Selenium test which PhaseTimings measures.
+ *
+ * @author Tim Boudreau
+ */
+public enum Phase {
+    /**
+     * Creating the Guice injector for a test method, from
+     * onBeforeCreateDependencies until it exists.
+     */
+    CREATE_INJECTOR,
+    /**
+     * Launching a browser, or leasing one from the pool.
+     */
+    LAUNCH_DRIVER,
+    /**
+     * Loading the base URL in a newly obtained browser.
+     */
+    NAVIGATE_TO_BASE_URL,
+    /**
+     * Constructing one of a test's &#064;Fixtures; the detail is the type.
+     */
+    CREATE_FIXTURE,
+    /**
+     * Creating or initializing a page model's elements; the detail is the
+     * type.
+     */
+    INITIALIZE_PAGE_MODEL,
+    /**
+     * Waiting for a condition with a WebDriverWait, or in the page; the detail
+     * is the condition.
+     */
+    WAIT_CONDITION,
+    /**
+     * The test method itself, from when its injector and fixtures are ready
+     * until it finishes.
+     */
+    TEST_BODY,
+    /**
+     * Capturing a screenshot from the browser or desktop; the detail is the
+     * source (page, element, browser or desktop).
+     */
+    CAPTURE_SCREENSHOT,
+    /**
+     * Encoding and writing a screenshot, on a background thread; the detail
+     * is the file.
+     */
+    ENCODE_SCREENSHOT,
+    /**
+     * Comparing a screenshot with its golden image; the detail is the golden
+     * image file.
+     */
+    COMPARE_GOLDEN_IMAGE
+}
@@ -0,0 +1,49 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+/**
+ * Notified of how long each phase of each Selenium test took. Register one
+ * with PhaseTimings.addListener(), or as a service (e.g. with
+ * &#064;ServiceProvider(PhaseListener.class)) to have it found
+ * automatically.
+ *
+ * @author Tim Boudreau
+ */
+public interface PhaseListener {
+
+    /**
+     * Called when a phase has finished, on the thread which ran it - for
+     * screenshot encoding, a background thread. Must be thread-safe and quick.
+     *
+     * @param test The test, as <code>com.foo.FooTest#testBar</code>, or null
+     * if the phase did not happen within a test
+     * @param phase The phase
+     * @param detail What the phase was working on, such as a fixture type
+     * or a file name, or null
+     * @param startNanos When the phase started, as System.nanoTime()
+     * @param elapsedNanos How long it took
+     */
+    void phaseFinished(String test, Phase phase, String detail, long startNanos, long elapsedNanos);
+}
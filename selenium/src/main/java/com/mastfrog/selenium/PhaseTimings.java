@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Measures the phases of each Selenium test - injector creation, browser
+ * launch, fixtures, the test body, screenshots and so forth - with
+ * System.nanoTime(), and reports them to PhaseListeners and, when the JVM
+ * has Flight Recorder, as events (see SeleniumEvents), so runs can be
+ * profiled with standard tools.
+ *
+ * @author Tim Boudreau
+ */
+public final class PhaseTimings {
+
+    private static final CopyOnWriteArrayList<PhaseListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<String> CURRENT_TEST = new ThreadLocal<>();
+    private static final ThreadLocal<Span> INJECTOR = new ThreadLocal<>();
+    private static final ThreadLocal<Span> TEST_BODY = new ThreadLocal<>();
+    private static final boolean JFR = jfrAvailable();
+
+    static {
+        for (PhaseListener l : ServiceLoader.load(PhaseListener.class)) {
+            LISTENERS.add(l);
+        }
+    }
+
+    private PhaseTimings() {
+        throw new AssertionError();
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, PhaseTimings.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    public static void addListener(PhaseListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(PhaseListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Get the test running on this thread, if any.
+     *
+     * @return A test name or null
+     */
+    static String currentTest() {
+        return CURRENT_TEST.get();
+    }
+
+    /**
+     * Start timing a phase of the test running on this thread.
+     *
+     * @param phase The phase
+     * @param detail What the phase is working on, or null
+     * @return A span, to close when the phase is done
+     */
+    static Span start(Phase phase, String detail) {
+        return new Span(CURRENT_TEST.get(), phase, detail);
+    }
+
+    /**
+     * Start timing a phase on behalf of a test which may not be running on
+     * this thread.
+     *
+     * @param test The test
+     * @param phase The phase
+     * @param detail What the phase is working on, or null
+     * @return A span, to close when the phase is done
+     */
+    static Span start(String test, Phase phase, String detail) {
+        return new Span(test, phase, detail);
+    }
+
+    /**
+     * Called when a test method's injector is about to be created.
+     *
+     * @param test The test
+     */
+    static void testStarting(String test) {
+        endTest();
+        CURRENT_TEST.set(test);
+        INJECTOR.set(start(Phase.CREATE_INJECTOR, null));
+    }
+
+    /**
+     * Called when a test's injector exists.
+     */
+    static void injectorCreated() {
+        close(INJECTOR);
+    }
+
+    /**
+     * Called when a test's fixtures have been created and the test method is
+     * about to run.
+     */
+    static void testBodyStarting() {
+        close(INJECTOR);
+        TEST_BODY.set(start(Phase.TEST_BODY, null));
+    }
+
+    /**
+     * Called when a test has finished.
+     */
+    static void endTest() {
+        close(INJECTOR);
+        close(TEST_BODY);
+        CURRENT_TEST.remove();
+    }
+
+    private static void close(ThreadLocal<Span> span) {
+        Span s = span.get();
+        if (s != null) {
+            span.remove();
+            s.close();
+        }
+    }
+
+    /**
+     * One timed phase; close it when the phase is done.
+     */
+    static final class Span implements AutoCloseable {
+
+        final String test;
+        final Phase phase;
+        final String detail;
+        private final long start;
+        private final Object event;
+        private boolean closed;
+        // What the phase found out, for its event
+        boolean flag;
+        double number;
+
+        Span(String test, Phase phase, String detail) {
+            this.test = test;
+            this.phase = phase;
+            this.detail = detail;
+            // Only touch the event class if it can be loaded
+            this.event = JFR ? SeleniumEvents.started(phase) : null;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * For LAUNCH_DRIVER, whether the browser came from the pool.
+         */
+        void pooled(boolean pooled) {
+            flag = pooled;
+        }
+
+        /**
+         * For CREATE_FIXTURE, whether the fixture was skipped because its
+         * session snapshot was restored.
+         */
+        void restored(boolean restored) {
+            flag = restored;
+        }
+
+        /**
+         * For COMPARE_GOLDEN_IMAGE, the outcome.
+         */
+        void compared(double deviation, boolean diverged) {
+            number = deviation;
+            flag = diverged;
+        }
+
+        /**
+         * For WAIT_CONDITION, the outcome.
+         */
+        void waited(int polls, boolean satisfied) {
+            number = polls;
+            flag = satisfied;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long elapsed = System.nanoTime() - start;
+            if (event != null) {
+                SeleniumEvents.finished(event, this);
+            }
+            for (PhaseListener l : LISTENERS) {
+                try {
+                    l.phaseFinished(test, phase, detail, start, elapsed);
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace(System.err);
+                }
+            }
+        }
+    }
+}
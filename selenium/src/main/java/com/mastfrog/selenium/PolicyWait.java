@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Sleeper;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * A WebDriverWait whose sleeps between polls come from a PollingPolicy.
+ *
+ * @author Tim Boudreau
+ */
+final class PolicyWait extends WebDriverWait {
+
+    private static final Pattern LAMBDA = Pattern.compile("\\$\\$Lambda\\$[0-9]+/(0x)?[0-9a-fA-F]+");
+    private static final Pattern IDENTITY_HASH = Pattern.compile("@[0-9a-fA-F]+");
+    // What RemoteWebElement.toString() says found it, e.g.
+    // "[ChromeDriver: chrome on LINUX (4f1d...)] -> "
+    private static final Pattern DRIVER = Pattern.compile("\\[\\w+: [^\\[\\]]*\\([^()\\[\\]]*\\)\\] -> ");
+    // Element references and session ids
+    private static final Pattern UUID = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern HEX_ID = Pattern.compile("\\b[0-9a-fA-F]{16,}\\b");
+    private final PollingPolicy policy;
+    private final PolicySleeper sleeper;
+
+    PolicyWait(WebDriver driver, long timeoutSeconds, PollingPolicy policy) {
+        this(driver, timeoutSeconds, policy, new PolicySleeper(policy));
+    }
+
+    private PolicyWait(WebDriver driver, long timeoutSeconds, PollingPolicy policy, PolicySleeper sleeper) {
+        super(driver, Clock.systemDefaultZone(), sleeper, timeoutSeconds, DEFAULT_SLEEP_TIMEOUT);
+        this.policy = policy;
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public <V> V until(Function<? super WebDriver, V> isTrue) {
+        String condition = describe(isTrue);
+        long start = System.nanoTime();
+        Wait previous = sleeper.current.get();
+        Wait wait = new Wait(condition, start);
+        sleeper.current.set(wait);
+        boolean satisfied = false;
+        PhaseTimings.Span span = PhaseTimings.start(Phase.WAIT_CONDITION, condition);
+        try {
+            V result = super.until(isTrue);
+            satisfied = true;
+            return result;
+        } finally {
+            sleeper.current.set(previous);
+            policy.onFinished(condition, (System.nanoTime() - start) / 1000000, satisfied);
+            span.waited(wait.attempts, satisfied);
+            span.close();
+        }
+    }
+
+    /**
+     * Describe a condition in a way which is the same from one run to the
+     * next: its class, and its string form with anything belonging to a
+     * particular browser session - the driver and session id elements
+     * found by RemoteWebDriver mention, element references, identity hash
+     * codes and lambda class suffixes - removed, leaving what it waits for
+     * and the locator.
+     *
+     * @param condition A condition
+     * @return A description
+     */
+    static String describe(Object condition) {
+        if (condition == null) {
+            return "null";
+        }
+        return stable(condition.getClass().getName()) + ": " + stable(String.valueOf(condition));
+    }
+
+    private static String stable(String s) {
+        s = LAMBDA.matcher(s).replaceAll("\\$\\$Lambda");
+        s = IDENTITY_HASH.matcher(s).replaceAll("");
+        s = DRIVER.matcher(s).replaceAll("");
+        s = UUID.matcher(s).replaceAll("");
+        return HEX_ID.matcher(s).replaceAll("");
+    }
+
+    private static final class Wait {
+
+        final String condition;
+        final long start;
+        int attempts = 1;
+
+        Wait(String condition, long start) {
+            this.condition = condition;
+            this.start = start;
+        }
+    }
+
+    private static final class PolicySleeper implements Sleeper {
+
+        final ThreadLocal<Wait> current = new ThreadLocal<>();
+        private final PollingPolicy policy;
+
+        PolicySleeper(PollingPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public void sleep(Duration fixedInterval) throws InterruptedException {
+            Wait wait = current.get();
+            if (wait == null) {
+                // Not called from our until()
+                Thread.sleep(fixedInterval.toMillis());
+                return;
+            }
+            long millis = policy.nextPollMillis(wait.condition, wait.attempts++,
+                    (System.nanoTime() - wait.start) / 1000000);
+            if (millis > 0) {
+                Thread.sleep(millis);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Decides how long injected WebDriverWaits sleep between checks of a
+ * condition. The default backs off exponentially, with jitter, and learns
+ * how long each condition usually takes, so that quick conditions are not
+ * kept waiting and slow ones do not flood the driver with requests. Bind a
+ * different implementation in a module to replace it.
+ *
+ * @author Tim Boudreau
+ */
+@ImplementedBy(AdaptivePollingPolicy.class)
+public interface PollingPolicy {
+
+    /**
+     * Get the time to sleep before checking a condition again.
+     *
+     * @param condition A description of the condition, stable across runs
+     * @param attempt The number of checks made so far, starting at 1
+     * @param elapsedMillis The time since the wait began
+     * @return A number of milliseconds
+     */
+    long nextPollMillis(String condition, int attempt, long elapsedMillis);
+
+    /**
+     * Called when a wait ends.
+     *
+     * @param condition A description of the condition
+     * @param elapsedMillis How long the wait took
+     * @param satisfied false if the wait timed out
+     */
+    void onFinished(String condition, long elapsedMillis, boolean satisfied);
+}
@@ -31,7 +31,11 @@ import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import javax.imageio.ImageIO;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
 
 /**
  * Takes a screenshot of the desktop, whatever that means
@@ -41,11 +45,45 @@ import javax.imageio.ImageIO;
 public final class Screenshot {
 
     private final BufferedImage capture;
+    private final byte[] png;
 
     public Screenshot() throws AWTException {
-        Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
-        BufferedImage capture = new Robot().createScreenCapture(screenRect);
-        this.capture = capture;
+        this.capture = captureDesktop();
+        this.png = null;
+    }
+
+    /**
+     * Take a screenshot of just the browser window belonging to a driver, if
+     * it is capable of that, falling back to capturing the desktop if not.
+     * When several browsers are open at once, this is the only way to get an
+     * image of the one a particular test was using.
+     *
+     * @param driver A web driver
+     * @throws AWTException If the desktop must be captured and cannot be
+     */
+    public Screenshot(WebDriver driver) throws AWTException {
+        if (driver instanceof TakesScreenshot) {
+            PhaseTimings.Span span = PhaseTimings.start(Phase.CAPTURE_SCREENSHOT, "browser");
+            try {
+                this.png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            } finally {
+                span.close();
+            }
+            this.capture = null;
+        } else {
+            this.capture = captureDesktop();
+            this.png = null;
+        }
+    }
+
+    private static BufferedImage captureDesktop() throws AWTException {
+        PhaseTimings.Span span = PhaseTimings.start(Phase.CAPTURE_SCREENSHOT, "desktop");
+        try {
+            Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
+            return new Robot().createScreenCapture(screenRect);
+        } finally {
+            span.close();
+        }
     }
 
     private static void log(CharSequence what) {
@@ -55,9 +93,29 @@ public final class Screenshot {
     }
 
     public void save(File f) throws IOException {
-        notNull("capture", capture);
-        ImageIO.write(capture, "png", notNull("file", f));
+        notNull("file", f);
+        if (png != null) {
+            Files.write(f.toPath(), png);
+        } else {
+            ImageIO.write(notNull("capture", capture), "png", f);
+        }
         log("Saved screenshot to "
                 + f.getAbsoluteFile().getCanonicalPath());
     }
+
+    /**
+     * Save the screenshot on a background thread, so the calling test does
+     * not wait for PNG encoding. Pending writes are completed when the test
+     * class finishes running, or before the JVM exits.
+     *
+     * @param f The file to write
+     */
+    public void saveInBackground(File f) {
+        notNull("file", f);
+        if (png != null) {
+            ScreenshotWriter.write(png, f);
+        } else {
+            ScreenshotWriter.write(notNull("capture", capture), f);
+        }
+    }
 }
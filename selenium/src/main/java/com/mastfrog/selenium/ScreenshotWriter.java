@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Encodes and writes screenshots on background threads, so a failing test only
+ * pays for copying pixels, not for PNG compression. The queue is bounded; if
+ * the encoder falls behind, the thread submitting a screenshot encodes it
+ * itself. SeleniumRunner calls flush() when a test class finishes, and a
+ * shutdown hook does so before the JVM exits, so no image is lost.
+ * <p>
+ * The queue size can be set with the system property
+ * <code>selenium.screenshot.queue.size</code> (default 8), and the number of
+ * encoder threads with <code>selenium.screenshot.threads</code> (default 2).
+ *
+ * @author Tim Boudreau
+ */
+final class ScreenshotWriter {
+
+    private static final ThreadPoolExecutor ENCODER;
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final Object LOCK = new Object();
+    private static int pending;
+
+    static {
+        int threads = Math.max(1, Integer.getInteger("selenium.screenshot.threads", 2));
+        int queueSize = Math.max(1, Integer.getInteger("selenium.screenshot.queue.size", 8));
+        ENCODER = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "screenshot-encoder-" + THREAD_IDS.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        ENCODER.allowCoreThreadTimeOut(true);
+        Runtime.getRuntime().addShutdownHook(new Thread("screenshot-flush") {
+            @Override
+            public void run() {
+                flush(30, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private ScreenshotWriter() {
+        throw new AssertionError();
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    /**
+     * Copy an image's pixels, for images the caller may go on to modify.
+     *
+     * @param image An image
+     * @return A copy
+     */
+    static BufferedImage copyOf(BufferedImage image) {
+        ColorModel cm = image.getColorModel();
+        return new BufferedImage(cm, image.copyData(null), cm.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Encode an image as PNG and write it in the background. The image must
+     * not be modified afterwards.
+     *
+     * @param image An image
+     * @param dest The file to write
+     */
+    static void write(final BufferedImage image, final File dest) {
+        submit(new Write(dest) {
+            @Override
+            void write() throws IOException {
+                ImageIO.write(image, "png", dest);
+            }
+        });
+    }
+
+    /**
+     * Write already-encoded PNG bytes in the background.
+     *
+     * @param png The bytes
+     * @param dest The file to write
+     */
+    static void write(final byte[] png, final File dest) {
+        submit(new Write(dest) {
+            @Override
+            void write() throws IOException {
+                Files.write(dest.toPath(), png);
+            }
+        });
+    }
+
+    private static void submit(Write write) {
+        synchronized (LOCK) {
+            pending++;
+        }
+        ENCODER.execute(write);
+    }
+
+    /**
+     * Block until every screenshot submitted so far has been written.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The time unit
+     * @return true if everything was written
+     */
+    static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (LOCK) {
+            while (pending > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    System.err.println(pending + " screenshots not written after " + timeout + " " + unit);
+                    return false;
+                }
+                try {
+                    LOCK.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private abstract static class Write implements Runnable {
+
+        private final File dest;
+        private final String test;
+
+        Write(File dest) {
+            this.dest = dest;
+            // Encoding happens on another thread, but belongs to this test
+            this.test = PhaseTimings.currentTest();
+        }
+
+        abstract void write() throws IOException;
+
+        @Override
+        public final void run() {
+            PhaseTimings.Span span = PhaseTimings.start(test, Phase.ENCODE_SCREENSHOT, dest.getName());
+            try {
+                write();
+                log("Saved screenshot to " + dest.getAbsolutePath());
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Could not write screenshot " + dest);
+                ex.printStackTrace(System.err);
+            } finally {
+                span.close();
+                synchronized (LOCK) {
+                    pending--;
+                    LOCK.notifyAll();
+                }
+            }
+        }
+    }
+}
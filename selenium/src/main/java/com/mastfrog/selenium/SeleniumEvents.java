@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for test phases. Phases with something more to say
+ * than how long they took have their own event types; the rest are
+ * <code>com.mastfrog.selenium.Phase</code> events. Only loaded by
+ * PhaseTimings when the JVM has Flight Recorder.
+ *
+ * @author Tim Boudreau
+ */
+final class SeleniumEvents {
+
+    private SeleniumEvents() {
+        throw new AssertionError();
+    }
+
+    static Object started(Phase phase) {
+        SeleniumEvent result;
+        switch (phase) {
+            case LAUNCH_DRIVER:
+                result = new DriverLaunch();
+                break;
+            case CREATE_FIXTURE:
+                result = new FixtureCreate();
+                break;
+            case CAPTURE_SCREENSHOT:
+                result = new ScreenshotCapture();
+                break;
+            case COMPARE_GOLDEN_IMAGE:
+                result = new ImageCompare();
+                break;
+            case WAIT_CONDITION:
+                result = new WaitCondition();
+                break;
+            default:
+                result = new PhaseEvent();
+        }
+        if (!result.isEnabled()) {
+            return null;
+        }
+        result.begin();
+        return result;
+    }
+
+    static void finished(Object event, PhaseTimings.Span span) {
+        SeleniumEvent e = (SeleniumEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.test = span.test;
+            e.populate(span);
+            e.commit();
+        }
+    }
+
+    @Category({"Selenium"})
+    abstract static class SeleniumEvent extends Event {
+
+        @Label("Test")
+        String test;
+
+        abstract void populate(PhaseTimings.Span span);
+    }
+
+    @Name("com.mastfrog.selenium.Phase")
+    @Label("Selenium Test Phase")
+    @Description("A phase of running a Selenium test")
+    static final class PhaseEvent extends SeleniumEvent {
+
+        @Label("Phase")
+        String phase;
+        @Label("Detail")
+        String detail;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            phase = span.phase.name();
+            detail = span.detail;
+        }
+    }
+
+    @Name("com.mastfrog.selenium.DriverLaunch")
+    @Label("Driver Launch")
+    @Description("Launching a browser, or leasing one from the pool")
+    static final class DriverLaunch extends SeleniumEvent {
+
+        @Label("Browser")
+        String browser;
+        @Label("Pooled")
+        boolean pooled;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            browser = span.detail;
+            pooled = span.flag;
+        }
+    }
+
+    @Name("com.mastfrog.selenium.FixtureCreate")
+    @Label("Fixture Create")
+    @Description("Constructing a test fixture")
+    static final class FixtureCreate extends SeleniumEvent {
+
+        @Label("Fixture Type")
+        String fixtureType;
+        @Label("Restored From Snapshot")
+        boolean restored;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            fixtureType = span.detail;
+            restored = span.flag;
+        }
+    }
+
+    @Name("com.mastfrog.selenium.ScreenshotCapture")
+    @Label("Screenshot Capture")
+    @Description("Capturing a screenshot from a browser or the desktop")
+    static final class ScreenshotCapture extends SeleniumEvent {
+
+        @Label("Source")
+        String source;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            source = span.detail;
+        }
+    }
+
+    @Name("com.mastfrog.selenium.ImageCompare")
+    @Label("Image Compare")
+    @Description("Comparing a screenshot with its golden image")
+    static final class ImageCompare extends SeleniumEvent {
+
+        @Label("Golden Image")
+        String golden;
+        @Label("Deviation")
+        double deviation;
+        @Label("Diverged")
+        boolean diverged;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            golden = span.detail;
+            deviation = span.number;
+            diverged = span.flag;
+        }
+    }
+
+    @Name("com.mastfrog.selenium.WaitCondition")
+    @Label("Wait Condition")
+    @Description("Waiting for a condition in the browser")
+    static final class WaitCondition extends SeleniumEvent {
+
+        @Label("Condition")
+        String condition;
+        @Label("Polls")
+        int polls;
+        @Label("Satisfied")
+        boolean satisfied;
+
+        @Override
+        void populate(PhaseTimings.Span span) {
+            condition = span.detail;
+            polls = (int) span.number;
+            satisfied = span.flag;
+        }
+    }
+}
@@ -26,39 +26,45 @@ package com.mastfrog.selenium;
 import com.assertthat.selenium_shutterbug.core.Shutterbug;
 import com.assertthat.selenium_shutterbug.core.Snapshot;
 import com.google.inject.AbstractModule;
-import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.Provider;
 import com.google.inject.name.Names;
 import com.mastfrog.giulius.Dependencies;
 import com.mastfrog.giulius.DependenciesBuilder;
 import com.mastfrog.giulius.tests.GuiceRunner;
+import com.mastfrog.selenium.index.PageModelIndex;
 import com.mastfrog.settings.Settings;
+import com.mastfrog.settings.SettingsBuilder;
 import com.mastfrog.util.preconditions.Exceptions;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.DecimalFormat;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
 import org.junit.runners.model.TestClass;
+import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 import org.openqa.selenium.support.FindBy.FindByBuilder;
-import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
@@ -93,10 +99,24 @@ import org.openqa.selenium.support.ui.WebDriverWait;
  * <li>browser - a name such as "firefox", "chrome" or "ie"</li>
  * <li>webdriver.implicitlyWaitSeconds - setting for how long WebDriver
  * waits</li>
+ * <li>webdriver.scriptTimeoutSeconds - the async script timeout to give the
+ * driver (default 30); in-page waits change it while they run and put this
+ * back, so set it here rather than through the driver</li>
  * <li>webdriver.maximum - boolean for whether to maximize the browser window on
  * test start</li>
+ * <li>webdriver.pool.size - if greater than zero, browsers are leased from a
+ * process-wide pool of that many pre-launched browsers, and reset and returned
+ * to it after each test, rather than being launched and quit per-test</li>
+ * <li>selenium.parallel - number of test methods of a class to run
+ * concurrently, each with its own injector and browser (read from the default
+ * settings locations, system properties and a properties file named after the
+ * test class, since it is needed before any test's settings are loaded)</li>
  * </ul>
  *
+ * How long each phase of each test takes (injector creation, browser launch,
+ * fixtures, the test body, screenshots and comparisons) is reported to any
+ * PhaseListeners, and as Flight Recorder events - see PhaseTimings.
+ * <p/>
  * Note that the test harness we are extending has the ability to run a single
  * test multiple times with different configurations. This could be used to test
  * in multiple browsers.
@@ -114,9 +134,25 @@ public final class SeleniumRunner extends GuiceRunner {
     public static final String CREDENTIALS_SETTING = "credentials";
     public static final String BASE_URL_NAME = "baseUrl";
     public static final String NO_BASE_URL_SETTING = "no.base.url";
+    public static final String PARALLEL_SETTING = "selenium.parallel";
+    /**
+     * Prefix of the system property, e.g.
+     * <code>test.screenshots.com.foo.FooTest#testBar</code>, which lists
+     * (comma-separated) the screenshots a test saved, so that a reporter
+     * (such as TestMain's) can link to them, as video.file does for video.
+     */
+    public static final String SCREENSHOTS_PROPERTY_PREFIX = "test.screenshots.";
+    private static final ThreadLocal<Boolean> PARALLEL_WORKER = new ThreadLocal<>();
+    private static final GoldenImageCache GOLDEN_IMAGES = GoldenImageCache.create();
+    private final int parallelism;
+    private volatile Set<Class<?>> testClassPageModels;
 
     public SeleniumRunner(Class<?> testClass) throws InitializationError {
         super(testClass);
+        parallelism = parallelism(testClass);
+        if (parallelism > 1) {
+            setScheduler(new ParallelScheduler(testClass, parallelism));
+        }
     }
 
     private static void log(CharSequence what) {
@@ -149,30 +185,148 @@ public final class SeleniumRunner extends GuiceRunner {
 
     @Override
     public void run(RunNotifier notifier) {
-        if (super.getTestClass().getJavaClass().getAnnotation(TakeScreenshotOnFailure.class) != null) {
-            notifier.addFirstListener(new RunListener() {
+        final Class<?> testClassType = super.getTestClass().getJavaClass();
+        final boolean screenshotOnFailure = testClassType.getAnnotation(TakeScreenshotOnFailure.class) != null;
+        RunListener listener = new RunListener() {
+            @Override
+            public void testFailure(Failure failure) throws Exception {
+                if (screenshotOnFailure && testClassType.getName().equals(failure.getDescription().getClassName())) {
+                    saveFailureScreenshot(failure);
+                }
+                super.testFailure(failure);
+            }
+
+            @Override
+            public void testFinished(Description description) throws Exception {
+                // Failures have been reported by now, so the driver can go
+                PhaseTimings.endTest();
+                WebDriverModule.closeFinishedDriver();
+                super.testFinished(description);
+            }
+        };
+        notifier.addFirstListener(listener);
+        try {
+            super.run(notifier);
+        } finally {
+            notifier.removeListener(listener);
+            // Make sure every screenshot this class took is on disk before
+            // whatever runs next looks for it
+            ScreenshotWriter.flush(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void saveFailureScreenshot(Failure failure) throws Exception {
+        Screenshot screenshot;
+        if (parallelism > 1) {
+            // The desktop may show any of several browsers, so capture the
+            // one the failed test was using, if it can do that
+            WebDriver driver = WebDriverModule.finishedDriver();
+            if (!(driver instanceof TakesScreenshot)) {
+                return;
+            }
+            screenshot = new Screenshot(driver);
+        } else {
+            screenshot = new Screenshot();
+        }
+        File dir = screenshotDestFolder();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        int ix = failure.getDescription().getClassName().lastIndexOf('.');
+        System.out.println("DESC: " + failure.getDescription().getClassName() + " method " + failure.getDescription().getMethodName());
+
+        String filename = "FAILED-" + failure.getDescription().getClassName().substring(ix + 1)
+                + "-" + failure.getDescription().getMethodName()
+                // + "-" + TimeUtil.toSortableStringFormat(ZonedDateTime.now())
+                + ".png";
+        File f = new File(dir, filename);
+        screenshot.saveInBackground(f);
+        System.out.println("::FAILURE_SCREENSHOT:" + f.getAbsolutePath());
+        publishScreenshot(failure.getDescription().getClassName(), failure.getDescription().getMethodName(), f);
+    }
+
+    private static void publishScreenshot(String className, String methodName, File file) {
+        String key = SCREENSHOTS_PROPERTY_PREFIX + className + "#" + methodName;
+        synchronized (SeleniumRunner.class) {
+            String old = System.getProperty(key);
+            String path = file.getAbsolutePath();
+            System.setProperty(key, old == null ? path : old + "," + path);
+        }
+    }
+
+    static boolean isParallelWorker() {
+        return Boolean.TRUE.equals(PARALLEL_WORKER.get());
+    }
+
+    private static int parallelism(Class<?> testClass) throws InitializationError {
+        SettingsBuilder sb = new SettingsBuilder().addDefaultLocations();
+        try (InputStream in = testClass.getResourceAsStream(testClass.getSimpleName() + ".properties")) {
+            if (in != null) {
+                sb.add(in);
+            }
+            return Math.max(1, sb.addSystemProperties().build().getInt(PARALLEL_SETTING, 1));
+        } catch (IOException ex) {
+            throw new InitializationError(ex);
+        }
+    }
+
+    /**
+     * Runs test methods on a bounded pool of threads; each method still gets
+     * its own injector, and with it its own WebDriver and WebDriverWait.
+     */
+    private static final class ParallelScheduler implements RunnerScheduler, ThreadFactory {
+
+        private final String name;
+        private final int threads;
+        private final AtomicInteger count = new AtomicInteger();
+        private ExecutorService executor;
+
+        ParallelScheduler(Class<?> testClass, int threads) {
+            this.name = testClass.getSimpleName();
+            this.threads = threads;
+        }
+
+        @Override
+        public synchronized void schedule(Runnable childStatement) {
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool(threads, this);
+            }
+            executor.submit(childStatement);
+        }
+
+        @Override
+        public void finished() {
+            ExecutorService exe;
+            synchronized (this) {
+                exe = executor;
+                executor = null;
+            }
+            if (exe == null) {
+                return;
+            }
+            exe.shutdown();
+            try {
+                while (!exe.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log("Still waiting for parallel tests in " + name);
+                }
+            } catch (InterruptedException ex) {
+                exe.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(new Runnable() {
                 @Override
-                public void testFailure(Failure failure) throws Exception {
-                    Screenshot screenshot = new Screenshot();
-                    File dir = screenshotDestFolder();
-                    if (!dir.exists()) {
-                        dir.mkdirs();
-                    }
-                    int ix = failure.getDescription().getClassName().lastIndexOf('.');
-                    System.out.println("DESC: " + failure.getDescription().getClassName() + " method " + failure.getDescription().getMethodName());
-
-                    String filename = "FAILED-" + failure.getDescription().getClassName().substring(ix + 1)
-                            + "-" + failure.getDescription().getMethodName()
-                            // + "-" + TimeUtil.toSortableStringFormat(ZonedDateTime.now())
-                            + ".png";
-                    File f = new File(dir, filename);
-                    screenshot.save(f);
-                    System.out.println("::FAILURE_SCREENSHOT:" + f.getAbsolutePath());
-                    super.testFailure(failure);
+                public void run() {
+                    PARALLEL_WORKER.set(true);
+                    r.run();
                 }
-            });
+            }, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
         }
-        super.run(notifier);
     }
 
     /**
@@ -187,6 +341,8 @@ public final class SeleniumRunner extends GuiceRunner {
      */
     @Override
     protected void onBeforeCreateDependencies(final TestClass testClass, final FrameworkMethod method, final Settings settings, DependenciesBuilder builder) {
+        PhaseTimings.testStarting(testClass.getName() + "#" + method.getName());
+        WebDriverModule.deferDriverShutdown();
         builder.add(new WebDriverModule());
         final Set<Class<?>> seen = new HashSet<Class<?>>();
         builder.add(new AbstractModule() {
@@ -197,37 +353,20 @@ public final class SeleniumRunner extends GuiceRunner {
                 // need to to instead be created by PageFactory
                 Class<?>[] params = method.getMethod().getParameterTypes();
                 for (Class<?> type : params) {
-                    if (hasSeleniumAnnotations(type)) {
+                    PageModelIndex index = PageModelIndex.forType(type);
+                    if (index.isPageModel(type)) {
                         createWithSelenium(type);
                     }
                     // Allow one level below injected types to be handled by selenium -
-                    // if an object is being injected into a field, make sure we
-                    // don't need selenium to create the object
-                    for (Field field : type.getDeclaredFields()) {
-                        field.setAccessible(true);
-                        if (field.getAnnotation(Inject.class) != null && hasSeleniumAnnotations(field.getType())) {
-                            createWithSelenium(field.getType());
-                        }
-                    }
-                    // Scan the constructors
-                    for (Constructor<?> c : type.getDeclaredConstructors()) {
-                        c.setAccessible(true);
-                        if (c.getAnnotation(Inject.class) != null) {
-                            for (Class<?> constructorParamType : c.getParameterTypes()) {
-                                if (hasSeleniumAnnotations(constructorParamType)) {
-                                    createWithSelenium(constructorParamType);
-                                }
-                            }
-                        }
+                    // if an object is being injected into a field or constructor, make
+                    // sure we don't need selenium to create the object
+                    for (Class<?> dependency : index.pageModelDependencies(type)) {
+                        createWithSelenium(dependency);
                     }
                 }
                 // Also scan fields on the test class
-                Class<?> testClassType = testClass.getJavaClass();
-                for (Field f : testClassType.getDeclaredFields()) {
-                    f.setAccessible(true);
-                    if (hasSeleniumAnnotations(f.getType())) {
-                        createWithSelenium(f.getType());
-                    }
+                for (Class<?> type : testClassPageModels(testClass)) {
+                    createWithSelenium(type);
                 }
                 // Bind the JUnit classes - we will need them to, for instance,
                 // create a logger with a name that matches the executing test
@@ -305,8 +444,15 @@ public final class SeleniumRunner extends GuiceRunner {
                     @Override
                     public T get() {
                         log("Constructing instance of " + type.getName());
+                        WebDriver driver = driverProvider.get();
+                        T result;
                         // Hmm, should we reverse it and let Guice instantiate it?
-                        T result = PageFactory.initElements(driverProvider.get(), type);
+                        PhaseTimings.Span span = PhaseTimings.start(Phase.INITIALIZE_PAGE_MODEL, type.getName());
+                        try {
+                            result = PageModelIndex.forType(type).instantiate(driver, type);
+                        } finally {
+                            span.close();
+                        }
                         // Allow Guice injection into these as well
                         injector.get().getInjector().getMembersInjector(type).injectMembers(result);
                         return result;
@@ -317,37 +463,24 @@ public final class SeleniumRunner extends GuiceRunner {
         });
     }
 
-    private static boolean hasSeleniumAnnotations(Class<?> type) {
-        while (type != null && type != Object.class) {
-            for (Annotation anno : type.getAnnotations()) {
-                if (isSeleniumAnnotation(anno)) {
-                    return true;
+    private Set<Class<?>> testClassPageModels(TestClass testClass) {
+        // The test class is the same for every method, so only look once
+        Set<Class<?>> result = testClassPageModels;
+        if (result == null) {
+            result = new LinkedHashSet<>();
+            for (Field f : testClass.getJavaClass().getDeclaredFields()) {
+                if (PageModelIndex.forType(f.getType()).isPageModel(f.getType())) {
+                    result.add(f.getType());
                 }
             }
-            for (Field field : type.getDeclaredFields()) {
-                field.setAccessible(true);
-                for (Annotation anno : field.getAnnotations()) {
-                    if (isSeleniumAnnotation(anno)) {
-                        return true;
-                    }
-                }
-            }
-            type = type.getSuperclass();
+            testClassPageModels = result;
         }
-        return false;
-    }
-
-    private static boolean isSeleniumAnnotation(Annotation anno) {
-        Class<?> annotationType = anno.annotationType();
-        String simpleName = annotationType.getSimpleName();
-        String className = annotationType.getName();
-        int len = simpleName.length() + 1;
-        String packageName = className.substring(0, className.length() - len);
-        return "org.openqa.selenium.support".equals(packageName);
+        return result;
     }
 
     @Override
     protected void onAfterCreateDependencies(TestClass testClass, FrameworkMethod method, Settings settings, Dependencies dependencies) {
+        PhaseTimings.injectorCreated();
         boolean screenshots = settings.getBoolean("selenium.fixture.screenshots", true);
         // Pre-run any constructors that might do things like get through a
         // login procedure
@@ -363,15 +496,28 @@ public final class SeleniumRunner extends GuiceRunner {
                 createFixture(testClass, method, type, dependencies, screenshots, settings);
             }
         }
+        PhaseTimings.testBodyStarting();
     }
 
     private <T> T createFixture(TestClass tc, FrameworkMethod method, Class<T> type, Dependencies injector, boolean screenshotsEnabled, Settings settings) {
+        boolean snapshot = type.getAnnotation(SnapshotSession.class) != null;
+        T result;
+        try (PhaseTimings.Span span = PhaseTimings.start(Phase.CREATE_FIXTURE, type.getName())) {
+            if (snapshot && SessionSnapshot.restore(type, settings, injector.getInstance(WebDriver.class))) {
+                // The browser is where the fixture would have left it
+                span.restored(true);
+                return null;
+            }
+            result = injector.getInstance(type);
+            if (snapshot) {
+                SessionSnapshot.capture(type, settings, injector.getInstance(WebDriver.class));
+            }
+        }
         boolean takeScreenshot = screenshotsEnabled;
         ScreenCapture cap = null;
         if (takeScreenshot) {
             cap = type.getAnnotation(ScreenCapture.class);
         }
-        T result = injector.getInstance(type);
         if (cap != null) {
             try {
                 takePostFixtureCreationScreenshotAndCompare(injector, result, settings, type, cap, tc, method);
@@ -410,7 +556,7 @@ public final class SeleniumRunner extends GuiceRunner {
         }
         if (!cap.waitForVisible().id().equals("body")) {
             WebElement el = driver.findElement(new FindByBuilder().buildIt(cap.waitForVisible(), null));
-            WebDriverWait wait = new WebDriverWait(driver, 5, 10);
+            WebDriverWait wait = new PolicyWait(driver, 5, injector.getInstance(PollingPolicy.class));
             try {
                 wait.ignoring(TimeoutException.class).until(ExpectedConditions.visibilityOf(el));
             } catch (Exception e) {
@@ -419,17 +565,24 @@ public final class SeleniumRunner extends GuiceRunner {
         }
         boolean wholePage = cap.of().id().equals("body");
         Snapshot shot;
-        if (wholePage) {
-            shot = Shutterbug.shootPage(driver);
-        } else {
-            WebElement el = driver.findElement(new FindByBuilder().buildIt(cap.of(), null));
-            shot = Shutterbug.shootElement(driver, el);
+        PhaseTimings.Span capture = PhaseTimings.start(Phase.CAPTURE_SCREENSHOT, wholePage ? "page" : "element");
+        try {
+            if (wholePage) {
+                shot = Shutterbug.shootPage(driver);
+            } else {
+                WebElement el = driver.findElement(new FindByBuilder().buildIt(cap.of(), null));
+                shot = Shutterbug.shootElement(driver, el);
+            }
+        } finally {
+            capture.close();
         }
         String path = new File(fld, filename).getPath();
         if (useTimestampedFilenames) {
             shot.save(path);
         } else {
-            ImageIO.write(shot.getImage(), "png", new File(path));
+            // Copy, since the comparison below is handed the same image
+            ScreenshotWriter.write(ScreenshotWriter.copyOf(shot.getImage()), new File(path));
+            publishScreenshot(tc.getJavaClass().getName(), method.getName(), new File(path));
         }
         System.err.println("Saved screen shot for " + fnbase + " to " + path);
         String masterFolder = settings.getString("screenshots.master", null);
@@ -438,10 +591,15 @@ public final class SeleniumRunner extends GuiceRunner {
             if (gdir.exists()) {
                 File orig = new File(gdir, filename);
                 if (orig.exists()) {
-                    BufferedImage origImage = ImageIO.read(orig);
                     String diffPath = new File(fld, fnbase + "-diff.png").getPath();
-                    boolean equal = shot.equalsWithDiff(origImage, diffPath, cap.maxDeviation());
-                    if (!equal) {
+                    ImageComparator.Result comparison;
+                    try (PhaseTimings.Span span = PhaseTimings.start(Phase.COMPARE_GOLDEN_IMAGE, orig.getName())) {
+                        comparison = GOLDEN_IMAGES.compare(shot.getImage(), orig, cap.maxDeviation());
+                        span.compared(comparison.deviation, comparison.diverged);
+                    }
+                    if (comparison.diverged) {
+                        ImageComparator.writeDiff(shot.getImage(), GOLDEN_IMAGES.image(orig), new File(diffPath));
+                        publishScreenshot(tc.getJavaClass().getName(), method.getName(), new File(diffPath));
                         DecimalFormat df = new DecimalFormat("#000.00");
                         double dev = cap.maxDeviation() * 100;
                         String msg = "Screen shots diverged more than " + df.format(dev) + " after " + fnbase + ". "
@@ -68,11 +68,14 @@ public abstract class SeleniumTest {
     private void takeScreenShot() {
         if (shouldTakeScreenshot()) {
             try {
-                Screenshot sh = new Screenshot();
+                // With several browsers on screen, only the driver knows
+                // which window is ours
+                Screenshot sh = SeleniumRunner.isParallelWorker()
+                        ? new Screenshot(utils.driver()) : new Screenshot();
                 String fileName = testClass.getJavaClass().getSimpleName()
                         + '.' + method.getName() + ".png";
                 File f = new File(fileName);
-                sh.save(f);
+                sh.saveInBackground(f);
             } catch (Exception ex) {
                 // print here - our rethrow of the AssertionError in the finally
                 // block will swallow anything thrown otherwise
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+
+/**
+ * Runs a RemoteWebDriver's commands - its own, its elements', alerts' and
+ * so on, which all go through its CommandExecutor - under a lock, so that
+ * something else can hold the lock to send several commands without the
+ * test's commands landing in between. WebDriver is not thread-safe, and has
+ * no other place to hook in which sees every command. Commands are also
+ * counted, so whoever holds the lock can tell whether anything else has been
+ * sent since it last did.
+ *
+ * @author Tim Boudreau
+ */
+final class SerializedCommands implements CommandExecutor {
+
+    private final CommandExecutor delegate;
+    // Fair, so a capture waiting its turn is not starved by a busy test
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final AtomicLong commands = new AtomicLong();
+
+    private SerializedCommands(CommandExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Route a driver's commands through a lock, if that has not been done
+     * already (pooled drivers outlive the test that did it).
+     *
+     * @param driver A driver
+     * @return The driver's SerializedCommands, or null if the driver is not
+     * a RemoteWebDriver or its executor cannot be replaced
+     */
+    static SerializedCommands install(WebDriver driver) {
+        if (!(driver instanceof RemoteWebDriver)) {
+            return null;
+        }
+        RemoteWebDriver remote = (RemoteWebDriver) driver;
+        synchronized (remote) {
+            CommandExecutor executor = remote.getCommandExecutor();
+            if (executor instanceof SerializedCommands) {
+                return (SerializedCommands) executor;
+            }
+            if (executor == null) {
+                return null;
+            }
+            try {
+                Method setter = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+                setter.setAccessible(true);
+                SerializedCommands result = new SerializedCommands(executor);
+                setter.invoke(remote, result);
+                return result;
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                System.err.println("Could not serialize commands to " + driver.getClass().getName() + ": " + ex);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The lock every command is sent under.
+     *
+     * @return A lock
+     */
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    /**
+     * The number of commands sent so far.
+     *
+     * @return A count
+     */
+    long commands() {
+        return commands.get();
+    }
+
+    @Override
+    public Response execute(Command command) throws IOException {
+        lock.lock();
+        try {
+            commands.incrementAndGet();
+            return delegate.execute(command);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.mastfrog.settings.Settings;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Browser state captured after a &#064;SnapshotSession fixture ran, which can
+ * be replayed into another WebDriver.
+ *
+ * @author Tim Boudreau
+ */
+final class SessionSnapshot {
+
+    private static final Map<String, SessionSnapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, String> CLASS_DIGESTS = new ConcurrentHashMap<>();
+    // The settings which decide which browser is used and where it goes
+    private static final String[] SESSION_SETTINGS = {"browser", "_" + SeleniumRunner.BASE_URL_NAME,
+        SeleniumRunner.NO_BASE_URL_SETTING, "tomcat_hostname", "host", "port", "path"};
+    private static final String READ_STORAGE
+            = "var s = window[arguments[0]], r = {};"
+            + "for (var i = 0; i < s.length; i++) { var k = s.key(i); r[k] = s.getItem(k); }"
+            + "return r;";
+    private static final String WRITE_STORAGE
+            = "var s = window[arguments[0]], r = arguments[1]; s.clear();"
+            + "for (var k in r) { s.setItem(k, r[k]); }";
+
+    private final String url;
+    private final Set<Cookie> cookies;
+    private final Map<String, String> localStorage;
+    private final Map<String, String> sessionStorage;
+
+    private SessionSnapshot(String url, Set<Cookie> cookies, Map<String, String> localStorage, Map<String, String> sessionStorage) {
+        this.url = url;
+        this.cookies = cookies;
+        this.localStorage = localStorage;
+        this.sessionStorage = sessionStorage;
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    /**
+     * Replay a previously captured snapshot for a fixture, if there is one.
+     *
+     * @param fixture The fixture type
+     * @param settings The test's settings
+     * @param driver The driver to restore into
+     * @return true if the fixture need not be created
+     */
+    static boolean restore(Class<?> fixture, Settings settings, WebDriver driver) {
+        String key = key(fixture, settings);
+        SessionSnapshot snapshot = SNAPSHOTS.get(key);
+        if (snapshot == null) {
+            return false;
+        }
+        try {
+            snapshot.restoreInto(driver);
+            log("Restored session snapshot for " + fixture.getName() + " at " + snapshot.url);
+            return true;
+        } catch (WebDriverException ex) {
+            // Probably expired or rejected cookies - run the fixture and
+            // take a new snapshot
+            log("Could not restore session snapshot for " + fixture.getName() + ": " + ex);
+            SNAPSHOTS.remove(key, snapshot);
+            return false;
+        }
+    }
+
+    /**
+     * Capture the browser's state after a fixture has been created.
+     *
+     * @param fixture The fixture type
+     * @param settings The test's settings
+     * @param driver The driver the fixture used
+     */
+    static void capture(Class<?> fixture, Settings settings, WebDriver driver) {
+        try {
+            String url = driver.getCurrentUrl();
+            if (url == null || !(url.startsWith("http:") || url.startsWith("https:"))) {
+                // Cookies cannot be set on about:blank, data: URLs and such
+                return;
+            }
+            SessionSnapshot snapshot = new SessionSnapshot(url,
+                    Collections.unmodifiableSet(new LinkedHashSet<>(driver.manage().getCookies())),
+                    readStorage(driver, "localStorage"), readStorage(driver, "sessionStorage"));
+            SNAPSHOTS.put(key(fixture, settings), snapshot);
+            log("Captured session snapshot for " + fixture.getName() + " at " + url);
+        } catch (WebDriverException ex) {
+            log("Could not capture session snapshot for " + fixture.getName() + ": " + ex);
+        }
+    }
+
+    private void restoreInto(WebDriver driver) {
+        // Cookies can only be set for the domain of the current page
+        driver.get(url);
+        driver.manage().deleteAllCookies();
+        for (Cookie cookie : cookies) {
+            driver.manage().addCookie(cookie);
+        }
+        writeStorage(driver, "localStorage", localStorage);
+        writeStorage(driver, "sessionStorage", sessionStorage);
+        // Reload so the page is rendered as the fixture left it
+        driver.get(url);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> readStorage(WebDriver driver, String which) {
+        if (!(driver instanceof JavascriptExecutor)) {
+            return Collections.emptyMap();
+        }
+        try {
+            Object result = ((JavascriptExecutor) driver).executeScript(READ_STORAGE, which);
+            if (!(result instanceof Map<?, ?>)) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) result).entrySet()) {
+                copy.put(String.valueOf(e.getKey()), e.getValue() == null ? null : String.valueOf(e.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        } catch (WebDriverException | UnsupportedOperationException ex) {
+            // No javascript (HtmlUnitDriver throws UnsupportedOperationException
+            // for that), or storage disabled
+            log("Could not read " + which + ": " + ex);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static void writeStorage(WebDriver driver, String which, Map<String, String> values) {
+        if (values.isEmpty() || !(driver instanceof JavascriptExecutor)) {
+            return;
+        }
+        ((JavascriptExecutor) driver).executeScript(WRITE_STORAGE, which, values);
+    }
+
+    static String key(Class<?> fixture, Settings settings) {
+        StringBuilder sb = new StringBuilder(fixture.getName()).append('@')
+                .append(classDigest(fixture));
+        // Only settings the session depends on - settings also include
+        // system properties which change with every test, such as the
+        // test method's name and its screenshot and video paths
+        Set<String> keys = new TreeSet<>(Arrays.asList(SESSION_SETTINGS));
+        SnapshotSession anno = fixture.getAnnotation(SnapshotSession.class);
+        if (anno != null) {
+            keys.addAll(Arrays.asList(anno.settings()));
+        }
+        for (String k : keys) {
+            sb.append('\n').append(k).append('=').append(settings.getString(k));
+        }
+        return digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String classDigest(Class<?> type) {
+        String result = CLASS_DIGESTS.get(type);
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            // A change to a superclass changes what the fixture does too
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                String resource = c.getName().replace('.', '/') + ".class";
+                ClassLoader loader = c.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : c.getClassLoader();
+                try (InputStream in = loader.getResourceAsStream(resource)) {
+                    if (in != null) {
+                        sb.append(digest(readAll(in)));
+                    }
+                } catch (IOException ex) {
+                    sb.append(System.identityHashCode(c));
+                }
+            }
+            result = sb.toString();
+            CLASS_DIGESTS.put(type, result);
+        }
+        return result;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int read = in.read(buf); read > 0; read = in.read(buf)) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class listed in &#064;Fixtures whose only lasting effect is on the
+ * browser's state - cookies, localStorage, sessionStorage and the current URL
+ * - such as a login page. The first time the fixture is created, that state
+ * is captured; for later tests it is replayed into the new WebDriver instead
+ * of constructing the fixture again.
+ * <p>
+ * Snapshots are kept for the life of the JVM, and are keyed by the fixture
+ * class's bytecode, the browser and base URL settings, and the values of any
+ * other settings the fixture names in {@link #settings()}, such as the
+ * credentials a login page uses; changing any of those runs the fixture
+ * afresh. Other settings, which may differ from test to test, are ignored.
+ * Fixtures with &#064;ScreenCapture are not screenshotted when restored from
+ * a snapshot.
+ *
+ * @author Tim Boudreau
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SnapshotSession {
+
+    /**
+     * Names of settings, besides the browser and base URL, whose values
+     * affect the state the fixture leaves the browser in.
+     *
+     * @return Setting names
+     */
+    String[] settings() default {};
+}
@@ -25,14 +25,18 @@ package com.mastfrog.selenium;
 
 import com.google.inject.Inject;
 import com.mastfrog.giulius.Dependencies;
+import com.mastfrog.selenium.index.PageModelIndex;
+import com.mastfrog.settings.Settings;
 import com.mastfrog.util.preconditions.Checks;
 import com.mastfrog.util.preconditions.Exceptions;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
@@ -42,6 +46,11 @@ import org.openqa.selenium.support.ui.WebDriverWait;
  * 
  * If you subclass SeleniumTest, an instance of Utils will be injected
  * for you and all the methods here are mirrored as protected methods there.
+ * <p>
+ * Where the browser supports it, waits for elements happen inside the page,
+ * using a MutationObserver, so they return as soon as the page changes
+ * rather than polling; set <code>selenium.dom.waits=false</code> to always
+ * use the WebDriverWait.
  *
  * @author Tim Boudreau
  */
@@ -50,12 +59,16 @@ public final class Utils {
     private final WebDriver driver;
     private final WebDriverWait wait;
     private final Dependencies deps;
+    private final DomWaits domWaits;
 
     @Inject
-    Utils(WebDriver driver, WebDriverWait wait, Dependencies deps) {
+    Utils(WebDriver driver, WebDriverWait wait, Dependencies deps, Settings settings) {
         this.driver = driver;
         this.wait = wait;
         this.deps = deps;
+        this.domWaits = new DomWaits(driver, TimeUnit.SECONDS.toMillis(WebDriverModule.waitSeconds(settings)),
+                TimeUnit.SECONDS.toMillis(WebDriverModule.scriptTimeoutSeconds(settings)),
+                settings.getBoolean(DomWaits.DOM_WAITS_SETTING, true));
     }
 
     /**
@@ -90,7 +103,13 @@ public final class Utils {
      */
     public <T> T instantiate(Class<T> type) {
         Checks.notNull("type", type);
-        T result = PageFactory.initElements(driver, type);
+        T result;
+        PhaseTimings.Span span = PhaseTimings.start(Phase.INITIALIZE_PAGE_MODEL, type.getName());
+        try {
+            result = PageModelIndex.forType(type).instantiate(driver, type);
+        } finally {
+            span.close();
+        }
         deps.injectMembers(result);
         return result;
     }
@@ -104,7 +123,18 @@ public final class Utils {
     public void waitForVisible(WebElement elementToBeVisible) {
         Checks.notNull("elementToBeVisible", elementToBeVisible);
         try {
-            wait.until(ExpectedConditions.visibilityOf(elementToBeVisible));
+            ExpectedCondition<WebElement> condition = ExpectedConditions.visibilityOf(elementToBeVisible);
+            Boolean visible;
+            try (PhaseTimings.Span span = PhaseTimings.start(Phase.WAIT_CONDITION, "in page: " + PolicyWait.describe(condition))) {
+                // One round trip, however long the page script waits
+                visible = domWaits.awaitVisible(elementToBeVisible);
+                span.waited(1, !Boolean.FALSE.equals(visible));
+            }
+            if (Boolean.FALSE.equals(visible)) {
+                timedOut(condition);
+            }
+            // Returns at once if the in-page wait saw it become visible
+            wait.until(condition);
         } catch (Exception e) {
             Exceptions.chuck(e);
         }
@@ -133,12 +163,36 @@ public final class Utils {
      * @param by The way to look up the element
      */
     public void waitForRefresh(final By by) {
-        wait.until(ExpectedConditions.refreshed(new ExpectedCondition<WebElement>() {
+        ExpectedCondition<WebElement> condition = ExpectedConditions.refreshed(new ExpectedCondition<WebElement>() {
             @Override
             public WebElement apply(WebDriver f) {
                 return f.findElement(by);
             }
-        }));
+        });
+        Boolean present;
+        try (PhaseTimings.Span span = PhaseTimings.start(Phase.WAIT_CONDITION, "in page: " + PolicyWait.describe(condition))) {
+            present = domWaits.awaitPresent(by);
+            span.waited(1, !Boolean.FALSE.equals(present));
+        }
+        if (Boolean.FALSE.equals(present)) {
+            timedOut(condition);
+        }
+        wait.until(condition);
+    }
+
+    private void timedOut(ExpectedCondition<?> condition) {
+        // The in-page wait already used up the timeout; check once more
+        // over the wire, in case the page script missed the change
+        Object result;
+        try {
+            result = condition.apply(driver);
+        } catch (WebDriverException ex) {
+            result = null;
+        }
+        if (result == null || Boolean.FALSE.equals(result)) {
+            throw new TimeoutException("Expected condition failed: waiting for " + condition
+                    + " (tried for " + domWaits.timeoutMillis() + " ms in the page)");
+        }
     }
 
     /**
@@ -34,36 +34,61 @@ import com.google.inject.matcher.Matcher;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.google.inject.spi.ProvisionListener;
+import com.mastfrog.selenium.index.PageModelIndex;
 import com.mastfrog.settings.Settings;
 import com.mastfrog.shutdown.hooks.ShutdownHookRegistry;
-import static com.mastfrog.util.collections.CollectionUtils.setOf;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.net.URL;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.htmlunit.HtmlUnitDriver;
-import org.openqa.selenium.ie.InternetExplorerDriver;
-import org.openqa.selenium.support.CacheLookup;
-import org.openqa.selenium.support.FindAll;
-import org.openqa.selenium.support.FindBy;
-import org.openqa.selenium.support.FindBys;
-import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.PageFactoryFinder;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 /**
  * Instantiates the correct Selenium WebDriver. Binds WebDriver and
- * WebDriverWait so they can be injected.
+ * WebDriverWait so they can be injected; the WebDriverWait polls as the bound
+ * PollingPolicy says.
  *
  * @author Tim Boudreau
  */
 final class WebDriverModule extends AbstractModule {
 
+    static final String SCRIPT_TIMEOUT_SETTING = "webdriver.scriptTimeoutSeconds";
+    private static final ThreadLocal<Boolean> DEFER_SHUTDOWN = new ThreadLocal<>();
+    private static final ThreadLocal<DriverProvider> FINISHED = new ThreadLocal<>();
+
+    /**
+     * Called on the thread which is about to run a test. When that test's
+     * injector is shut down, its driver will be parked rather than closed,
+     * until closeFinishedDriver() is called, so that a RunListener reporting a
+     * failure can still get at the browser the test was using.
+     */
+    static void deferDriverShutdown() {
+        closeFinishedDriver();
+        DEFER_SHUTDOWN.set(true);
+    }
+
+    /**
+     * Get the driver of the test which most recently finished on the calling
+     * thread, if it has been parked.
+     *
+     * @return A driver or null
+     */
+    static WebDriver finishedDriver() {
+        DriverProvider provider = FINISHED.get();
+        return provider == null ? null : provider.driver;
+    }
+
+    /**
+     * Close (or return to its pool) any driver parked on this thread.
+     */
+    static void closeFinishedDriver() {
+        DriverProvider provider = FINISHED.get();
+        FINISHED.remove();
+        DEFER_SHUTDOWN.remove();
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
     @Override
     protected void configure() {
         final DriverProvider driverProvider = new DriverProvider(binder().getProvider(Settings.class),
@@ -72,31 +97,11 @@ final class WebDriverModule extends AbstractModule {
         bind(WebDriver.class).toProvider(driverProvider);
         bind(WebDriverWait.class).toProvider(WaitProvider.class);
 
-        final Set<Class<? extends Annotation>> seleniumAnnotationTypes
-                = setOf(FindBy.class, FindBys.class, CacheLookup.class, FindAll.class, PageFactoryFinder.class);
-
         Matcher<Binding> typeHasSeleniumAnnotatedFields = new AbstractMatcher<Binding>() {
-            private final Set<Class<?>> hasSeleniumAnnotations = new HashSet<>();
-            private final Set<Class<?>> noSeleniumAnnotations = new HashSet<>();
-
             @Override
             public boolean matches(Binding t) {
                 Class<?> type = t.getKey().getTypeLiteral().getRawType();
-                if (hasSeleniumAnnotations.contains(type)) {
-                    return true;
-                } else if (noSeleniumAnnotations.contains(type)) {
-                    return false;
-                }
-                for (Field f : type.getDeclaredFields()) {
-                    for (Class<? extends Annotation> anno : seleniumAnnotationTypes) {
-                        if (f.getAnnotation(anno) != null) {
-                            hasSeleniumAnnotations.add(type);
-                            return true;
-                        }
-                    }
-                }
-                noSeleniumAnnotations.add(type);
-                return false;
+                return PageModelIndex.forType(type).isPageModel(type);
             }
         };
 
@@ -106,28 +111,60 @@ final class WebDriverModule extends AbstractModule {
                 Class<? super T> type = provision.getBinding().getKey().getTypeLiteral().getRawType();
                 T obj = provision.provision();
                 if (driverProvider.driver != null) {
-                    PageFactory.initElements(driverProvider.driver, obj);
+                    PhaseTimings.Span span = PhaseTimings.start(Phase.INITIALIZE_PAGE_MODEL, obj.getClass().getName());
+                    try {
+                        PageModelIndex.forType(obj.getClass()).initElements(driverProvider.driver, obj);
+                    } finally {
+                        span.close();
+                    }
                 }
             }
         });
     }
 
+    /**
+     * The number of seconds injected WebDriverWaits wait for.
+     *
+     * @param settings The settings
+     * @return A number of seconds
+     */
+    static int waitSeconds(Settings settings) {
+        return WaitProvider.waitSeconds(settings);
+    }
+
+    /**
+     * The async script timeout drivers are given, and which in-page waits
+     * restore after changing it - by default the W3C default of 30 seconds.
+     *
+     * @param settings The settings
+     * @return A number of seconds
+     */
+    static int scriptTimeoutSeconds(Settings settings) {
+        return settings.getInt(SCRIPT_TIMEOUT_SETTING, WebDriverPool.DEFAULT_SCRIPT_TIMEOUT_SECONDS);
+    }
+
     @Singleton
     private static class WaitProvider implements Provider<WebDriverWait> {
 
         private final Provider<WebDriver> driver;
+        private final Provider<PollingPolicy> policy;
         private final int waitDurationSeconds;
         public static final int MULTIPLIER = 10;
 
         @Inject
-        WaitProvider(Provider<WebDriver> driver, Settings settings) {
+        WaitProvider(Provider<WebDriver> driver, Provider<PollingPolicy> policy, Settings settings) {
             this.driver = driver;
-            waitDurationSeconds = (settings.getInt("sleep", 1000) * MULTIPLIER) / 1000;
+            this.policy = policy;
+            waitDurationSeconds = waitSeconds(settings);
+        }
+
+        static int waitSeconds(Settings settings) {
+            return (settings.getInt("sleep", 1000) * MULTIPLIER) / 1000;
         }
 
         @Override
         public WebDriverWait get() {
-            return new WebDriverWait(driver.get(), waitDurationSeconds);
+            return new PolicyWait(driver.get(), waitDurationSeconds, policy.get());
         }
     }
 
@@ -135,6 +172,7 @@ final class WebDriverModule extends AbstractModule {
     private static class DriverProvider implements Provider<WebDriver>, Runnable {
 
         WebDriver driver;
+        private WebDriverPool pool;
         private final Provider<Settings> settings;
         private final Provider<ShutdownHookRegistry> hook;
         private final Provider<URL> baseURL;
@@ -153,18 +191,15 @@ final class WebDriverModule extends AbstractModule {
                 Settings settings = this.settings.get();
                 String browser = settings.getString("browser", "");
 
-                if (browser.equalsIgnoreCase("iexplore")
-                        || browser.equalsIgnoreCase("ie")
-                        || browser.equalsIgnoreCase("internet explorer")
-                        || browser.equalsIgnoreCase("iexplorer")
-                        || browser.equalsIgnoreCase("explorer")) {
-                    result = new InternetExplorerDriver();
-                } else if (browser.equalsIgnoreCase("firefox")) {
-                    result = new FirefoxDriver();
-                } else if (browser.equalsIgnoreCase("chrome")) {
-                    result = new ChromeDriver();
-                } else {
-                    result = new HtmlUnitDriver();
+                int poolSize = settings.getInt(WebDriverPool.POOL_SIZE_SETTING, 0);
+                try (PhaseTimings.Span span = PhaseTimings.start(Phase.LAUNCH_DRIVER, browser)) {
+                    span.pooled(poolSize > 0);
+                    if (poolSize > 0) {
+                        pool = WebDriverPool.get(browser, poolSize);
+                        result = pool.lease(settings.getLong(WebDriverPool.LEASE_TIMEOUT_SETTING, 300));
+                    } else {
+                        result = WebDriverPool.launch(browser);
+                    }
                 }
 
                 hook.get().add(this);
@@ -172,13 +207,21 @@ final class WebDriverModule extends AbstractModule {
 
                 int waitSeconds = settings.getInt("webdriver.implicitlyWaitSeconds", 10);
                 driver.manage().timeouts().implicitlyWait(waitSeconds, TimeUnit.SECONDS);
+                if (settings.getString(SCRIPT_TIMEOUT_SETTING) != null) {
+                    driver.manage().timeouts().setScriptTimeout(scriptTimeoutSeconds(settings), TimeUnit.SECONDS);
+                }
                 boolean maximize = settings.getBoolean("webdriver.maximize", false);
                 if (maximize) {
                     driver.manage().window().maximize();
                 }
                 URL url = baseURL.get();
                 if (url != null) {
-                    driver.navigate().to(url);
+                    PhaseTimings.Span span = PhaseTimings.start(Phase.NAVIGATE_TO_BASE_URL, url.toString());
+                    try {
+                        driver.navigate().to(url);
+                    } finally {
+                        span.close();
+                    }
                 }
             }
             return driver;
@@ -186,7 +229,23 @@ final class WebDriverModule extends AbstractModule {
 
         @Override
         public void run() {
+            if (driver != null && Boolean.TRUE.equals(DEFER_SHUTDOWN.get())) {
+                DEFER_SHUTDOWN.remove();
+                FINISHED.set(this);
+                return;
+            }
+            close();
+        }
+
+        synchronized void close() {
             if (driver != null) {
+                if (pool != null) {
+                    // Pooled browsers outlive the injector - the pool resets
+                    // them and quits them on JVM exit
+                    pool.release(driver);
+                    driver = null;
+                    return;
+                }
                 try {
                     driver.quit();
                     driver.close();
@@ -0,0 +1,289 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.mastfrog.util.preconditions.Exceptions;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.ie.InternetExplorerDriver;
+
+/**
+ * A process-wide, bounded pool of already-launched browsers, keyed by browser
+ * type. Tests lease a driver and hand it back when their injector is shut
+ * down; the pool resets it (cookies, web storage, about:blank) and launches
+ * replacements on a background thread, so that starting a browser is not
+ * normally on the critical path of a test.
+ * <p/>
+ * Pooling is off unless the setting <code>webdriver.pool.size</code> is set
+ * to a value greater than zero.
+ *
+ * @author Tim Boudreau
+ */
+final class WebDriverPool {
+
+    static final String POOL_SIZE_SETTING = "webdriver.pool.size";
+    static final String LEASE_TIMEOUT_SETTING = "webdriver.pool.lease.timeout.seconds";
+    // The W3C defaults, which pooled drivers are reset to
+    static final int DEFAULT_SCRIPT_TIMEOUT_SECONDS = 30;
+    static final int DEFAULT_PAGE_LOAD_TIMEOUT_SECONDS = 300;
+    private static final Map<String, WebDriverPool> POOLS = new ConcurrentHashMap<>();
+    private static final ExecutorService LAUNCHER = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "webdriver-pool-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final String browser;
+    private final int size;
+    private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<>();
+    private final Set<WebDriver> all = Collections.newSetFromMap(new ConcurrentHashMap<WebDriver, Boolean>());
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicReference<Throwable> launchFailure = new AtomicReference<>();
+
+    private WebDriverPool(String browser, int size) {
+        this.browser = browser;
+        this.size = size;
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        }, "webdriver-pool-shutdown-" + browser));
+    }
+
+    private static void log(CharSequence what) {
+        if (Boolean.getBoolean("giulius.tests.verbose")) {
+            System.err.println(what);
+        }
+    }
+
+    /**
+     * Get the pool for a browser type, creating it and starting to launch
+     * browsers into it if necessary. The size passed by whoever creates the
+     * pool first wins.
+     *
+     * @param browser The value of the <code>browser</code> setting
+     * @param size The maximum number of live browsers
+     * @return A pool
+     */
+    static WebDriverPool get(String browser, final int size) {
+        final String key = browserKey(browser);
+        WebDriverPool result = POOLS.get(key);
+        if (result == null) {
+            synchronized (POOLS) {
+                result = POOLS.get(key);
+                if (result == null) {
+                    result = new WebDriverPool(key, size);
+                    POOLS.put(key, result);
+                    result.fill();
+                }
+            }
+        }
+        return result;
+    }
+
+    static String browserKey(String browser) {
+        if (browser == null) {
+            return "htmlunit";
+        }
+        switch (browser.trim().toLowerCase()) {
+            case "iexplore":
+            case "ie":
+            case "internet explorer":
+            case "iexplorer":
+            case "explorer":
+                return "ie";
+            case "firefox":
+                return "firefox";
+            case "chrome":
+                return "chrome";
+            default:
+                return "htmlunit";
+        }
+    }
+
+    /**
+     * Launch a new, unpooled browser of the type named by the passed browser
+     * setting.
+     *
+     * @param browser A browser name such as "firefox", "chrome" or "ie"
+     * @return A web driver
+     */
+    static WebDriver launch(String browser) {
+        switch (browserKey(browser)) {
+            case "ie":
+                return new InternetExplorerDriver();
+            case "firefox":
+                return new FirefoxDriver();
+            case "chrome":
+                return new ChromeDriver();
+            default:
+                return new HtmlUnitDriver();
+        }
+    }
+
+    private void fill() {
+        for (;;) {
+            int current = live.get();
+            if (current >= size) {
+                return;
+            }
+            if (live.compareAndSet(current, current + 1)) {
+                LAUNCHER.submit(new Launch());
+            }
+        }
+    }
+
+    /**
+     * Take a driver from the pool, waiting for one to be launched or returned
+     * if none is idle.
+     *
+     * @param timeoutSeconds How long to wait before giving up
+     * @return A driver
+     */
+    WebDriver lease(long timeoutSeconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            for (;;) {
+                fill();
+                WebDriver result = idle.poll(250, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    log("Leased pooled " + browser + " driver " + result);
+                    return result;
+                }
+                Throwable failure = launchFailure.getAndSet(null);
+                if (failure != null) {
+                    return Exceptions.chuck(failure);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Timed out after " + timeoutSeconds
+                            + " seconds waiting for a " + browser + " driver from a pool of " + size);
+                }
+            }
+        } catch (InterruptedException ex) {
+            return Exceptions.chuck(ex);
+        }
+    }
+
+    /**
+     * Return a driver to the pool. It is reset on a background thread and
+     * becomes available again once that has succeeded; if it cannot be reset,
+     * it is discarded and a replacement is launched.
+     *
+     * @param driver A driver obtained from lease()
+     */
+    void release(final WebDriver driver) {
+        LAUNCHER.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reset(driver);
+                    idle.offer(driver);
+                } catch (Exception e) {
+                    log("Discarding pooled driver which could not be reset: " + e);
+                    discard(driver);
+                    fill();
+                }
+            }
+        });
+    }
+
+    private static void reset(WebDriver driver) {
+        driver.manage().deleteAllCookies();
+        // Whatever the last test set; the next lease sets its own
+        driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS)
+                .setScriptTimeout(DEFAULT_SCRIPT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .pageLoadTimeout(DEFAULT_PAGE_LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (driver instanceof JavascriptExecutor) {
+            try {
+                ((JavascriptExecutor) driver).executeScript(
+                        "try { window.localStorage.clear(); } catch (e) {}"
+                        + "try { window.sessionStorage.clear(); } catch (e) {}");
+            } catch (RuntimeException e) {
+                // Page may have javascript disabled - not fatal
+                log("Could not clear web storage: " + e);
+            }
+        }
+        driver.navigate().to("about:blank");
+    }
+
+    private void discard(WebDriver driver) {
+        if (all.remove(driver)) {
+            live.decrementAndGet();
+        }
+        quit(driver);
+    }
+
+    private static void quit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            // don't care
+        }
+    }
+
+    void shutdown() {
+        for (WebDriver driver : all) {
+            quit(driver);
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    private final class Launch implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                log("Launching pooled " + browser + " driver");
+                WebDriver driver = launch(browser);
+                all.add(driver);
+                idle.offer(driver);
+            } catch (Throwable t) {
+                live.decrementAndGet();
+                launchFailure.set(t);
+            }
+        }
+    }
+}
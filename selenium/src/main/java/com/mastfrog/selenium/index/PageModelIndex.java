@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import com.google.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.PageFactory;
+
+/**
+ * Answers whether a type is a Selenium page model (something which should be
+ * instantiated by PageFactory), and which page models a type needs injected,
+ * using the index written by PageModelIndexProcessor. Types from classpath
+ * entries which were compiled without the processor are scanned reflectively,
+ * as before; answers are cached either way.
+ * <p>
+ * Also creates and initializes page models, using the PageModelInitializer
+ * generated for the type where there is one, and PageFactory otherwise.
+ *
+ * @author Tim Boudreau
+ */
+public final class PageModelIndex {
+
+    public static final String PAGE_MODELS_FILE = "META-INF/selenium/page-models.list";
+    public static final String PAGE_MODEL_DEPENDENCIES_FILE = "META-INF/selenium/page-model-dependencies.list";
+    public static final String PAGE_MODEL_INITIALIZERS_FILE = "META-INF/selenium/page-model-initializers.list";
+    /**
+     * System property which, if true, disables generated initializers and
+     * uses PageFactory for everything.
+     */
+    public static final String USE_PAGE_FACTORY_PROPERTY = "selenium.use.pagefactory";
+    private static final String SELENIUM_SUPPORT_PACKAGE = "org.openqa.selenium.support";
+    private static final Map<ClassLoader, PageModelIndex> INDICES = new WeakHashMap<>();
+
+    private final Set<String> pageModels = new HashSet<>();
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private final Set<String> indexedLocations = new HashSet<>();
+    private final Map<Class<?>, Boolean> pageModelCache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<Class<?>>> dependencyCache = new ConcurrentHashMap<>();
+    private final Map<String, String> initializerNames = new HashMap<>();
+    private final Map<Class<?>, PageModelInitializer<?>> initializers = new ConcurrentHashMap<>();
+
+    private PageModelIndex(ClassLoader loader) throws IOException {
+        for (String line : read(loader, PAGE_MODELS_FILE)) {
+            pageModels.add(line);
+        }
+        for (String line : read(loader, PAGE_MODEL_DEPENDENCIES_FILE)) {
+            String[] ownerAndDependency = line.split(":", 2);
+            if (ownerAndDependency.length != 2) {
+                throw new IOException("Illegal content '" + line + "' in " + PAGE_MODEL_DEPENDENCIES_FILE);
+            }
+            Set<String> deps = dependencies.get(ownerAndDependency[0]);
+            if (deps == null) {
+                deps = new LinkedHashSet<>();
+                dependencies.put(ownerAndDependency[0], deps);
+            }
+            deps.add(ownerAndDependency[1]);
+        }
+        for (String line : read(loader, PAGE_MODEL_INITIALIZERS_FILE)) {
+            String[] modelAndInitializer = line.split(":", 2);
+            if (modelAndInitializer.length != 2) {
+                throw new IOException("Illegal content '" + line + "' in " + PAGE_MODEL_INITIALIZERS_FILE);
+            }
+            initializerNames.put(modelAndInitializer[0], modelAndInitializer[1]);
+        }
+    }
+
+    /**
+     * Get the index for the class loader which loaded a type.
+     *
+     * @param type A type
+     * @return An index
+     */
+    public static PageModelIndex forType(Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        if (loader == null) {
+            loader = ClassLoader.getSystemClassLoader();
+        }
+        synchronized (INDICES) {
+            PageModelIndex result = INDICES.get(loader);
+            if (result == null) {
+                try {
+                    result = new PageModelIndex(loader);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Could not read page model index", ex);
+                }
+                INDICES.put(loader, result);
+            }
+            return result;
+        }
+    }
+
+    private Set<String> read(ClassLoader loader, String file) throws IOException {
+        Set<String> result = new LinkedHashSet<>();
+        Enumeration<URL> urls = loader.getResources(file);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            indexedLocations.add(classpathRoot(url, file));
+            try (InputStream in = url.openStream()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        result.add(line);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String classpathRoot(URL url, String file) {
+        // jar:file:/foo/bar.jar!/META-INF/... -> file:/foo/bar.jar
+        // file:/foo/classes/META-INF/... -> file:/foo/classes/
+        String result = url.toString();
+        result = result.substring(0, result.length() - file.length());
+        if (result.startsWith("jar:") && result.endsWith("!/")) {
+            result = result.substring(4, result.length() - 2);
+        }
+        return result;
+    }
+
+    private boolean isIndexed(Class<?> type) {
+        CodeSource src = type.getProtectionDomain().getCodeSource();
+        return src != null && src.getLocation() != null
+                && indexedLocations.contains(src.getLocation().toString());
+    }
+
+    /**
+     * Determine if a type, or any of its superclasses, has Selenium
+     * annotations on it or its fields.
+     *
+     * @param type A type
+     * @return true if it should be created by PageFactory
+     */
+    public boolean isPageModel(Class<?> type) {
+        Boolean result = pageModelCache.get(type);
+        if (result == null) {
+            result = computeIsPageModel(type);
+            pageModelCache.put(type, result);
+        }
+        return result;
+    }
+
+    boolean computeIsPageModel(Class<?> type) {
+        while (type != null && type != Object.class) {
+            if (isIndexed(type)) {
+                if (pageModels.contains(type.getName())) {
+                    return true;
+                }
+            } else if (hasSeleniumAnnotations(type)) {
+                return true;
+            }
+            type = type.getSuperclass();
+        }
+        return false;
+    }
+
+    /**
+     * Get the page model types which a type has injected into its
+     * &#064;Inject fields or &#064;Inject constructor.
+     *
+     * @param type A type
+     * @return A set of page model types
+     */
+    public Set<Class<?>> pageModelDependencies(Class<?> type) {
+        Set<Class<?>> result = dependencyCache.get(type);
+        if (result == null) {
+            result = isIndexed(type) ? indexedDependencies(type) : scanDependencies(type);
+            dependencyCache.put(type, result);
+        }
+        return result;
+    }
+
+    /**
+     * Create a page model, as PageFactory.initElements(driver, type) would.
+     *
+     * @param <T> The type
+     * @param driver The driver
+     * @param type The type
+     * @return A new, initialized page model
+     */
+    public <T> T instantiate(WebDriver driver, Class<T> type) {
+        PageModelInitializer<T> initializer = initializer(type);
+        if (initializer != null) {
+            T result = initializer.create(driver);
+            if (result != null) {
+                return result;
+            }
+        }
+        return PageFactory.initElements(driver, type);
+    }
+
+    /**
+     * Initialize the elements of an existing page model, as
+     * PageFactory.initElements(driver, obj) would.
+     *
+     * @param driver The driver
+     * @param obj A page model
+     */
+    @SuppressWarnings("unchecked")
+    public void initElements(WebDriver driver, Object obj) {
+        // Only an exact match - a generated initializer knows nothing of
+        // a subclass's fields
+        PageModelInitializer<Object> initializer = (PageModelInitializer<Object>) initializer(obj.getClass());
+        if (initializer != null) {
+            initializer.initialize(obj, driver);
+        } else {
+            PageFactory.initElements(driver, obj);
+        }
+    }
+
+    /**
+     * Get the generated initializer for exactly this type, if there is one.
+     *
+     * @param <T> The type
+     * @param type The type
+     * @return An initializer or null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PageModelInitializer<T> initializer(Class<T> type) {
+        if (Boolean.getBoolean(USE_PAGE_FACTORY_PROPERTY)) {
+            return null;
+        }
+        PageModelInitializer<?> result = initializers.get(type);
+        if (result == null) {
+            String name = initializerNames.get(type.getName());
+            if (name == null || !isIndexed(type)) {
+                return null;
+            }
+            try {
+                result = (PageModelInitializer<?>) Class.forName(name, true, type.getClassLoader())
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Stale page model index entry " + name + " for " + type.getName(), ex);
+            }
+            if (result.type() != type) {
+                return null;
+            }
+            initializers.put(type, result);
+        }
+        return (PageModelInitializer<T>) result;
+    }
+
+    private Set<Class<?>> indexedDependencies(Class<?> type) {
+        Set<String> names = dependencies.get(type.getName());
+        if (names == null) {
+            return Collections.emptySet();
+        }
+        Set<Class<?>> result = new LinkedHashSet<>();
+        for (String name : names) {
+            try {
+                result.add(Class.forName(name, false, type.getClassLoader()));
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException("Stale page model index entry " + name + " for " + type.getName(), ex);
+            }
+        }
+        return result;
+    }
+
+    private Set<Class<?>> scanDependencies(Class<?> type) {
+        Set<Class<?>> result = new LinkedHashSet<>();
+        // Allow one level below injected types to be handled by selenium -
+        // if an object is being injected into a field, make sure we
+        // don't need selenium to create the object
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getAnnotation(Inject.class) != null && isPageModel(field.getType())) {
+                result.add(field.getType());
+            }
+        }
+        // Scan the constructors
+        for (Constructor<?> c : type.getDeclaredConstructors()) {
+            if (c.getAnnotation(Inject.class) != null) {
+                for (Class<?> constructorParamType : c.getParameterTypes()) {
+                    if (isPageModel(constructorParamType)) {
+                        result.add(constructorParamType);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasSeleniumAnnotations(Class<?> type) {
+        for (Annotation anno : type.getAnnotations()) {
+            if (isSeleniumAnnotation(anno)) {
+                return true;
+            }
+        }
+        for (Field field : type.getDeclaredFields()) {
+            for (Annotation anno : field.getAnnotations()) {
+                if (isSeleniumAnnotation(anno)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSeleniumAnnotation(Annotation anno) {
+        Package pkg = anno.annotationType().getPackage();
+        return pkg != null && SELENIUM_SUPPORT_PACKAGE.equals(pkg.getName());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import com.mastfrog.annotation.AnnotationUtils;
+import com.mastfrog.annotation.registries.AbstractLineOrientedRegistrationAnnotationProcessor;
+import com.mastfrog.util.service.ServiceProvider;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Records, at compile time, which types are Selenium page models (have
+ * selenium annotations on themselves or their fields), and which types have
+ * Guice injection points that need a page model, so that SeleniumRunner does
+ * not need to reflectively scan every test method's parameter types.
+ * <p>
+ * For each page model whose fields can be populated without reflection, a
+ * PageModelInitializer is also generated next to it and recorded in
+ * PageModelIndex.PAGE_MODEL_INITIALIZERS_FILE.
+ *
+ * @author Tim Boudreau
+ */
+@ServiceProvider(Processor.class)
+@SupportedAnnotationTypes({"org.openqa.selenium.support.FindBy",
+    "org.openqa.selenium.support.FindBys",
+    "org.openqa.selenium.support.FindAll",
+    "org.openqa.selenium.support.CacheLookup",
+    "com.google.inject.Inject"})
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class PageModelIndexProcessor extends AbstractLineOrientedRegistrationAnnotationProcessor {
+
+    private static final String INJECT = "com.google.inject.Inject";
+    private static final String SELENIUM_SUPPORT_PACKAGE = "org.openqa.selenium.support";
+    private final Set<String> added = new HashSet<>();
+    private final Map<String, TypeElement> pendingInitializers = new LinkedHashMap<>();
+    private final Set<String> generated = new HashSet<>();
+    private int ix;
+
+    @Override
+    protected void handleOne(Element el, AnnotationMirror anno, int order, AnnotationUtils utils) {
+        TypeElement annoType = (TypeElement) anno.getAnnotationType().asElement();
+        if (INJECT.equals(annoType.getQualifiedName().toString())) {
+            handleInjectionPoint(el);
+        } else {
+            TypeElement owner = el instanceof TypeElement ? (TypeElement) el
+                    : (TypeElement) el.getEnclosingElement();
+            add(PageModelIndex.PAGE_MODELS_FILE, binaryName(owner), owner);
+            String name = binaryName(owner);
+            if (!generated.contains(name)) {
+                pendingInitializers.put(name, owner);
+            }
+        }
+    }
+
+    @Override
+    protected void onAfterRound(RoundEnvironment env, boolean processingOver, int round) {
+        // Generate once all of a type's annotations have been seen in this
+        // round; the generated sources are compiled in the next one
+        PageModelInitializerGenerator gen = new PageModelInitializerGenerator(processingEnv);
+        for (Map.Entry<String, TypeElement> e : pendingInitializers.entrySet()) {
+            generated.add(e.getKey());
+            try {
+                String initializer = gen.generate(e.getValue());
+                if (initializer != null) {
+                    add(PageModelIndex.PAGE_MODEL_INITIALIZERS_FILE, e.getKey() + ":" + initializer, e.getValue());
+                }
+            } catch (IOException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not generate page model initializer: " + ex, e.getValue());
+            }
+        }
+        pendingInitializers.clear();
+    }
+
+    private void handleInjectionPoint(Element el) {
+        // Mirror what SeleniumRunner looks at: @Inject fields, and the
+        // parameters of @Inject constructors
+        TypeElement owner = (TypeElement) el.getEnclosingElement();
+        if (el.getKind() == ElementKind.FIELD) {
+            addDependencyIfPageModel(owner, ((VariableElement) el).asType(), el);
+        } else if (el.getKind() == ElementKind.CONSTRUCTOR) {
+            for (VariableElement param : ((ExecutableElement) el).getParameters()) {
+                addDependencyIfPageModel(owner, param.asType(), el);
+            }
+        }
+    }
+
+    private void addDependencyIfPageModel(TypeElement owner, TypeMirror type, Element el) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+        TypeElement dependency = (TypeElement) ((DeclaredType) type).asElement();
+        if (isPageModel(dependency)) {
+            add(PageModelIndex.PAGE_MODEL_DEPENDENCIES_FILE, binaryName(owner) + ":" + binaryName(dependency), el);
+        }
+    }
+
+    private boolean isPageModel(TypeElement type) {
+        while (type != null && !"java.lang.Object".equals(type.getQualifiedName().toString())) {
+            if (hasSeleniumAnnotation(type.getAnnotationMirrors())) {
+                return true;
+            }
+            for (Element e : type.getEnclosedElements()) {
+                if (e.getKind() == ElementKind.FIELD && hasSeleniumAnnotation(e.getAnnotationMirrors())) {
+                    return true;
+                }
+            }
+            TypeMirror sup = type.getSuperclass();
+            type = sup.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) sup).asElement() : null;
+        }
+        return false;
+    }
+
+    private boolean hasSeleniumAnnotation(List<? extends AnnotationMirror> annos) {
+        for (AnnotationMirror mirror : annos) {
+            PackageElement pkg = processingEnv.getElementUtils().getPackageOf(mirror.getAnnotationType().asElement());
+            if (SELENIUM_SUPPORT_PACKAGE.equals(pkg.getQualifiedName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void add(String file, String line, Element el) {
+        // Several annotations on several fields all map to the same line
+        if (added.add(file + '|' + line)) {
+            super.addLine(file, line, el);
+        }
+    }
+
+    @Override
+    protected int getOrder(AnnotationMirror anno) {
+        return ix++;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Implemented by classes generated by PageModelIndexProcessor for page models
+ * whose elements can be located without reflection: each one holds
+ * precomputed locators and assigns lazy element handles to the page model's
+ * fields directly, in place of PageFactory's per-field dynamic proxies.
+ *
+ * @author Tim Boudreau
+ */
+public interface PageModelInitializer<T> {
+
+    /**
+     * The page model type.
+     *
+     * @return The type
+     */
+    Class<T> type();
+
+    /**
+     * Create and initialize a page model the way PageFactory would, using a
+     * constructor that takes a WebDriver if there is one, and the no-argument
+     * constructor otherwise.
+     *
+     * @param driver The driver
+     * @return A new page model, or null if it has no constructor the
+     * generated code can call
+     */
+    T create(WebDriver driver);
+
+    /**
+     * Populate the WebElement and List&lt;WebElement&gt; fields of an
+     * existing page model.
+     *
+     * @param model The page model
+     * @param context What to look up elements in - usually the driver
+     */
+    void initialize(T model, SearchContext context);
+}
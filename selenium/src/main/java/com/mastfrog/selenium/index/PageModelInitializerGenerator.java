@@ -0,0 +1,433 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.JavaFileObject;
+
+/**
+ * Writes a PageModelInitializer for a page model, replicating what
+ * PageFactory's DefaultFieldDecorator and FindByBuilder do at runtime. Any
+ * type the generated code could not handle identically - generic types, inner
+ * classes, private or final element fields, custom PageFactoryFinder
+ * annotations - is skipped and left to PageFactory.
+ *
+ * @author Tim Boudreau
+ */
+final class PageModelInitializerGenerator {
+
+    static final String SUFFIX = "_PageModelInitializer";
+    private static final String FIND_BY = "org.openqa.selenium.support.FindBy";
+    private static final String FIND_BYS = "org.openqa.selenium.support.FindBys";
+    private static final String FIND_ALL = "org.openqa.selenium.support.FindAll";
+    private static final String CACHE_LOOKUP = "org.openqa.selenium.support.CacheLookup";
+    private static final String PAGE_FACTORY_FINDER = "org.openqa.selenium.support.PageFactoryFinder";
+    private static final String WEB_ELEMENT = "org.openqa.selenium.WebElement";
+    private static final String WEB_DRIVER = "org.openqa.selenium.WebDriver";
+    private static final String BY_ID_OR_NAME = "org.openqa.selenium.support.ByIdOrName";
+    // FindByBuilder checks these in this order
+    private static final String[][] SHORT_FORMS = {
+        {"className", "org.openqa.selenium.By.className"},
+        {"css", "org.openqa.selenium.By.cssSelector"},
+        {"id", "org.openqa.selenium.By.id"},
+        {"linkText", "org.openqa.selenium.By.linkText"},
+        {"name", "org.openqa.selenium.By.name"},
+        {"partialLinkText", "org.openqa.selenium.By.partialLinkText"},
+        {"tagName", "org.openqa.selenium.By.tagName"},
+        {"xpath", "org.openqa.selenium.By.xpath"}};
+
+    private final ProcessingEnvironment env;
+
+    PageModelInitializerGenerator(ProcessingEnvironment env) {
+        this.env = env;
+    }
+
+    /**
+     * Generate an initializer for a page model.
+     *
+     * @param type The page model
+     * @return The binary name of the generated class, or null if the type
+     * must be left to PageFactory
+     * @throws IOException If the source cannot be written
+     */
+    String generate(TypeElement type) throws IOException {
+        if (!canGenerateFor(type)) {
+            return null;
+        }
+        List<ElementField> fields = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null && !"java.lang.Object".equals(current.getQualifiedName().toString())) {
+            for (Element e : current.getEnclosedElements()) {
+                if (e.getKind() != ElementKind.FIELD || e.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                VariableElement field = (VariableElement) e;
+                boolean list = isWebElementList(field.asType());
+                if (!list && !isType(field.asType(), WEB_ELEMENT)) {
+                    if (isWebElementSubtype(field.asType()) || hasCustomFinder(field)) {
+                        return null;
+                    }
+                    // PageFactory leaves anything else alone
+                    continue;
+                }
+                if (hasCustomFinder(field)) {
+                    return null;
+                }
+                AnnotationMirror findBy = find(field, FIND_BY);
+                AnnotationMirror findBys = find(field, FIND_BYS);
+                AnnotationMirror findAll = find(field, FIND_ALL);
+                if (list && findBy == null && findBys == null && findAll == null) {
+                    // Unannotated lists are not decorated
+                    continue;
+                }
+                if (!isAssignable(field, type)) {
+                    return null;
+                }
+                String by;
+                if (findBy != null) {
+                    by = findBys == null && findAll == null ? byFor(findBy) : null;
+                } else if (findBys != null) {
+                    by = findAll == null ? composite("org.openqa.selenium.support.pagefactory.ByChained", findBys) : null;
+                } else if (findAll != null) {
+                    by = composite("org.openqa.selenium.support.pagefactory.ByAll", findAll);
+                } else {
+                    by = "new " + BY_ID_OR_NAME + "(" + quote(field.getSimpleName().toString()) + ")";
+                }
+                if (by == null) {
+                    // Invalid combination - let PageFactory throw its usual
+                    // exception
+                    return null;
+                }
+                fields.add(new ElementField(current, field, list, find(field, CACHE_LOOKUP) != null, by));
+            }
+            current = superclassOf(current);
+        }
+        Elements elements = env.getElementUtils();
+        String pkg = elements.getPackageOf(type).getQualifiedName().toString();
+        String binary = elements.getBinaryName(type).toString();
+        String simpleName = (pkg.isEmpty() ? binary : binary.substring(pkg.length() + 1)).replace('$', '_') + SUFFIX;
+        String generatedName = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        String modelName = type.getQualifiedName().toString();
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            sb.append("package ").append(pkg).append(";\n\n");
+        }
+        sb.append("/**\n * Generated by ").append(PageModelIndexProcessor.class.getSimpleName())
+                .append(" from ").append(modelName).append(".\n */\n");
+        sb.append("public final class ").append(simpleName).append(" implements ")
+                .append(PageModelInitializer.class.getName()).append('<').append(modelName).append("> {\n\n");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append("    private static final org.openqa.selenium.By BY_").append(i).append(" = ")
+                    .append(fields.get(i).by).append(";\n");
+        }
+        if (!fields.isEmpty()) {
+            sb.append('\n');
+        }
+        sb.append("    @Override\n    public Class<").append(modelName).append("> type() {\n")
+                .append("        return ").append(modelName).append(".class;\n    }\n\n");
+        sb.append("    @Override\n    public ").append(modelName).append(" create(").append(WEB_DRIVER).append(" driver) {\n");
+        String constructorArgs = constructorArguments(type);
+        if (constructorArgs == null) {
+            sb.append("        return null;\n");
+        } else {
+            sb.append("        ").append(modelName).append(" result = new ").append(modelName)
+                    .append('(').append(constructorArgs).append(");\n")
+                    .append("        initialize(result, driver);\n        return result;\n");
+        }
+        sb.append("    }\n\n");
+        sb.append("    @Override\n    public void initialize(").append(modelName)
+                .append(" model, org.openqa.selenium.SearchContext context) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            ElementField f = fields.get(i);
+            sb.append("        ");
+            if (f.owner.equals(type)) {
+                sb.append("model.");
+            } else {
+                // Cast so a shadowing field in a subclass is not assigned
+                sb.append("((").append(f.owner.getQualifiedName()).append(") model).");
+            }
+            sb.append(f.field.getSimpleName()).append(" = new ").append(PageModelInitializer.class.getPackage().getName())
+                    .append(f.list ? ".LazyElementList" : ".LazyElement")
+                    .append("(context, BY_").append(i).append(", ").append(f.cacheLookup).append(");\n");
+        }
+        sb.append("    }\n}\n");
+        JavaFileObject file = env.getFiler().createSourceFile(generatedName, type);
+        try (Writer w = file.openWriter()) {
+            w.write(sb.toString());
+        }
+        return generatedName;
+    }
+
+    private boolean canGenerateFor(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || !type.getTypeParameters().isEmpty()) {
+            return false;
+        }
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement te = (TypeElement) e;
+            if (te.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (te.getNestingKind() == NestingKind.LOCAL || te.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            if (te.getNestingKind() == NestingKind.MEMBER && !te.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String constructorArguments(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+        // PageFactory prefers a constructor taking a WebDriver
+        boolean hasNoArg = false;
+        for (Element e : type.getEnclosedElements()) {
+            if (e.getKind() != ElementKind.CONSTRUCTOR) {
+                continue;
+            }
+            ExecutableElement ctor = (ExecutableElement) e;
+            List<? extends VariableElement> params = ctor.getParameters();
+            if (params.size() == 1 && isType(params.get(0).asType(), WEB_DRIVER)) {
+                // PageFactory only finds it if it is public
+                if (ctor.getModifiers().contains(Modifier.PUBLIC)) {
+                    return "driver";
+                }
+            } else if (params.isEmpty() && !ctor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasNoArg = true;
+            }
+        }
+        return hasNoArg ? "" : null;
+    }
+
+    private boolean isAssignable(VariableElement field, TypeElement model) {
+        Set<Modifier> mods = field.getModifiers();
+        if (mods.contains(Modifier.PRIVATE) || mods.contains(Modifier.FINAL)) {
+            return false;
+        }
+        Elements elements = env.getElementUtils();
+        boolean samePackage = elements.getPackageOf(field).equals(elements.getPackageOf(model));
+        TypeElement owner = (TypeElement) field.getEnclosingElement();
+        if (!owner.equals(model) && !samePackage && !owner.getModifiers().contains(Modifier.PUBLIC)) {
+            // Generated code will need to cast to it
+            return false;
+        }
+        // Package-private or protected - only usable from the same package
+        return mods.contains(Modifier.PUBLIC) || samePackage;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror sup = type.getSuperclass();
+        return sup.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) sup).asElement() : null;
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(name);
+    }
+
+    private boolean isWebElementSubtype(TypeMirror type) {
+        TypeElement webElement = env.getElementUtils().getTypeElement(WEB_ELEMENT);
+        return webElement != null && env.getTypeUtils().isAssignable(type, webElement.asType());
+    }
+
+    private boolean isWebElementList(TypeMirror type) {
+        if (!isType(type, "java.util.List")) {
+            return false;
+        }
+        List<? extends TypeMirror> args = ((DeclaredType) type).getTypeArguments();
+        return args.size() == 1 && isType(args.get(0), WEB_ELEMENT);
+    }
+
+    private AnnotationMirror find(Element el, String annotationType) {
+        for (AnnotationMirror mirror : el.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasCustomFinder(Element el) {
+        for (AnnotationMirror mirror : el.getAnnotationMirrors()) {
+            String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (FIND_BY.equals(name) || FIND_BYS.equals(name) || FIND_ALL.equals(name)) {
+                continue;
+            }
+            if (find(mirror.getAnnotationType().asElement(), PAGE_FACTORY_FINDER) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e
+                : env.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(name)) {
+                return e.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private String byFor(AnnotationMirror findBy) {
+        String result = null;
+        for (String[] shortForm : SHORT_FORMS) {
+            Object val = value(findBy, shortForm[0]);
+            if (val instanceof String && !((String) val).isEmpty()) {
+                if (result != null) {
+                    return null;
+                }
+                result = shortForm[1] + "(" + quote((String) val) + ")";
+            }
+        }
+        Object how = value(findBy, "how");
+        String howName = how instanceof VariableElement ? ((VariableElement) how).getSimpleName().toString() : "UNSET";
+        Object using = value(findBy, "using");
+        boolean hasUsing = using instanceof String && !((String) using).isEmpty();
+        if (result != null) {
+            return "UNSET".equals(howName) && !hasUsing ? result : null;
+        }
+        if (!hasUsing) {
+            return null;
+        }
+        String usingLiteral = quote((String) using);
+        switch (howName) {
+            case "CLASS_NAME":
+                return "org.openqa.selenium.By.className(" + usingLiteral + ")";
+            case "CSS":
+                return "org.openqa.selenium.By.cssSelector(" + usingLiteral + ")";
+            case "ID":
+            case "UNSET":
+                return "org.openqa.selenium.By.id(" + usingLiteral + ")";
+            case "ID_OR_NAME":
+                return "new " + BY_ID_OR_NAME + "(" + usingLiteral + ")";
+            case "LINK_TEXT":
+                return "org.openqa.selenium.By.linkText(" + usingLiteral + ")";
+            case "NAME":
+                return "org.openqa.selenium.By.name(" + usingLiteral + ")";
+            case "PARTIAL_LINK_TEXT":
+                return "org.openqa.selenium.By.partialLinkText(" + usingLiteral + ")";
+            case "TAG_NAME":
+                return "org.openqa.selenium.By.tagName(" + usingLiteral + ")";
+            case "XPATH":
+                return "org.openqa.selenium.By.xpath(" + usingLiteral + ")";
+            default:
+                return null;
+        }
+    }
+
+    private String composite(String byType, AnnotationMirror mirror) {
+        Object val = value(mirror, "value");
+        if (!(val instanceof List<?>)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("new ").append(byType).append("(new org.openqa.selenium.By[]{");
+        List<?> items = (List<?>) val;
+        for (int i = 0; i < items.size(); i++) {
+            Object item = ((AnnotationValue) items.get(i)).getValue();
+            if (!(item instanceof AnnotationMirror)) {
+                return null;
+            }
+            String by = byFor((AnnotationMirror) item);
+            if (by == null) {
+                return null;
+            }
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(by);
+        }
+        return sb.append("})").toString();
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7E) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class ElementField {
+
+        final TypeElement owner;
+        final VariableElement field;
+        final boolean list;
+        final boolean cacheLookup;
+        final String by;
+
+        ElementField(TypeElement owner, VariableElement field, boolean list, boolean cacheLookup, String by) {
+            this.owner = owner;
+            this.field = field;
+            this.list = list;
+            this.cacheLookup = cacheLookup;
+            this.by = by;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class AdaptivePollingPolicyTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testConditionKeysAreStableAcrossSessions() {
+        WebElement one = element("4f1d0c3a9b8e7d6c5b4a39281706f5e4", "2bb1c3a4-5d6e-4f70-8192-a3b4c5d6e7f8", "id", "login");
+        WebElement two = element("0a9b8c7d6e5f40312a3b4c5d6e7f8091", "9e8d7c6b-5a49-4382-b1a0-f9e8d7c6b5a4", "id", "login");
+        assertNotEquals(one.toString(), two.toString());
+        String key = PolicyWait.describe(ExpectedConditions.visibilityOf(one));
+        assertEquals(key, PolicyWait.describe(ExpectedConditions.visibilityOf(two)));
+        assertTrue(key, key.contains("id: login"));
+        assertTrue(key, key.startsWith(ExpectedConditions.visibilityOf(one).getClass().getName() + ": "));
+        assertFalse(key, key.contains("4f1d0c3a9b8e7d6c5b4a39281706f5e4"));
+        assertFalse(key, key.contains("ChromeDriver"));
+
+        WebElement other = element("4f1d0c3a9b8e7d6c5b4a39281706f5e4", "2bb1c3a4-5d6e-4f70-8192-a3b4c5d6e7f8", "id", "logout");
+        assertNotEquals(key, PolicyWait.describe(ExpectedConditions.visibilityOf(other)));
+        assertNotEquals(key, PolicyWait.describe(ExpectedConditions.invisibilityOf(one)));
+        assertEquals(PolicyWait.describe(ExpectedConditions.presenceOfElementLocated(By.cssSelector(".a"))),
+                PolicyWait.describe(ExpectedConditions.presenceOfElementLocated(By.cssSelector(".a"))));
+        assertEquals(PolicyWait.describe(new Object()), PolicyWait.describe(new Object()));
+    }
+
+    @Test
+    public void testEntriesAreCapped() throws IOException, InterruptedException {
+        File file = new File(tmp.getRoot(), "latencies.properties");
+        AdaptivePollingPolicy.Latencies latencies = new AdaptivePollingPolicy.Latencies(file, 3);
+        for (int i = 0; i < 5; i++) {
+            latencies.record("condition-" + i, 100 + i);
+            // Distinct last-used times
+            Thread.sleep(2);
+        }
+        assertEquals(3, latencies.size());
+        assertNull(latencies.expected("condition-0"));
+        assertNull(latencies.expected("condition-1"));
+        assertEquals(104, latencies.expected("condition-4"), 0.01);
+        latencies.run();
+
+        AdaptivePollingPolicy.Latencies reloaded = new AdaptivePollingPolicy.Latencies(file, 2);
+        reloaded.load();
+        assertEquals(2, reloaded.size());
+        assertNotNull(reloaded.expected("condition-4"));
+    }
+
+    @Test
+    public void testOldEntriesAgeOut() throws IOException {
+        File file = new File(tmp.getRoot(), "latencies.properties");
+        long now = System.currentTimeMillis();
+        Properties props = new Properties();
+        props.setProperty("recent", "120," + now);
+        props.setProperty("stale", "80," + (now - TimeUnit.DAYS.toMillis(40)));
+        props.setProperty("legacy", "60");
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, null);
+        }
+        AdaptivePollingPolicy.Latencies latencies = new AdaptivePollingPolicy.Latencies(file, 500);
+        latencies.load();
+        assertEquals(120, latencies.expected("recent"), 0.01);
+        // Files from before last-used times were saved are as old as the file
+        assertEquals(60, latencies.expected("legacy"), 0.01);
+        assertNull(latencies.expected("stale"));
+        latencies.run();
+        Properties saved = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            saved.load(in);
+        }
+        assertEquals(2, saved.size());
+        assertTrue(saved.getProperty("legacy"), saved.getProperty("legacy").startsWith("60,"));
+    }
+
+    private static WebElement element(String sessionId, String elementId, String locator, String term) {
+        FoundElement result = new FoundElement();
+        result.setId(elementId);
+        result.foundBy(new Context("ChromeDriver: chrome on LINUX (" + sessionId + ")"), locator, term);
+        return result;
+    }
+
+    static final class FoundElement extends RemoteWebElement {
+
+        void foundBy(SearchContext context, String locator, String term) {
+            setFoundBy(context, locator, term);
+        }
+    }
+
+    static final class Context implements SearchContext {
+
+        private final String name;
+
+        Context(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
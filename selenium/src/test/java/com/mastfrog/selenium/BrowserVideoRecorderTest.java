@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.mastfrog.settings.Settings;
+import com.mastfrog.settings.SettingsBuilder;
+import com.mastfrog.shutdown.hooks.ShutdownHookRegistry;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class BrowserVideoRecorderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testWritesOnlyChangedFramesWithDurations() throws Exception {
+        Settings settings = new SettingsBuilder()
+                .add("record.video", "true")
+                .add("video.browser.dir", tmp.getRoot().getPath())
+                .add("video.browser.interval.millis", "20")
+                .add("video.browser.idle.millis", "400")
+                .build();
+        FakeBrowser browser = new FakeBrowser();
+        RemoteWebDriver driver = new RemoteWebDriver(browser, new DesiredCapabilities());
+        BrowserVideoRecorder recorder = new BrowserVideoRecorder(settings, ShutdownHookRegistry.shutdownHookRegistry());
+        long started = System.nanoTime();
+        recorder.attach(driver);
+
+        // Nothing is happening, so the page is hardly asked anything
+        Thread.sleep(700);
+        assertEquals(1, browser.count(DriverCommand.SCREENSHOT));
+        int looks = browser.count(DriverCommand.EXECUTE_SCRIPT);
+        assertTrue("Looked " + looks + " times while idle", looks >= 1 && looks <= 3);
+        assertTrue(browser.count(DriverCommand.GET_ALERT_TEXT) <= looks);
+
+        // The test does something that changes the page
+        browser.changes.incrementAndGet();
+        driver.getTitle();
+        Thread.sleep(200);
+        assertEquals(2, browser.count(DriverCommand.SCREENSHOT));
+
+        // Busy, but nothing changes
+        for (int i = 0; i < 10; i++) {
+            driver.getTitle();
+            Thread.sleep(20);
+        }
+        assertEquals(2, browser.count(DriverCommand.SCREENSHOT));
+        recorder.stop();
+        double elapsed = (System.nanoTime() - started) / 1000000000D;
+
+        File[] dirs = tmp.getRoot().listFiles();
+        assertNotNull(dirs);
+        assertEquals(1, dirs.length);
+        File playlist = new File(dirs[0], "browser.ffconcat");
+        assertTrue(playlist.exists());
+        List<String> lines = Files.readAllLines(playlist.toPath(), StandardCharsets.UTF_8);
+        assertEquals(lines.toString(), 6, lines.size());
+        assertEquals("ffconcat version 1.0", lines.get(0));
+        assertEquals("file 'frame-000001.jpg'", lines.get(1));
+        assertEquals("file 'frame-000002.jpg'", lines.get(3));
+        // Listed again, or ffmpeg ignores its duration
+        assertEquals("file 'frame-000002.jpg'", lines.get(5));
+        double first = duration(lines.get(2));
+        double second = duration(lines.get(4));
+        assertTrue(lines.toString(), first >= 0.6 && first < elapsed);
+        assertTrue(lines.toString(), second >= 0.2 && second < elapsed);
+        assertTrue(lines.toString(), first + second <= elapsed);
+        for (String name : new String[]{"frame-000001.jpg", "frame-000002.jpg"}) {
+            assertNotNull(name, ImageIO.read(new File(dirs[0], name)));
+        }
+        assertEquals(3, dirs[0].list().length);
+    }
+
+    private static double duration(String line) {
+        assertTrue(line, line.startsWith("duration "));
+        return Double.parseDouble(line.substring("duration ".length()));
+    }
+
+    /**
+     * Answers a RemoteWebDriver's commands as a browser showing a page which
+     * changes only when told to.
+     */
+    static final class FakeBrowser implements CommandExecutor {
+
+        final AtomicInteger changes = new AtomicInteger();
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        int count(String command) {
+            AtomicInteger result = counts.get(command);
+            return result == null ? 0 : result.get();
+        }
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            AtomicInteger count = counts.get(command.getName());
+            if (count == null) {
+                counts.putIfAbsent(command.getName(), new AtomicInteger());
+                count = counts.get(command.getName());
+            }
+            count.incrementAndGet();
+            Response result = new Response(new SessionId("fake"));
+            result.setStatus(ErrorCodes.SUCCESS);
+            switch (command.getName()) {
+                case DriverCommand.NEW_SESSION:
+                    Map<String, Object> caps = new HashMap<>();
+                    caps.put("browserName", "fake");
+                    result.setValue(caps);
+                    break;
+                case DriverCommand.EXECUTE_SCRIPT:
+                    result.setValue(changes.get() + " http://localhost/");
+                    break;
+                case DriverCommand.GET_ALERT_TEXT:
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("message", "no alert open");
+                    result.setStatus(ErrorCodes.NO_ALERT_PRESENT);
+                    result.setValue(error);
+                    break;
+                case DriverCommand.SCREENSHOT:
+                    result.setValue(screenshot(changes.get()));
+                    break;
+                default:
+                    result.setValue(null);
+            }
+            return result;
+        }
+
+        private static String screenshot(int change) throws IOException {
+            BufferedImage img = new BufferedImage(64, 48, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = img.createGraphics();
+            try {
+                g.setColor(new Color(Color.HSBtoRGB(change / 10F, 0.8F, 0.8F)));
+                g.fillRect(0, 0, 64, 48);
+            } finally {
+                g.dispose();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(img, "png", out);
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        }
+    }
+}
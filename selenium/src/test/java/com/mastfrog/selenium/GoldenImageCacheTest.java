@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class GoldenImageCacheTest {
+
+    private static final int MAGIC = 0x474C4431;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testIdenticalScreenshotMatches() throws IOException {
+        BufferedImage img = image(0x112233, 150);
+        File golden = png(img, "same.png");
+        GoldenImageCache cache = new GoldenImageCache(tmp.newFolder("cache"));
+        ImageComparator.Result result = cache.compare(copy(img), golden, 0);
+        assertFalse(result.diverged);
+        assertEquals(0, result.deviation, 0);
+        BufferedImage different = copy(img);
+        different.setRGB(5, 140, 0xFFFFFF);
+        assertTrue(cache.compare(different, golden, 0).diverged);
+        assertFalse(cache.compare(different, golden, 0.01).diverged);
+    }
+
+    @Test
+    public void testChangedGoldenImageIsReread() throws IOException {
+        BufferedImage first = image(0x000000, 100);
+        BufferedImage second = image(0xFFFFFF, 100);
+        File golden = png(first, "changes.png");
+        GoldenImageCache cache = new GoldenImageCache(tmp.newFolder("cache"));
+        assertFalse(cache.compare(first, golden, 0).diverged);
+        long modified = golden.lastModified();
+        png(second, "changes.png");
+        // Whatever the file system's timestamp resolution
+        assertTrue(golden.setLastModified(modified + 5000));
+        assertTrue(cache.compare(first, golden, 0).diverged);
+        assertFalse(cache.compare(second, golden, 0).diverged);
+        assertEquals(0xFFFFFF, cache.image(golden).getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    public void testBandHashesArePersisted() throws IOException {
+        BufferedImage img = image(0x445566, 200);
+        img.setRGB(3, 130, 0x010203);
+        File golden = png(img, "persisted.png");
+        File dir = tmp.newFolder("cache");
+        new GoldenImageCache(dir).compare(img, golden, 0);
+        File hashFile = hashFile(dir, golden);
+        assertTrue(hashFile + " not written", hashFile.exists());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hashFile)))) {
+            assertEquals(MAGIC, in.readInt());
+            assertEquals(ImageComparator.BAND_HEIGHT, in.readInt());
+            assertEquals(golden.getAbsolutePath(), in.readUTF());
+            assertEquals(golden.lastModified(), in.readLong());
+            assertEquals(golden.length(), in.readLong());
+            assertEquals(img.getWidth(), in.readInt());
+            assertEquals(img.getHeight(), in.readInt());
+            long[] hashes = new long[ImageComparator.bandCount(img.getHeight())];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = in.readLong();
+            }
+            assertArrayEquals(ImageComparator.bandHashes(img), hashes);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testPersistedHashesAvoidDecoding() throws IOException {
+        BufferedImage img = image(0x778899, 150);
+        // Not an image at all, so matching it can only come from the hashes
+        File golden = tmp.newFile("undecodable.png");
+        Files.write(golden.toPath(), "not a png".getBytes(StandardCharsets.UTF_8));
+        File dir = tmp.newFolder("cache");
+        writeHashes(dir, golden, golden.lastModified(), img);
+        ImageComparator.Result result = new GoldenImageCache(dir).compare(copy(img), golden, 0);
+        assertFalse(result.diverged);
+        assertEquals(0, result.deviation, 0);
+    }
+
+    @Test
+    public void testStalePersistedHashesAreIgnored() throws IOException {
+        BufferedImage img = image(0x778899, 150);
+        File golden = tmp.newFile("stale.png");
+        Files.write(golden.toPath(), "not a png".getBytes(StandardCharsets.UTF_8));
+        File dir = tmp.newFolder("cache");
+        writeHashes(dir, golden, golden.lastModified() - 5000, img);
+        try {
+            new GoldenImageCache(dir).compare(copy(img), golden, 0);
+            fail("Hashes for an older file should not have been used");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Not an image"));
+        }
+    }
+
+    private static File hashFile(File dir, File golden) {
+        return new File(dir, Integer.toHexString(golden.getAbsolutePath().hashCode())
+                + "-" + golden.getName() + ".hashes");
+    }
+
+    private static void writeHashes(File dir, File golden, long lastModified, BufferedImage img) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(hashFile(dir, golden)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(ImageComparator.BAND_HEIGHT);
+            out.writeUTF(golden.getAbsolutePath());
+            out.writeLong(lastModified);
+            out.writeLong(golden.length());
+            out.writeInt(img.getWidth());
+            out.writeInt(img.getHeight());
+            for (long hash : ImageComparator.bandHashes(img)) {
+                out.writeLong(hash);
+            }
+        }
+    }
+
+    private File png(BufferedImage img, String name) throws IOException {
+        File result = new File(tmp.getRoot(), name);
+        assertTrue(ImageIO.write(img, "png", result));
+        return result;
+    }
+
+    private static BufferedImage image(int rgb, int height) {
+        BufferedImage result = new BufferedImage(80, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < 80; x++) {
+                result.setRGB(x, y, rgb);
+            }
+        }
+        return result;
+    }
+
+    private static BufferedImage copy(BufferedImage img) {
+        BufferedImage result = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+        result.getGraphics().drawImage(img, 0, 0, null);
+        return result;
+    }
+}
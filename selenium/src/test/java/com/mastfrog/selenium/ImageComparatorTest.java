@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.assertthat.selenium_shutterbug.utils.image.ImageProcessor;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ImageComparatorTest {
+
+    private static final double[] DEVIATIONS = {0, 0.0001, 0.001, 0.005, 0.01, 0.05, 0.1, 0.3, 0.6, 1};
+
+    @Test
+    public void testDeviationMatchesShutterbug() {
+        Random rnd = new Random(20260101L);
+        for (int i = 0; i < 6; i++) {
+            BufferedImage expected = random(rnd, 97 + i * 13, 71 + i * 29, BufferedImage.TYPE_INT_RGB);
+            BufferedImage actual = copy(expected, i % 2 == 0 ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_3BYTE_BGR);
+            scribble(rnd, actual, i * i * 300);
+            double deviation = naiveDeviation(actual, expected);
+            ImageComparator.Result full = ImageComparator.compare(actual, expected, 1);
+            assertFalse(full.diverged);
+            assertEquals(deviation, full.deviation, 1e-12);
+            for (double max : DEVIATIONS) {
+                assertSameAsShutterbug(actual, expected, max);
+            }
+            // Either side of the actual deviation
+            assertSameAsShutterbug(actual, expected, deviation * 0.999);
+            assertSameAsShutterbug(actual, expected, deviation * 1.001);
+        }
+    }
+
+    private static void assertSameAsShutterbug(BufferedImage actual, BufferedImage expected, double max) {
+        ImageComparator.Result result = ImageComparator.compare(actual, expected, max);
+        assertEquals("Shutterbug disagrees at " + max + ": " + result,
+                !ImageProcessor.imagesAreEquals(actual, expected, max), result.diverged);
+    }
+
+    @Test
+    public void testIdenticalImagesMatchAtZero() {
+        BufferedImage img = random(new Random(3), 120, 90, BufferedImage.TYPE_INT_RGB);
+        ImageComparator.Result result = ImageComparator.compare(copy(img, BufferedImage.TYPE_3BYTE_BGR), img, 0);
+        assertFalse(result.diverged);
+        assertEquals(0, result.deviation, 0);
+    }
+
+    @Test
+    public void testAlphaIsIgnored() {
+        BufferedImage rgb = random(new Random(4), 40, 40, BufferedImage.TYPE_INT_RGB);
+        BufferedImage argb = copy(rgb, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < argb.getHeight(); y++) {
+            argb.setRGB(0, y, argb.getRGB(0, y) & 0x7FFFFFFF);
+        }
+        assertEquals(0, ImageComparator.compare(argb, rgb, 0).deviation, 0);
+    }
+
+    @Test
+    public void testStopsEarly() {
+        BufferedImage black = solid(300, 300, 0x000000);
+        BufferedImage white = solid(300, 300, 0xFFFFFF);
+        assertEquals(1, ImageComparator.compare(black, white, 1).deviation, 1e-12);
+        ImageComparator.Result result = ImageComparator.compare(black, white, 0.01);
+        assertTrue(result.diverged);
+        // Stopped after the first row past the limit, so the deviation is a
+        // lower bound - one row of 300 is a third of a percent
+        assertTrue(result.toString(), result.deviation > 0.01);
+        assertTrue(result.toString(), result.deviation < 0.02);
+    }
+
+    @Test
+    public void testBandedComparisonOnForkJoinPool() {
+        // Large enough to be split into bands compared in parallel
+        Random rnd = new Random(5);
+        BufferedImage expected = random(rnd, 640, 1000, BufferedImage.TYPE_INT_RGB);
+        BufferedImage actual = copy(expected, BufferedImage.TYPE_INT_RGB);
+        // Differences at the edges of bands, and in the last, partial band
+        int[] rows = {0, ImageComparator.BAND_HEIGHT - 1, ImageComparator.BAND_HEIGHT, 511, 512, 999};
+        for (int y : rows) {
+            for (int x = 0; x < 640; x += 3) {
+                actual.setRGB(x, y, actual.getRGB(x, y) ^ 0x0F0F0F);
+            }
+        }
+        double deviation = naiveDeviation(actual, expected);
+        assertTrue(deviation > 0);
+        ImageComparator.Result result = ImageComparator.compare(actual, expected, 1);
+        assertFalse(result.diverged);
+        assertEquals(deviation, result.deviation, 1e-12);
+        assertEquals(deviation, ImageComparator.compare(copy(actual, BufferedImage.TYPE_3BYTE_BGR),
+                copy(expected, BufferedImage.TYPE_4BYTE_ABGR), 1).deviation, 1e-12);
+        assertTrue(ImageComparator.compare(actual, expected, deviation / 2).diverged);
+        assertFalse(ImageComparator.compare(actual, expected, deviation * 2).diverged);
+    }
+
+    @Test
+    public void testIdenticalBandsAreSkipped() {
+        BufferedImage expected = solid(100, 200, 0x336699);
+        BufferedImage actual = solid(100, 200, 0x336699);
+        for (int x = 0; x < 100; x++) {
+            actual.setRGB(x, 10, 0xFFFFFF);
+            actual.setRGB(x, 150, 0xFFFFFF);
+        }
+        boolean[] identical = new boolean[ImageComparator.bandCount(200)];
+        assertEquals(4, identical.length);
+        double both = ImageComparator.compare(actual, expected, 1, identical).deviation;
+        identical[0] = true;
+        double one = ImageComparator.compare(actual, expected, 1, identical).deviation;
+        assertEquals(both / 2, one, 1e-12);
+        identical[2] = true;
+        assertEquals(0, ImageComparator.compare(actual, expected, 1, identical).deviation, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch() {
+        ImageComparator.compare(solid(10, 10, 0), solid(10, 11, 0), 0.1);
+    }
+
+    @Test
+    public void testBandHashesIgnoreImageType() {
+        BufferedImage img = random(new Random(6), 50, 150, BufferedImage.TYPE_INT_RGB);
+        long[] hashes = ImageComparator.bandHashes(img);
+        assertEquals(3, hashes.length);
+        assertArrayEquals(hashes, ImageComparator.bandHashes(copy(img, BufferedImage.TYPE_3BYTE_BGR)));
+        assertArrayEquals(hashes, ImageComparator.bandHashes(copy(img, BufferedImage.TYPE_4BYTE_ABGR)));
+        assertArrayEquals(hashes, ImageComparator.bandHashes(copy(img, BufferedImage.TYPE_INT_ARGB)));
+        img.setRGB(0, 70, ~img.getRGB(0, 70));
+        long[] changed = ImageComparator.bandHashes(img);
+        assertEquals(hashes[0], changed[0]);
+        assertNotEquals(hashes[1], changed[1]);
+        assertEquals(hashes[2], changed[2]);
+    }
+
+    @Test
+    public void testRowsMatchGetRgb() {
+        BufferedImage img = random(new Random(7), 33, 20, BufferedImage.TYPE_INT_RGB);
+        assertNull(ImageComparator.packedPixels(copy(img, BufferedImage.TYPE_3BYTE_BGR)));
+        int[] expected = img.getRGB(0, 5, 33, 7, null, 0, 33);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] &= 0xFFFFFF;
+        }
+        assertArrayEquals(expected, ImageComparator.rows(copy(img, BufferedImage.TYPE_3BYTE_BGR), 5, 7));
+        assertArrayEquals(expected, ImageComparator.rows(copy(img, BufferedImage.TYPE_4BYTE_ABGR), 5, 7));
+    }
+
+    /**
+     * The deviation as Shutterbug computes it, pixel by pixel.
+     */
+    private static double naiveDeviation(BufferedImage a, BufferedImage b) {
+        double sum = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                int pa = a.getRGB(x, y);
+                int pb = b.getRGB(x, y);
+                sum += Math.abs(((pa >> 16) & 0xFF) - ((pb >> 16) & 0xFF))
+                        + Math.abs(((pa >> 8) & 0xFF) - ((pb >> 8) & 0xFF))
+                        + Math.abs((pa & 0xFF) - (pb & 0xFF));
+            }
+        }
+        return sum / ((double) a.getWidth() * a.getHeight() * 3 * 255);
+    }
+
+    private static BufferedImage random(Random rnd, int width, int height, int type) {
+        BufferedImage result = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.setRGB(x, y, 0xFF000000 | rnd.nextInt(0x1000000));
+            }
+        }
+        return result;
+    }
+
+    private static BufferedImage solid(int width, int height, int rgb) {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.setRGB(x, y, rgb);
+            }
+        }
+        return result;
+    }
+
+    private static BufferedImage copy(BufferedImage img, int type) {
+        BufferedImage result = new BufferedImage(img.getWidth(), img.getHeight(), type);
+        result.getGraphics().drawImage(img, 0, 0, null);
+        return result;
+    }
+
+    private static void scribble(Random rnd, BufferedImage img, int pixels) {
+        for (int i = 0; i < pixels; i++) {
+            int x = rnd.nextInt(img.getWidth());
+            int y = rnd.nextInt(img.getHeight());
+            img.setRGB(x, y, 0xFF000000 | rnd.nextInt(0x1000000));
+        }
+    }
+}
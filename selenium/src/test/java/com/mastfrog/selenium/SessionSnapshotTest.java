@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium;
+
+import com.google.inject.Inject;
+import com.mastfrog.giulius.annotations.Defaults;
+import com.mastfrog.settings.Settings;
+import com.mastfrog.settings.SettingsBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+@RunWith(SeleniumRunner.class)
+@Defaults({"browser=htmlunit", "_baseUrl=http://localhost:9225/", "webdriver.maximize=false",
+    "login.user=someone"})
+public class SessionSnapshotTest {
+
+    private static final AtomicInteger LOGINS = new AtomicInteger();
+    private static final AtomicInteger TESTS = new AtomicInteger();
+    private static HttpServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 9225), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().startsWith("/login")) {
+                    exchange.getResponseHeaders().add("Set-Cookie", "session=" + LOGINS.get() + "; Path=/");
+                }
+                byte[] body = "<html><head><title>Snapshots</title></head><body>Hello</body></html>"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+    }
+
+    private static String clipProperty(String method) {
+        return "test.video." + SessionSnapshotTest.class.getName() + "#" + method;
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+        System.clearProperty(clipProperty("first"));
+        System.clearProperty(clipProperty("second"));
+        // The second test restored the first one's login
+        assertEquals(2, TESTS.get());
+        assertEquals(1, LOGINS.get());
+    }
+
+    @Test
+    @Fixtures(Login.class)
+    public void first(WebDriver driver) {
+        assertLoggedIn(driver, "first");
+    }
+
+    @Test
+    @Fixtures(Login.class)
+    public void second(WebDriver driver) {
+        assertLoggedIn(driver, "second");
+    }
+
+    private static void assertLoggedIn(WebDriver driver, String method) {
+        TESTS.incrementAndGet();
+        // As the video recorders do, so the next test's settings differ
+        System.setProperty(clipProperty(method), method + ".mjpeg");
+        Cookie cookie = driver.manage().getCookieNamed("session");
+        assertNotNull(cookie);
+        assertEquals("1", cookie.getValue());
+        assertEquals("http://localhost:9225/login", driver.getCurrentUrl());
+    }
+
+    @Test
+    public void testKeyIgnoresPerTestSettings() throws IOException {
+        Settings one = new SettingsBuilder()
+                .add("browser", "htmlunit").add("_baseUrl", "http://localhost:9225/")
+                .add("testMethodQname", "a.B.first").add("test.screenshots.a.B#first", "x.png")
+                .add("login.user", "someone").build();
+        Settings two = new SettingsBuilder()
+                .add("browser", "htmlunit").add("_baseUrl", "http://localhost:9225/")
+                .add("testMethodQname", "a.B.second").add("video.file", "y.mp4")
+                .add("login.user", "someone").build();
+        assertEquals(SessionSnapshot.key(Login.class, one), SessionSnapshot.key(Login.class, two));
+
+        Settings otherBrowser = new SettingsBuilder()
+                .add("browser", "firefox").add("_baseUrl", "http://localhost:9225/")
+                .add("login.user", "someone").build();
+        assertNotEquals(SessionSnapshot.key(Login.class, one), SessionSnapshot.key(Login.class, otherBrowser));
+        // A setting the fixture names
+        Settings otherUser = new SettingsBuilder()
+                .add("browser", "htmlunit").add("_baseUrl", "http://localhost:9225/")
+                .add("login.user", "someone.else").build();
+        assertNotEquals(SessionSnapshot.key(Login.class, one), SessionSnapshot.key(Login.class, otherUser));
+        assertNotEquals(SessionSnapshot.key(Login.class, one), SessionSnapshot.key(OtherLogin.class, one));
+    }
+
+    @SnapshotSession(settings = "login.user")
+    static class Login {
+
+        @Inject
+        Login(WebDriver driver) {
+            LOGINS.incrementAndGet();
+            driver.get("http://localhost:9225/login");
+        }
+    }
+
+    @SnapshotSession
+    static class OtherLogin {
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import com.google.inject.Inject;
+import static com.mastfrog.selenium.index.PageModelSources.compile;
+import static com.mastfrog.selenium.index.PageModelSources.lines;
+import static com.mastfrog.selenium.index.PageModelSources.loader;
+import static com.mastfrog.selenium.index.PageModelSources.source;
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.tools.JavaFileObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class PageModelIndexProcessorTest {
+
+    private static final String[] TYPES = {"p.Base", "p.Inherited", "p.Deep", "p.Chains",
+        "p.Outer", "p.Outer$Nested", "p.Outer$Hidden", "p.Outer$Inner", "p.Generic",
+        "p.GenericSub", "p.Cached", "p.Plain", "p.Unannotated"};
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testIndexMatchesReflectiveCheck() throws Exception {
+        File classes = compile(tmp.newFolder("indexed"), true, samples());
+        assertEquals(Arrays.asList("p.Base", "p.Cached", "p.Chains", "p.Generic",
+                "p.Outer$Hidden", "p.Outer$Inner", "p.Outer$Nested"),
+                lines(classes, PageModelIndex.PAGE_MODELS_FILE));
+        assertEquals(Arrays.asList("p.Plain:p.Base", "p.Plain:p.Chains", "p.Plain:p.Inherited"),
+                lines(classes, PageModelIndex.PAGE_MODEL_DEPENDENCIES_FILE));
+        assertAgreesWithReflection(loader(classes));
+    }
+
+    @Test
+    public void testUnindexedTypesAreScanned() throws Exception {
+        File classes = compile(tmp.newFolder("plain"), false, samples());
+        assertFalse(new File(classes, PageModelIndex.PAGE_MODELS_FILE).exists());
+        assertAgreesWithReflection(loader(classes));
+    }
+
+    @Test
+    public void testIndexIsWhatAnswers() throws Exception {
+        File classes = compile(tmp.newFolder("emptied"), true, samples());
+        // Types from an indexed location are not scanned, so an index which
+        // lists nothing means nothing is a page model
+        Files.write(new File(classes, PageModelIndex.PAGE_MODELS_FILE).toPath(), new byte[0]);
+        ClassLoader ldr = loader(classes);
+        for (String name : TYPES) {
+            Class<?> type = Class.forName(name, false, ldr);
+            assertFalse(name, PageModelIndex.forType(type).isPageModel(type));
+        }
+    }
+
+    private void assertAgreesWithReflection(ClassLoader ldr) throws ClassNotFoundException {
+        Set<String> pageModels = new LinkedHashSet<>();
+        for (String name : TYPES) {
+            Class<?> type = Class.forName(name, false, ldr);
+            PageModelIndex index = PageModelIndex.forType(type);
+            boolean expected = hasSeleniumAnnotations(type);
+            assertEquals(name, expected, index.isPageModel(type));
+            assertEquals(name, scanDependencies(type), index.pageModelDependencies(type));
+            if (expected) {
+                pageModels.add(name);
+            }
+        }
+        assertEquals(new LinkedHashSet<>(Arrays.asList("p.Base", "p.Inherited", "p.Deep", "p.Chains",
+                "p.Outer$Nested", "p.Outer$Hidden", "p.Outer$Inner", "p.Generic", "p.GenericSub",
+                "p.Cached")), pageModels);
+        Class<?> plain = Class.forName("p.Plain", false, ldr);
+        assertEquals(new LinkedHashSet<>(Arrays.asList(Class.forName("p.Base", false, ldr),
+                Class.forName("p.Chains", false, ldr), Class.forName("p.Inherited", false, ldr))), PageModelIndex.forType(plain).pageModelDependencies(plain));
+    }
+
+    // What SeleniumRunner did before there was an index
+    private static boolean hasSeleniumAnnotations(Class<?> type) {
+        while (type != null && type != Object.class) {
+            for (Annotation anno : type.getAnnotations()) {
+                if (isSeleniumAnnotation(anno)) {
+                    return true;
+                }
+            }
+            for (Field field : type.getDeclaredFields()) {
+                for (Annotation anno : field.getAnnotations()) {
+                    if (isSeleniumAnnotation(anno)) {
+                        return true;
+                    }
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return false;
+    }
+
+    private static boolean isSeleniumAnnotation(Annotation anno) {
+        return "org.openqa.selenium.support".equals(anno.annotationType().getPackage().getName());
+    }
+
+    private static Set<Class<?>> scanDependencies(Class<?> type) {
+        Set<Class<?>> result = new LinkedHashSet<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getAnnotation(Inject.class) != null && hasSeleniumAnnotations(field.getType())) {
+                result.add(field.getType());
+            }
+        }
+        for (Constructor<?> c : type.getDeclaredConstructors()) {
+            if (c.getAnnotation(Inject.class) != null) {
+                for (Class<?> param : c.getParameterTypes()) {
+                    if (hasSeleniumAnnotations(param)) {
+                        result.add(param);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static JavaFileObject[] samples() {
+        return new JavaFileObject[]{
+            source("p.Base",
+            "package p;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Base {",
+            "  @FindBy(id = \"base\") protected WebElement base;",
+            "}"),
+            source("p.Inherited",
+            "package p;",
+            "public class Inherited extends Base {",
+            "  public String text;",
+            "}"),
+            source("p.Deep",
+            "package p;",
+            "public class Deep extends Inherited {",
+            "}"),
+            source("p.Chains",
+            "package p;",
+            "import java.util.List;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindAll;",
+            "import org.openqa.selenium.support.FindBy;",
+            "import org.openqa.selenium.support.FindBys;",
+            "public class Chains {",
+            "  @FindBys({@FindBy(id = \"a\"), @FindBy(css = \".b\")}) public List<WebElement> chained;",
+            "  @FindAll({@FindBy(name = \"c\"), @FindBy(tagName = \"d\")}) public List<WebElement> any;",
+            "}"),
+            source("p.Outer",
+            "package p;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Outer {",
+            "  public WebElement notAnnotated;",
+            "  public static class Nested {",
+            "    @FindBy(xpath = \"//x\") public WebElement x;",
+            "  }",
+            "  private static class Hidden {",
+            "    @FindBy(id = \"h\") private WebElement h;",
+            "  }",
+            "  public class Inner {",
+            "    @FindBy(id = \"i\") WebElement i;",
+            "  }",
+            "}"),
+            source("p.Generic",
+            "package p;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Generic<T> {",
+            "  @FindBy(id = \"g\") public WebElement g;",
+            "  public T value;",
+            "}"),
+            source("p.GenericSub",
+            "package p;",
+            "public class GenericSub extends Generic<String> {",
+            "}"),
+            source("p.Cached",
+            "package p;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.CacheLookup;",
+            "public class Cached {",
+            "  @CacheLookup public WebElement cached;",
+            "}"),
+            source("p.Plain",
+            "package p;",
+            "import com.google.inject.Inject;",
+            "public class Plain {",
+            "  @Inject Base base;",
+            "  @Inject Unannotated unannotated;",
+            "  @Inject public Plain(Chains chains, Inherited inherited, String name) {}",
+            "}"),
+            source("p.Unannotated",
+            "package p;",
+            "import java.util.List;",
+            "import org.openqa.selenium.WebElement;",
+            "public class Unannotated {",
+            "  public WebElement element;",
+            "  public List<WebElement> elements;",
+            "}")};
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import static com.mastfrog.selenium.index.PageModelSources.compile;
+import static com.mastfrog.selenium.index.PageModelSources.lines;
+import static com.mastfrog.selenium.index.PageModelSources.loader;
+import static com.mastfrog.selenium.index.PageModelSources.source;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.JavaFileObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.PageFactory;
+import org.openqa.selenium.support.pagefactory.Annotations;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class PageModelInitializerGeneratorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+    private ClassLoader ldr;
+    private File classes;
+
+    @Before
+    public void setUp() throws Exception {
+        classes = compile(tmp.newFolder("classes"), true, samples());
+        ldr = loader(classes);
+    }
+
+    @Test
+    public void testInitializersAreGeneratedOnlyForSupportedModels() throws Exception {
+        List<String> models = new ArrayList<>();
+        for (String line : lines(classes, PageModelIndex.PAGE_MODEL_INITIALIZERS_FILE)) {
+            models.add(line.substring(0, line.indexOf(':')));
+        }
+        assertEquals(Arrays.asList("q.Form", "q.Sub", "q.WithDriver"), models);
+        for (String name : new String[]{"q.PrivateField", "q.Generic", "q.Outer$Inner"}) {
+            Class<?> type = Class.forName(name, false, ldr);
+            assertNull(name, PageModelIndex.forType(type).initializer(type));
+        }
+    }
+
+    @Test
+    public void testLocatorsMatchPageFactory() throws Exception {
+        for (String name : new String[]{"q.Form", "q.Sub", "q.WithDriver"}) {
+            Class<?> type = Class.forName(name, true, ldr);
+            Object generated = generated(type);
+            Object reflective = PageFactory.initElements(new Driver().driver, type);
+            for (Field field : decoratedFields(type)) {
+                String expected = new Annotations(field).buildBy().toString();
+                assertEquals(name + "." + field.getName(), Collections.singletonList(expected), touch(generated, field));
+                assertEquals(name + "." + field.getName(), Collections.singletonList(expected), touch(reflective, field));
+            }
+        }
+    }
+
+    @Test
+    public void testLookupsMatchPageFactory() throws Exception {
+        for (String name : new String[]{"q.Form", "q.Sub", "q.WithDriver"}) {
+            Class<?> type = Class.forName(name, true, ldr);
+            Object generated = generated(type);
+            Object reflective = PageFactory.initElements(new Driver().driver, type);
+            for (Field field : decoratedFields(type)) {
+                // Twice, to see whether the lookup is cached
+                List<String> expected = touch(reflective, field);
+                expected.addAll(touch(reflective, field));
+                List<String> got = touch(generated, field);
+                got.addAll(touch(generated, field));
+                assertEquals(name + "." + field.getName(), expected, got);
+                boolean cached = field.getName().startsWith("cached");
+                assertEquals(name + "." + field.getName() + " " + got, cached ? 1 : 2, got.size());
+            }
+            for (Object model : new Object[]{generated, reflective}) {
+                assertEquals("untouched", type.getField("title").get(model));
+                assertNull(type.getField("unannotatedList").get(model));
+            }
+        }
+    }
+
+    @Test
+    public void testCreateUsesDriverConstructor() throws Exception {
+        Class<?> type = Class.forName("q.WithDriver", true, ldr);
+        Driver driver = new Driver();
+        Object model = PageModelIndex.forType(type).instantiate(driver.driver, type);
+        assertTrue(model.getClass().getName(), PageModelIndex.forType(type).initializer(type) != null);
+        assertSame(driver.driver, type.getField("driver").get(model));
+        assertFalse(Proxy.isProxyClass(type.getField("d").get(model).getClass()));
+    }
+
+    @Test
+    public void testUnsupportedModelsFallBackToPageFactory() throws Exception {
+        for (String name : new String[]{"q.PrivateField", "q.Generic"}) {
+            Class<?> type = Class.forName(name, true, ldr);
+            Driver driver = new Driver();
+            Object model = PageModelIndex.forType(type).instantiate(driver.driver, type);
+            Field field = type.getDeclaredField("hidden");
+            field.setAccessible(true);
+            Object element = field.get(model);
+            assertNotNull(name, element);
+            assertTrue(name, Proxy.isProxyClass(element.getClass()));
+            ((WebElement) element).getTagName();
+            assertEquals(name, Collections.singletonList(By.id("hidden").toString()), driver.lookups);
+        }
+    }
+
+    private Object generated(Class<?> type) {
+        @SuppressWarnings("unchecked")
+        PageModelInitializer<Object> init = (PageModelInitializer<Object>) PageModelIndex.forType(type).initializer(type);
+        assertNotNull(type.getName(), init);
+        return init.create(new Driver().driver);
+    }
+
+    private static List<Field> decoratedFields(Class<?> type) {
+        List<Field> result = new ArrayList<>();
+        for (Field field : type.getFields()) {
+            // PageFactory leaves unannotated lists alone
+            if (field.getType() == WebElement.class || (field.getType() == List.class
+                    && (field.isAnnotationPresent(FindBy.class) || field.isAnnotationPresent(FindBys.class)
+                    || field.isAnnotationPresent(FindAll.class)))) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> touch(Object model, Field field) throws Exception {
+        Object value = field.get(model);
+        Driver driver = driverOf(value);
+        int start = driver.lookups.size();
+        if (value instanceof WebElement) {
+            ((WebElement) value).getTagName();
+        } else {
+            ((List<?>) value).size();
+        }
+        return new ArrayList<>(driver.lookups.subList(start, driver.lookups.size()));
+    }
+
+    private static Driver driverOf(Object element) throws Exception {
+        // Dig the search context out of a lazy element or a PageFactory proxy
+        Object context;
+        if (Proxy.isProxyClass(element.getClass())) {
+            Object handler = Proxy.getInvocationHandler(element);
+            Object locator = field(handler, "locator");
+            context = field(locator, "searchContext");
+        } else {
+            context = field(element, "context");
+        }
+        return (Driver) Proxy.getInvocationHandler(context);
+    }
+
+    private static Object field(Object o, String name) throws Exception {
+        for (Class<?> type = o.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field f = type.getDeclaredField(name);
+                f.setAccessible(true);
+                return f.get(o);
+            } catch (NoSuchFieldException ex) {
+                // try the superclass
+            }
+        }
+        throw new NoSuchFieldException(name + " on " + o.getClass().getName());
+    }
+
+    static final class Driver implements InvocationHandler {
+
+        final List<String> lookups = new ArrayList<>();
+        final WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class}, this);
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "findElement":
+                    lookups.add(args[0].toString());
+                    return element();
+                case "findElements":
+                    lookups.add(args[0].toString());
+                    return Arrays.asList(element(), element());
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Driver";
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        }
+
+        private static WebElement element() {
+            return (WebElement) Proxy.newProxyInstance(Driver.class.getClassLoader(),
+                    new Class<?>[]{WebElement.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "getTagName":
+                            return "div";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Element";
+                        default:
+                            throw new UnsupportedOperationException(method.toString());
+                    }
+                }
+            });
+        }
+    }
+
+    private static JavaFileObject[] samples() {
+        return new JavaFileObject[]{
+            source("q.Form",
+            "package q;",
+            "import java.util.List;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.CacheLookup;",
+            "import org.openqa.selenium.support.FindAll;",
+            "import org.openqa.selenium.support.FindBy;",
+            "import org.openqa.selenium.support.FindBys;",
+            "import org.openqa.selenium.support.How;",
+            "public class Form {",
+            "  @FindBy(id = \"user\") public WebElement user;",
+            "  public WebElement password;",
+            "  @FindBy(how = How.CSS, using = \".btn\") public WebElement submit;",
+            "  @FindBy(how = How.ID_OR_NAME, using = \"q\") public WebElement query;",
+            "  @FindBy(using = \"bare\") public WebElement bare;",
+            "  @FindBy(id = \"quote\\\"d\\\\\\u00e9\") public WebElement escaped;",
+            "  @FindBy(name = \"n\") @CacheLookup public WebElement cachedName;",
+            "  @CacheLookup public WebElement cachedByName;",
+            "  @FindBys({@FindBy(id = \"a\"), @FindBy(className = \"b\")}) public List<WebElement> chained;",
+            "  @FindAll({@FindBy(linkText = \"l\"), @FindBy(partialLinkText = \"pl\"),",
+            "      @FindBy(tagName = \"t\"), @FindBy(xpath = \"//x\")}) public List<WebElement> any;",
+            "  @FindBys({@FindBy(id = \"c\"), @FindBy(css = \"d\")}) public WebElement chainedOne;",
+            "  @FindBy(css = \"li\") @CacheLookup public List<WebElement> cachedItems;",
+            "  public List<WebElement> unannotatedList;",
+            "  public String title = \"untouched\";",
+            "}"),
+            source("q.Sub",
+            "package q;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Sub extends Form {",
+            "  @FindBy(id = \"sub\") public WebElement sub;",
+            "}"),
+            source("q.WithDriver",
+            "package q;",
+            "import java.util.List;",
+            "import org.openqa.selenium.WebDriver;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class WithDriver {",
+            "  public final WebDriver driver;",
+            "  @FindBy(id = \"d\") public WebElement d;",
+            "  public List<WebElement> unannotatedList;",
+            "  public String title = \"untouched\";",
+            "  public WithDriver(WebDriver driver) {",
+            "    this.driver = driver;",
+            "  }",
+            "}"),
+            source("q.PrivateField",
+            "package q;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class PrivateField {",
+            "  @FindBy(id = \"hidden\") private WebElement hidden;",
+            "}"),
+            source("q.Generic",
+            "package q;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Generic<T> {",
+            "  @FindBy(id = \"hidden\") public WebElement hidden;",
+            "  public T value;",
+            "}"),
+            source("q.Outer",
+            "package q;",
+            "import org.openqa.selenium.WebElement;",
+            "import org.openqa.selenium.support.FindBy;",
+            "public class Outer {",
+            "  public class Inner {",
+            "    @FindBy(id = \"i\") public WebElement i;",
+            "  }",
+            "}")};
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.selenium.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles sample page models for the index and initializer tests.
+ *
+ * @author Tim Boudreau
+ */
+final class PageModelSources {
+
+    private PageModelSources() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Compile sources into a directory, with or without
+     * PageModelIndexProcessor.
+     *
+     * @param out The output directory
+     * @param processor Whether to run the processor
+     * @param sources The sources
+     * @return The output directory
+     */
+    static File compile(File out, boolean processor, JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("No compiler - not running on a JDK?", compiler);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = new ArrayList<>(Arrays.asList("-d", out.getPath(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-source", "8", "-target", "8", "-Xlint:-options"));
+        if (processor) {
+            options.addAll(Arrays.asList("-processor", PageModelIndexProcessor.class.getName()));
+        } else {
+            options.add("-proc:none");
+        }
+        boolean ok = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(sources)).call();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            assertTrue(d.toString(), d.getKind() != Diagnostic.Kind.ERROR);
+        }
+        assertTrue(ok);
+        return out;
+    }
+
+    static ClassLoader loader(File classes) throws IOException {
+        return new URLClassLoader(new URL[]{classes.toURI().toURL()}, PageModelSources.class.getClassLoader());
+    }
+
+    static List<String> lines(File classes, String file) throws IOException {
+        File f = new File(classes, file);
+        List<String> result = new ArrayList<>();
+        if (f.exists()) {
+            for (String line : Files.readAllLines(f.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    result.add(line);
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    static JavaFileObject source(String name, String... lines) {
+        final String text = String.join("\n", lines) + "\n";
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return text;
+            }
+        };
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Just enough of a class file parser to tell if a class is a runnable JUnit
+ * test, without loading it: its access flags, superclass, whether any public
+ * method has &#064;Test, whether it is marked &#064;Ignore, and whether it is a
+ * local or anonymous class.
+ *
+ * @author Tim Boudreau
+ */
+final class ClassFileInfo {
+
+    private static final String TEST_DESCRIPTOR = "Lorg/junit/Test;";
+    private static final String IGNORE_DESCRIPTOR = "L" + Ignore.class.getName().replace('.', '/') + ";";
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    final String name;
+    final String superName;
+    final boolean concrete;
+    final boolean hasTestMethod;
+    final boolean ignored;
+    final boolean local;
+
+    private ClassFileInfo(String name, String superName, boolean concrete, boolean hasTestMethod, boolean ignored, boolean local) {
+        this.name = name;
+        this.superName = superName;
+        this.concrete = concrete;
+        this.hasTestMethod = hasTestMethod;
+        this.ignored = ignored;
+        this.local = local;
+    }
+
+    static ClassFileInfo parse(byte[] bytes) throws IOException {
+        return new Reader(bytes).read();
+    }
+
+    private static final class Reader {
+
+        private final byte[] b;
+        private int pos;
+        private int[] offsets;
+        private String[] strings;
+
+        Reader(byte[] b) {
+            this.b = b;
+        }
+
+        ClassFileInfo read() throws IOException {
+            try {
+                if (u4() != 0xCAFEBABE) {
+                    throw new IOException("Not a class file");
+                }
+                pos += 4; // minor and major version
+                readConstantPool();
+                int access = u2();
+                String name = className(u2());
+                int superIndex = u2();
+                String superName = superIndex == 0 ? null : className(superIndex);
+                int interfaces = u2();
+                pos += 2 * interfaces;
+                int fields = u2();
+                for (int i = 0; i < fields; i++) {
+                    pos += 6;
+                    skipAttributes();
+                }
+                // Annotation descriptors are constant pool strings, so if
+                // neither is there, there is no need to look further
+                boolean mayHaveTests = indexOf(TEST_DESCRIPTOR) > 0;
+                boolean mayBeIgnored = indexOf(IGNORE_DESCRIPTOR) > 0;
+                boolean hasTestMethod = false;
+                int methods = u2();
+                for (int i = 0; i < methods; i++) {
+                    int methodAccess = u2();
+                    pos += 4;
+                    int attributes = u2();
+                    for (int j = 0; j < attributes; j++) {
+                        String attrName = utf8(u2());
+                        int length = u4();
+                        int end = pos + length;
+                        if (mayHaveTests && !hasTestMethod && (methodAccess & ACC_PUBLIC) != 0
+                                && "RuntimeVisibleAnnotations".equals(attrName)) {
+                            hasTestMethod = hasAnnotation(TEST_DESCRIPTOR);
+                        }
+                        pos = end;
+                    }
+                }
+                boolean ignored = false;
+                boolean local = false;
+                int attributes = u2();
+                for (int i = 0; i < attributes; i++) {
+                    String attrName = utf8(u2());
+                    int length = u4();
+                    int end = pos + length;
+                    if (mayBeIgnored && "RuntimeVisibleAnnotations".equals(attrName)) {
+                        ignored = hasAnnotation(IGNORE_DESCRIPTOR);
+                    } else if ("InnerClasses".equals(attrName)) {
+                        local = isLocal(name);
+                    }
+                    pos = end;
+                }
+                boolean concrete = (access & (ACC_ABSTRACT | ACC_INTERFACE)) == 0;
+                return new ClassFileInfo(name, superName, concrete, hasTestMethod, ignored, local);
+            } catch (ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("Truncated class file", ex);
+            }
+        }
+
+        private void readConstantPool() throws IOException {
+            int count = u2();
+            offsets = new int[count];
+            strings = new String[count];
+            for (int i = 1; i < count; i++) {
+                int tag = b[pos++] & 0xFF;
+                offsets[i] = pos;
+                switch (tag) {
+                    case 1: // Utf8
+                        pos += 2 + u2At(pos);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        pos += 4;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        pos += 8;
+                        i++;
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        pos += 2;
+                        break;
+                    case 15: // MethodHandle
+                        pos += 3;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " at " + pos);
+                }
+            }
+        }
+
+        private boolean hasAnnotation(String descriptor) {
+            int count = u2();
+            boolean result = false;
+            for (int i = 0; i < count; i++) {
+                result |= descriptor.equals(utf8(u2()));
+                skipElementValuePairs();
+            }
+            return result;
+        }
+
+        private void skipElementValuePairs() {
+            int pairs = u2();
+            for (int i = 0; i < pairs; i++) {
+                pos += 2;
+                skipElementValue();
+            }
+        }
+
+        private void skipElementValue() {
+            char tag = (char) (b[pos++] & 0xFF);
+            switch (tag) {
+                case 'e':
+                    pos += 4;
+                    break;
+                case '@':
+                    pos += 2;
+                    skipElementValuePairs();
+                    break;
+                case '[':
+                    int count = u2();
+                    for (int i = 0; i < count; i++) {
+                        skipElementValue();
+                    }
+                    break;
+                default:
+                    // Constants and class literals
+                    pos += 2;
+            }
+        }
+
+        private boolean isLocal(String name) {
+            int count = u2();
+            boolean result = false;
+            for (int i = 0; i < count; i++) {
+                int inner = u2();
+                int outer = u2();
+                pos += 4;
+                // No outer class means a local or anonymous class
+                if (inner != 0 && outer == 0 && name.equals(className(inner))) {
+                    result = true;
+                }
+            }
+            return result;
+        }
+
+        private void skipAttributes() {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                pos += 2;
+                pos += 4 + u4At(pos);
+            }
+        }
+
+        private int indexOf(String utf8) {
+            for (int i = 1; i < offsets.length; i++) {
+                int off = offsets[i];
+                if (off > 0 && b[off - 1] == 1 && u2At(off) == utf8.length() && utf8.equals(utf8(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private String className(int index) {
+            return utf8(u2At(offsets[index])).replace('/', '.');
+        }
+
+        private String utf8(int index) {
+            String result = strings[index];
+            if (result == null) {
+                int off = offsets[index];
+                // Class names and descriptors are close enough to UTF-8
+                result = strings[index] = new String(b, off + 2, u2At(off), StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+
+        private int u2() {
+            int result = u2At(pos);
+            pos += 2;
+            return result;
+        }
+
+        private int u4() {
+            int result = u4At(pos);
+            pos += 4;
+            return result;
+        }
+
+        private int u2At(int at) {
+            return ((b[at] & 0xFF) << 8) | (b[at + 1] & 0xFF);
+        }
+
+        private int u4At(int at) {
+            return ((b[at] & 0xFF) << 24) | ((b[at + 1] & 0xFF) << 16)
+                    | ((b[at + 2] & 0xFF) << 8) | (b[at + 3] & 0xFF);
+        }
+    }
+}
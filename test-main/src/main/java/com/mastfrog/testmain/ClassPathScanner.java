@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Finds runnable test classes on the classpath for jars built without a test
+ * index, by reading class files rather than loading classes. Classpath entries
+ * are listed in parallel, then candidate class files (names ending in Test)
+ * are read and parsed in parallel; only superclasses of candidates which do not
+ * declare their own &#064;Test methods are ever looked up individually.
+ *
+ * @author Tim Boudreau
+ */
+final class ClassPathScanner {
+
+    private final ClassLoader loader;
+    private final PackageFilter filter;
+    private final Set<File> skip;
+    private final Map<String, ClassFileInfo> superclasses = new HashMap<>();
+
+    ClassPathScanner(ClassLoader loader, PackageFilter filter) {
+        this(loader, filter, Collections.<File>emptySet());
+    }
+
+    /**
+     * Create a scanner which skips some classpath entries, such as those
+     * with a test index.
+     *
+     * @param loader The class loader
+     * @param filter Decides which packages to include
+     * @param skip Classpath entries not to scan
+     */
+    ClassPathScanner(ClassLoader loader, PackageFilter filter, Set<File> skip) {
+        this.loader = loader;
+        this.filter = filter;
+        this.skip = skip;
+    }
+
+    interface PackageFilter {
+
+        boolean include(String packageName);
+    }
+
+    /**
+     * Get the binary names of concrete, non-ignored classes whose name ends in
+     * Test and which have at least one public &#064;Test method, declared or
+     * inherited, in classpath order.
+     *
+     * @return A list of class names
+     * @throws IOException If reading fails
+     */
+    List<String> scan() throws IOException {
+        final List<File> entries = classpathEntries();
+        entries.removeAll(skip);
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        ExecutorService svc = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "test-scanner-" + ++count);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final Map<File, JarFile> jars = Collections.synchronizedMap(new HashMap<File, JarFile>());
+        try {
+            List<Future<List<Candidate>>> listings = new ArrayList<>();
+            for (final File entry : entries) {
+                listings.add(svc.submit(new Callable<List<Candidate>>() {
+                    @Override
+                    public List<Candidate> call() throws IOException {
+                        return list(entry, jars);
+                    }
+                }));
+            }
+            List<Future<ClassFileInfo>> parsed = new ArrayList<>();
+            for (Future<List<Candidate>> listing : listings) {
+                for (final Candidate candidate : get(listing)) {
+                    parsed.add(svc.submit(new Callable<ClassFileInfo>() {
+                        @Override
+                        public ClassFileInfo call() throws IOException {
+                            return candidate.parse(jars);
+                        }
+                    }));
+                }
+            }
+            List<ClassFileInfo> infos = new ArrayList<>(parsed.size());
+            for (Future<ClassFileInfo> f : parsed) {
+                ClassFileInfo info = get(f);
+                if (info != null) {
+                    infos.add(info);
+                    superclasses.put(info.name, info);
+                }
+            }
+            Set<String> result = new LinkedHashSet<>();
+            for (ClassFileInfo info : infos) {
+                if (info.concrete && !info.local && !info.ignored && hasTests(info)) {
+                    result.add(info.name);
+                }
+            }
+            return new ArrayList<>(result);
+        } finally {
+            svc.shutdownNow();
+            for (JarFile jar : jars.values()) {
+                jar.close();
+            }
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted scanning classpath", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private boolean hasTests(ClassFileInfo info) {
+        // Mirrors Class.getMethods() - public @Test methods of superclasses
+        // count, and Ignore is not inherited
+        while (info != null) {
+            if (info.hasTestMethod) {
+                return true;
+            }
+            if (info.superName == null || "java.lang.Object".equals(info.superName)) {
+                return false;
+            }
+            info = superclass(info.superName);
+        }
+        return false;
+    }
+
+    private ClassFileInfo superclass(String name) {
+        if (superclasses.containsKey(name)) {
+            return superclasses.get(name);
+        }
+        ClassFileInfo result = null;
+        try (InputStream in = loader.getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in != null) {
+                result = ClassFileInfo.parse(readFully(in, -1));
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not read " + name + ": " + ex);
+        }
+        superclasses.put(name, result);
+        return result;
+    }
+
+    private List<Candidate> list(File entry, Map<File, JarFile> jars) throws IOException {
+        List<Candidate> result = new ArrayList<>();
+        if (entry.isDirectory()) {
+            listDirectory(entry, entry, "", result);
+        } else if (entry.isFile()) {
+            JarFile jar;
+            try {
+                jar = new JarFile(entry);
+            } catch (IOException ex) {
+                // Not a jar
+                return result;
+            }
+            jars.put(entry, jar);
+            Enumeration<JarEntry> en = jar.entries();
+            while (en.hasMoreElements()) {
+                JarEntry je = en.nextElement();
+                if (!je.isDirectory()) {
+                    addIfCandidate(entry, je.getName(), result);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private void listDirectory(File root, File dir, String prefix, List<Candidate> into) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                listDirectory(root, f, prefix + f.getName() + '/', into);
+            } else {
+                addIfCandidate(root, prefix + f.getName(), into);
+            }
+        }
+    }
+
+    private void addIfCandidate(File entry, String path, List<Candidate> into) {
+        // Only include classes whose name ends in "Test"
+        if (!path.endsWith("Test.class") || path.startsWith("META-INF/")) {
+            return;
+        }
+        int slash = path.lastIndexOf('/');
+        String packageName = slash < 0 ? "" : path.substring(0, slash).replace('/', '.');
+        if (filter.include(packageName)) {
+            into.add(new Candidate(entry, path));
+        }
+    }
+
+    private static byte[] readFully(InputStream in, long size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size > 0 ? (int) size : 4096);
+        byte[] buf = new byte[8192];
+        for (int read = in.read(buf); read >= 0; read = in.read(buf)) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private List<File> classpathEntries() {
+        Set<File> result = new LinkedHashSet<>();
+        for (String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                addEntry(new File(path).getAbsoluteFile(), result);
+            }
+        }
+        for (ClassLoader cl = loader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            addEntry(new File(url.toURI()).getAbsoluteFile(), result);
+                        } catch (URISyntaxException | IllegalArgumentException ex) {
+                            System.err.println("Bad classpath URL " + url);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void addEntry(File file, Set<File> into) {
+        if (!file.exists() || !into.add(file) || !file.isFile()) {
+            return;
+        }
+        // Follow Class-Path manifest entries, as the JVM does
+        try (JarFile jar = new JarFile(file)) {
+            Manifest manifest = jar.getManifest();
+            String classPath = manifest == null ? null
+                    : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+            if (classPath != null) {
+                for (String path : classPath.trim().split("\\s+")) {
+                    if (!path.isEmpty()) {
+                        File f = new File(path);
+                        addEntry((f.isAbsolute() ? f : new File(file.getParentFile(), path)).getAbsoluteFile(), into);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // Not a jar
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final File entry;
+        private final String path;
+
+        Candidate(File entry, String path) {
+            this.entry = entry;
+            this.path = path;
+        }
+
+        ClassFileInfo parse(Map<File, JarFile> jars) throws IOException {
+            byte[] bytes;
+            JarFile jar = jars.get(entry);
+            if (jar != null) {
+                JarEntry je = jar.getJarEntry(path);
+                try (InputStream in = jar.getInputStream(je)) {
+                    bytes = readFully(in, je.getSize());
+                }
+            } else {
+                bytes = Files.readAllBytes(new File(entry, path).toPath());
+            }
+            try {
+                return ClassFileInfo.parse(bytes);
+            } catch (IOException ex) {
+                System.err.println("Could not parse " + path + " in " + entry + ": " + ex.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return path.compareTo(o.path);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.internal.runners.ErrorReportingRunner;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * The tests which failed in the last run, one per line as
+ * <code>class#method</code>, or just the class name where the class as a
+ * whole failed (e.g. in &#064;BeforeClass). Saved to
+ * <code>test.failures.file</code> (default target/test-failures, if there is
+ * a target directory); <code>--rerun-failed</code> runs only what it lists.
+ *
+ * @author Tim Boudreau
+ */
+final class FailureLedger {
+
+    static final String FAILURES_FILE_SETTING = "test.failures.file";
+    static final String RERUN_FAILED_SETTING = "rerun-failed";
+    private final Set<String> failedMethods = new LinkedHashSet<>();
+    private final Set<String> failedClasses = new LinkedHashSet<>();
+    private final Set<String> failures = Collections.synchronizedSet(new TreeSet<String>());
+    final File file;
+
+    FailureLedger(File file) {
+        this.file = file;
+        load();
+    }
+
+    static File defaultFile() {
+        File target = new File("target");
+        return target.isDirectory() ? new File(target, "test-failures") : null;
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int ix = line.indexOf('#');
+                if (ix < 0) {
+                    failedClasses.add(line);
+                } else {
+                    failedMethods.add(line);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not read test failures from " + file + ": " + ex);
+        }
+    }
+
+    boolean isEmpty() {
+        return failedMethods.isEmpty() && failedClasses.isEmpty();
+    }
+
+    int size() {
+        return failedMethods.size() + failedClasses.size();
+    }
+
+    /**
+     * Get the classes with failures recorded, skipping any which no longer
+     * exist, and dropping recorded methods which no longer exist - a filter
+     * which matches nothing in a class is an error to JUnit.
+     *
+     * @param loader The class loader
+     * @return An array of classes
+     */
+    Class<?>[] types(ClassLoader loader) {
+        Set<String> names = new LinkedHashSet<>(failedClasses);
+        for (String method : failedMethods) {
+            names.add(method.substring(0, method.indexOf('#')));
+        }
+        Set<Class<?>> result = new LinkedHashSet<>();
+        for (String name : names) {
+            try {
+                Class<?> type = Class.forName(name, false, loader);
+                if (failedClasses.contains(name) || dropStaleMethods(type)) {
+                    result.add(type);
+                }
+            } catch (ClassNotFoundException ex) {
+                System.out.println("::STALE: " + name + " no longer exists");
+            }
+        }
+        return result.toArray(new Class<?>[result.size()]);
+    }
+
+    /**
+     * Remove the recorded failures of a class whose methods no longer exist.
+     *
+     * @param type The class
+     * @return true if any of its recorded failures remain
+     */
+    private boolean dropStaleMethods(Class<?> type) {
+        Runner runner = Request.aClass(type).getRunner();
+        if (runner instanceof ErrorReportingRunner) {
+            // The class cannot be run at all; rerun it and show why
+            failedClasses.add(type.getName());
+            return true;
+        }
+        Set<String> tests = new HashSet<>();
+        collectTests(runner.getDescription(), tests);
+        boolean any = false;
+        for (Iterator<String> it = failedMethods.iterator(); it.hasNext();) {
+            String method = it.next();
+            if (!method.startsWith(type.getName() + "#")) {
+                continue;
+            }
+            if (tests.contains(method)) {
+                any = true;
+            } else {
+                System.out.println("::STALE: " + method + " no longer exists");
+                it.remove();
+            }
+        }
+        return any;
+    }
+
+    private static void collectTests(Description description, Set<String> into) {
+        if (description.isTest()) {
+            into.add(description.getClassName() + "#" + description.getMethodName());
+        }
+        for (Description child : description.getChildren()) {
+            collectTests(child, into);
+        }
+    }
+
+    /**
+     * Get a filter which passes only the tests which failed, so a class is not
+     * rerun whole because one of its methods failed.
+     *
+     * @return A filter
+     */
+    Filter filter() {
+        return new Filter() {
+            @Override
+            public boolean shouldRun(Description description) {
+                if (failedClasses.contains(description.getClassName())) {
+                    return true;
+                }
+                if (description.isTest()) {
+                    return failedMethods.contains(description.getClassName() + "#" + description.getMethodName());
+                }
+                for (Description child : description.getChildren()) {
+                    if (shouldRun(child)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public String describe() {
+                return "tests which failed in the last run";
+            }
+        };
+    }
+
+    /**
+     * Get a listener which records failures, for save().
+     *
+     * @return A listener
+     */
+    RunListener recorder() {
+        return new Recorder();
+    }
+
+    /**
+     * Replace the ledger with the failures of this run.
+     */
+    void save() {
+        if (file == null) {
+            return;
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write("# Tests which failed in the last run\n");
+            synchronized (failures) {
+                for (String failure : failures) {
+                    out.write(failure);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not save test failures to " + file + ": " + ex);
+        }
+    }
+
+    @RunListener.ThreadSafe
+    private final class Recorder extends RunListener {
+
+        @Override
+        public void testFailure(Failure failure) {
+            Description desc = failure.getDescription();
+            String className = desc.getClassName();
+            if (className == null) {
+                return;
+            }
+            failures.add(desc.getMethodName() == null ? className : className + "#" + desc.getMethodName());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Records the run with Flight Recorder, using the low-overhead
+ * <code>default</code> settings, so the events emitted by
+ * giulius-selenium-tests (driver launches, waits, screenshots and so on) can
+ * be examined alongside a <code>com.mastfrog.testmain.Test</code> event for
+ * each test. The recording is written to the file when close() is called.
+ * <p>
+ * Only loaded when the JVM has Flight Recorder - see available().
+ *
+ * @author Tim Boudreau
+ */
+@RunListener.ThreadSafe
+final class FlightRecording extends RunListener {
+
+    static final String FILE_SETTING = "test.jfr";
+    private final Map<Description, TestEvent> running = new ConcurrentHashMap<>();
+    private final Recording recording;
+    private final File file;
+
+    FlightRecording(File file) throws IOException {
+        this.file = file;
+        Configuration config;
+        try {
+            config = Configuration.getConfiguration("default");
+        } catch (ParseException ex) {
+            throw new IOException(ex);
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        recording = new Recording(config);
+        recording.setName("tests");
+        recording.setToDisk(true);
+        recording.setDestination(file.toPath());
+        recording.start();
+    }
+
+    static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Recording");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The file a child JVM started by --shards should record to, so they do
+     * not overwrite each other's.
+     */
+    static File shardFile(File file) {
+        String name = file.getName();
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        int dot = name.lastIndexOf('.');
+        name = dot > 0 ? name.substring(0, dot) + "-" + pid + name.substring(dot)
+                : name + "-" + pid;
+        return new File(file.getParentFile(), name);
+    }
+
+    @Override
+    public void testStarted(Description description) {
+        TestEvent event = new TestEvent();
+        if (event.isEnabled()) {
+            event.testClass = description.getClassName();
+            event.method = description.getMethodName();
+            event.status = "passed";
+            event.begin();
+            running.put(description, event);
+        }
+    }
+
+    @Override
+    public void testFailure(Failure failure) {
+        TestEvent event = running.get(failure.getDescription());
+        if (event != null) {
+            event.status = ShardCoordinator.RemoteFailure.isAssertion(failure.getException()) ? "failed" : "error";
+        }
+    }
+
+    @Override
+    public void testAssumptionFailure(Failure failure) {
+        TestEvent event = running.get(failure.getDescription());
+        if (event != null) {
+            event.status = "skipped";
+        }
+    }
+
+    @Override
+    public void testFinished(Description description) {
+        TestEvent event = running.remove(description);
+        if (event != null) {
+            event.commit();
+        }
+    }
+
+    void close() {
+        recording.stop();
+        recording.close();
+        System.out.println("::FLIGHT RECORDING: " + file);
+    }
+
+    @Name("com.mastfrog.testmain.Test")
+    @Label("Test")
+    @Category({"Selenium", "Tests"})
+    static final class TestEvent extends Event {
+
+        @Label("Test Class")
+        String testClass;
+        @Label("Method")
+        String method;
+        @Label("Status")
+        String status;
+    }
+}
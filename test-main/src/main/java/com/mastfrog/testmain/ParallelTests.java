@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Runs test classes concurrently, one class per task on a work-stealing pool,
+ * collecting the counts and failures of every class into a single Result.
+ * Listeners are shared by all workers, so must be thread-safe. If there is a
+ * filter, only the tests in each class which pass it are run.
+ *
+ * @author Tim Boudreau
+ */
+final class ParallelTests {
+
+    private final int workers;
+    private final Filter filter;
+    private final RunListener[] listeners;
+
+    ParallelTests(int workers, Filter filter, RunListener... listeners) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be > 0: " + workers);
+        }
+        this.workers = workers;
+        this.filter = filter;
+        this.listeners = listeners;
+    }
+
+    Result run(Class<?>... tests) {
+        final Result result = new Result();
+        // Result's own listener is thread-safe, so one Result can collect
+        // the outcome of every class - but it times the run from
+        // testRunStarted to testRunFinished, which each JUnitCore would
+        // fire, overlapping; so the JUnitCores only pass it test events, and
+        // the run is timed once, around the pool
+        final RunListener resultListener = result.createListener();
+        final RunListener collector = new Collector(resultListener);
+        try {
+            resultListener.testRunStarted(Description.createSuiteDescription(ParallelTests.class));
+        } catch (Exception ex) {
+            ex.printStackTrace(System.out);
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("test-worker-" + t.getPoolIndex());
+                return t;
+            }
+        }, null, true);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(tests.length);
+            for (final Class<?> test : tests) {
+                tasks.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        JUnitCore core = new JUnitCore();
+                        core.addListener(collector);
+                        for (RunListener l : listeners) {
+                            core.addListener(l);
+                        }
+                        try {
+                            core.run(filter == null ? Request.aClass(test)
+                                    : Request.aClass(test).filterWith(filter));
+                        } catch (RuntimeException | Error ex) {
+                            // JUnitCore reports test errors as failures; count
+                            // anything escaping it so the exit code is right
+                            Failure failure = new Failure(Description.createSuiteDescription(test), ex);
+                            try {
+                                collector.testFailure(failure);
+                                for (RunListener l : listeners) {
+                                    l.testFailure(failure);
+                                }
+                            } catch (Exception ex1) {
+                                ex1.printStackTrace(System.out);
+                            }
+                        }
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    ex.getCause().printStackTrace(System.out);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        try {
+            resultListener.testRunFinished(result);
+        } catch (Exception ex) {
+            ex.printStackTrace(System.out);
+        }
+        return result;
+    }
+
+    /**
+     * Passes everything but the start and end of a run to a Result's
+     * listener.
+     */
+    @RunListener.ThreadSafe
+    private static final class Collector extends RunListener {
+
+        private final RunListener delegate;
+
+        Collector(RunListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void testStarted(Description description) throws Exception {
+            delegate.testStarted(description);
+        }
+
+        @Override
+        public void testFinished(Description description) throws Exception {
+            delegate.testFinished(description);
+        }
+
+        @Override
+        public void testFailure(Failure failure) throws Exception {
+            delegate.testFailure(failure);
+        }
+
+        @Override
+        public void testAssumptionFailure(Failure failure) {
+            delegate.testAssumptionFailure(failure);
+        }
+
+        @Override
+        public void testIgnored(Description description) throws Exception {
+            delegate.testIgnored(description);
+        }
+    }
+}
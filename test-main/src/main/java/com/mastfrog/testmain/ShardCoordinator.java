@@ -0,0 +1,531 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Runs test classes across several child JVMs on the same classpath. Each
+ * child (a ShardWorker) connects back over a loopback socket and asks for one
+ * class at a time, so faster shards simply take more classes; the children's
+ * output is copied line by line to this process's, and the outcome of every
+ * test is replayed into a single Result. If a child dies, any test it had
+ * started is reported as failed, and the class it was running is handed to
+ * another one - or reported as a failure if it has now killed two JVMs - and
+ * a replacement child is started. Tests of a requeued class which were
+ * already reported are not reported again when it is rerun.
+ *
+ * @author Tim Boudreau
+ */
+final class ShardCoordinator {
+
+    static final String COORDINATOR_SETTING = "shard.coordinator";
+    static final String SHARDS_SETTING = "shards";
+    // Protocol, one message per line, fields separated by tabs
+    static final String NEXT = "NEXT";
+    static final String RUN = "RUN";
+    static final String EXIT = "EXIT";
+    static final String DONE = "DONE";
+    static final String STARTED = "STARTED";
+    static final String ARTIFACTS = "ARTIFACTS";
+    static final String FINISHED = "FINISHED";
+    static final String FAILURE = "FAILURE";
+    static final String ASSUMPTION_FAILURE = "ASSUMPTION";
+    static final String IGNORED = "IGNORED";
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final int shards;
+    private final List<String> childArgs;
+    private final RunListener[] listeners;
+    private final LinkedList<String> queue = new LinkedList<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    // Per queued class, tests whose outcome has been reported, so a rerun
+    // after a crash does not count them twice
+    private final Map<String, Set<String>> reported = new HashMap<>();
+    private final Result result = new Result();
+    private final RunListener collector = result.createListener();
+    private int total;
+    private int completed;
+    private int live;
+    private int launched;
+
+    ShardCoordinator(int shards, String[] args, RunListener... listeners) {
+        this.shards = shards;
+        this.childArgs = childArgs(args);
+        this.listeners = listeners;
+    }
+
+    static List<String> childArgs(String... args) {
+        List<String> result = new ArrayList<>(Arrays.asList(args));
+        int ix = result.indexOf("--" + SHARDS_SETTING);
+        if (ix >= 0) {
+            result.remove(ix);
+            if (ix < result.size() && !result.get(ix).startsWith("--")) {
+                result.remove(ix);
+            }
+        }
+        return result;
+    }
+
+    synchronized void enqueue(Class<?>... tests) {
+        for (Class<?> test : tests) {
+            queue.add(test.getName());
+        }
+        total = queue.size();
+    }
+
+    Result run(Class<?>... tests) throws IOException {
+        enqueue(tests);
+        int maxLaunches = shards * 2 + 1;
+        try (final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread("shard-acceptor") {
+                @Override
+                public void run() {
+                    try {
+                        for (;;) {
+                            final Socket socket = server.accept();
+                            Thread t = new Thread("shard-connection-" + socket.getPort()) {
+                                @Override
+                                public void run() {
+                                    serve(socket);
+                                }
+                            };
+                            t.setDaemon(true);
+                            t.start();
+                        }
+                    } catch (SocketException ex) {
+                        // closed
+                    } catch (IOException ex) {
+                        ex.printStackTrace(System.out);
+                    }
+                }
+            };
+            acceptor.setDaemon(true);
+            acceptor.start();
+            synchronized (this) {
+                while (completed < total) {
+                    if (!queue.isEmpty() && live < Math.min(shards, total - completed) && launched < maxLaunches) {
+                        launch(server.getLocalPort());
+                        continue;
+                    }
+                    if (live == 0 && !queue.isEmpty()) {
+                        // Every child we were willing to start has died
+                        while (!queue.isEmpty()) {
+                            giveUp(queue.removeFirst(), "No shard left to run it");
+                        }
+                        break;
+                    }
+                    try {
+                        wait(500);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void launch(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // Children cannot all listen on the debugger's port
+            if (!arg.startsWith("-agentlib:jdwp") && !arg.startsWith("-Xrunjdwp")) {
+                cmd.add(arg);
+            }
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(TestMain.class.getName());
+        cmd.addAll(childArgs);
+        cmd.add("--" + COORDINATOR_SETTING);
+        cmd.add(Integer.toString(port));
+        final int shard = ++launched;
+        final Process process = new ProcessBuilder(cmd).start();
+        live++;
+        pump(process.getInputStream(), System.out, shard);
+        pump(process.getErrorStream(), System.err, shard);
+        Thread waiter = new Thread("shard-" + shard + "-waiter") {
+            @Override
+            public void run() {
+                int exit;
+                try {
+                    exit = process.waitFor();
+                } catch (InterruptedException ex) {
+                    process.destroy();
+                    exit = -1;
+                }
+                if (exit != 0) {
+                    System.out.println("::Shard " + shard + " exited with " + exit);
+                }
+                synchronized (ShardCoordinator.this) {
+                    live--;
+                    ShardCoordinator.this.notifyAll();
+                }
+            }
+        };
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    private static void pump(final InputStream in, final PrintStream out, int shard) {
+        Thread t = new Thread("shard-" + shard + "-output") {
+            @Override
+            public void run() {
+                // Whole lines, so output of different shards never
+                // interleaves mid-line
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        out.println(line);
+                    }
+                } catch (IOException ex) {
+                    // process gone
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    void serve(Socket socket) {
+        String running = null;
+        // Tests started but not yet finished - more than one if the class
+        // runs its methods concurrently - and whether each has failed
+        Map<Description, Boolean> open = new LinkedHashMap<>();
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] parts = line.split("\t", -1);
+                switch (parts[0]) {
+                    case NEXT:
+                        synchronized (this) {
+                            running = queue.poll();
+                        }
+                        out.write(running == null ? EXIT + "\n" : RUN + "\t" + running + "\n");
+                        out.flush();
+                        break;
+                    case DONE:
+                        Description suite = Description.createSuiteDescription(parts[1]);
+                        for (RunListener l : listeners) {
+                            l.testSuiteFinished(suite);
+                        }
+                        synchronized (this) {
+                            reported.remove(running);
+                            running = null;
+                            completed++;
+                            notifyAll();
+                        }
+                        open.clear();
+                        break;
+                    default:
+                        replay(running, open, parts);
+                }
+            }
+        } catch (IOException ex) {
+            // Child died; handled below
+        } catch (Exception ex) {
+            ex.printStackTrace(System.out);
+        }
+        if (running != null) {
+            crashed(running, open);
+        }
+    }
+
+    private void replay(String running, Map<Description, Boolean> open, String[] parts) throws Exception {
+        String className = unescape(parts[1]);
+        String method = unescape(parts[2]);
+        Description desc = method.isEmpty() ? Description.createSuiteDescription(className)
+                : Description.createTestDescription(className, method);
+        synchronized (this) {
+            Set<String> done = reported(running);
+            String key = className + "#" + method;
+            if (done.contains(key)) {
+                // Reported before the shard first running it died
+                return;
+            }
+            switch (parts[0]) {
+                case STARTED:
+                    open.put(desc, false);
+                    break;
+                case FINISHED:
+                    open.remove(desc);
+                    done.add(key);
+                    break;
+                case IGNORED:
+                    done.add(key);
+                    break;
+                case FAILURE:
+                case ASSUMPTION_FAILURE:
+                    // Class-level failures are not followed by a FINISHED
+                    if (method.isEmpty()) {
+                        done.add(key);
+                    } else if (open.containsKey(desc)) {
+                        open.put(desc, true);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (ARTIFACTS.equals(parts[0])) {
+            for (RunListener l : listeners) {
+                if (l instanceof StructuredReporter) {
+                    ((StructuredReporter) l).artifacts(desc, unescape(parts[3]), unescape(parts[4]));
+                }
+            }
+            return;
+        }
+        Failure failure = parts.length > 3 ? new Failure(desc, RemoteFailure.parse(parts)) : null;
+        replay(collector, parts[0], desc, failure);
+        for (RunListener l : listeners) {
+            replay(l, parts[0], desc, failure);
+        }
+    }
+
+    private static void replay(RunListener l, String what, Description desc, Failure failure) throws Exception {
+        switch (what) {
+            case STARTED:
+                l.testStarted(desc);
+                break;
+            case FINISHED:
+                l.testFinished(desc);
+                break;
+            case IGNORED:
+                l.testIgnored(desc);
+                break;
+            case FAILURE:
+                l.testFailure(failure);
+                break;
+            case ASSUMPTION_FAILURE:
+                l.testAssumptionFailure(failure);
+                break;
+            default:
+                System.out.println("::Unknown message from shard: " + what);
+        }
+    }
+
+    private Set<String> reported(String type) {
+        Set<String> result = reported.get(type);
+        if (result == null) {
+            result = new HashSet<>();
+            reported.put(type, result);
+        }
+        return result;
+    }
+
+    private synchronized void crashed(String type, Map<Description, Boolean> open) {
+        // Close out whatever was running when the shard died, so listeners
+        // never see a test start without finishing
+        for (Map.Entry<Description, Boolean> e : open.entrySet()) {
+            Description desc = e.getKey();
+            Failure failure = e.getValue() ? null : new Failure(desc, new RemoteFailure("Shard JVM died running it"));
+            try {
+                if (failure != null) {
+                    collector.testFailure(failure);
+                }
+                collector.testFinished(desc);
+                for (RunListener l : listeners) {
+                    if (failure != null) {
+                        l.testFailure(failure);
+                    }
+                    l.testFinished(desc);
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace(System.out);
+            }
+            reported(type).add(desc.getClassName() + "#" + desc.getMethodName());
+        }
+        open.clear();
+        Integer count = attempts.get(type);
+        count = count == null ? 1 : count + 1;
+        attempts.put(type, count);
+        if (count < MAX_ATTEMPTS) {
+            System.out.println("::Shard died running " + type + " - requeueing it");
+            queue.addFirst(type);
+        } else {
+            giveUp(type, "Shard JVM died running it " + count + " times");
+        }
+        notifyAll();
+    }
+
+    private synchronized void giveUp(String type, String why) {
+        System.out.println("::FAIL: " + type + " - " + why);
+        reported.remove(type);
+        try {
+            Failure failure = new Failure(Description.createSuiteDescription(type), new RemoteFailure(why));
+            collector.testFailure(failure);
+            for (RunListener l : listeners) {
+                l.testFailure(failure);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace(System.out);
+        }
+        completed++;
+        notifyAll();
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i < s.length() - 1) {
+                c = s.charAt(++i);
+                switch (c) {
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    default:
+                        break;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A failure which happened in a shard, standing in for the exception
+     * there: reports see its type, message and stack trace, and whether it
+     * was an assertion failure.
+     */
+    static final class RemoteFailure extends Exception {
+
+        private static final long serialVersionUID = 1L;
+        private final String string;
+        private final String type;
+        private final boolean assertion;
+        private final String trace;
+
+        RemoteFailure(String message) {
+            this(message, RemoteFailure.class.getName(), false, message, null);
+        }
+
+        private RemoteFailure(String string, String type, boolean assertion, String message, String trace) {
+            super(message, null, false, false);
+            this.string = string;
+            this.type = type;
+            this.assertion = assertion;
+            this.trace = trace;
+        }
+
+        /**
+         * Rebuild a failure from the fields ShardWorker sends, starting at
+         * index 3.
+         */
+        static RemoteFailure parse(String[] parts) {
+            String string = unescape(parts[3]);
+            if (parts.length < 8) {
+                return new RemoteFailure(string);
+            }
+            String message = unescape(parts[6]);
+            return new RemoteFailure(string, unescape(parts[4]), "assertion".equals(parts[5]),
+                    message.isEmpty() ? null : message, unescape(parts[7]));
+        }
+
+        /**
+         * Whether a failure is an assertion failure (the test failed) rather
+         * than an error, wherever it happened.
+         *
+         * @param t A throwable
+         * @return true if it is or stands for an AssertionError
+         */
+        static boolean isAssertion(Throwable t) {
+            return t instanceof RemoteFailure ? ((RemoteFailure) t).assertion : t instanceof AssertionError;
+        }
+
+        /**
+         * The type of a failure, wherever it happened.
+         *
+         * @param t A throwable
+         * @return A class name
+         */
+        static String typeName(Throwable t) {
+            return t instanceof RemoteFailure ? ((RemoteFailure) t).type : t.getClass().getName();
+        }
+
+        @Override
+        public void printStackTrace(PrintWriter s) {
+            if (trace == null) {
+                super.printStackTrace(s);
+            } else {
+                s.print(trace);
+            }
+        }
+
+        @Override
+        public void printStackTrace(PrintStream s) {
+            if (trace == null) {
+                super.printStackTrace(s);
+            } else {
+                s.print(trace);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return string;
+        }
+    }
+}
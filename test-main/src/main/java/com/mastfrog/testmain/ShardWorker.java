@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import static com.mastfrog.testmain.ShardCoordinator.ARTIFACTS;
+import static com.mastfrog.testmain.ShardCoordinator.ASSUMPTION_FAILURE;
+import static com.mastfrog.testmain.ShardCoordinator.DONE;
+import static com.mastfrog.testmain.ShardCoordinator.FAILURE;
+import static com.mastfrog.testmain.ShardCoordinator.FINISHED;
+import static com.mastfrog.testmain.ShardCoordinator.IGNORED;
+import static com.mastfrog.testmain.ShardCoordinator.NEXT;
+import static com.mastfrog.testmain.ShardCoordinator.RUN;
+import static com.mastfrog.testmain.ShardCoordinator.STARTED;
+import static com.mastfrog.testmain.ShardCoordinator.escape;
+import com.mastfrog.testmain.ShardCoordinator.RemoteFailure;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * The child side of ShardCoordinator: asks the coordinator for test classes
+ * one at a time, runs them, and reports the outcome of each test back.
+ *
+ * @author Tim Boudreau
+ */
+final class ShardWorker implements Runnable {
+
+    private final int port;
+    private final Filter filter;
+    private final RunListener[] listeners;
+
+    ShardWorker(int port, Filter filter, RunListener... listeners) {
+        this.port = port;
+        this.filter = filter;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Run until the coordinator has no more work, using the passed number of
+     * connections (each running one class at a time) at once.
+     *
+     * @param workers The number of classes to run concurrently
+     * @throws InterruptedException If interrupted
+     */
+    void run(int workers) throws InterruptedException {
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            threads[i] = new Thread(this, "shard-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            Reporter reporter = new Reporter(out);
+            for (;;) {
+                send(out, NEXT);
+                String line = in.readLine();
+                if (line == null || !line.startsWith(RUN + "\t")) {
+                    break;
+                }
+                String typeName = line.substring(RUN.length() + 1);
+                try {
+                    Class<?> type = Class.forName(typeName, false, ShardWorker.class.getClassLoader());
+                    JUnitCore core = new JUnitCore();
+                    for (RunListener l : listeners) {
+                        core.addListener(l);
+                    }
+                    // Last, so artifacts the others publish are sent
+                    core.addListener(reporter);
+                    core.run(filter == null ? Request.aClass(type) : Request.aClass(type).filterWith(filter));
+                } catch (ClassNotFoundException | LinkageError ex) {
+                    ex.printStackTrace(System.out);
+                    reporter.testFailure(new Failure(Description.createSuiteDescription(typeName), ex));
+                }
+                send(out, DONE + "\t" + typeName);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace(System.out);
+        }
+    }
+
+    private static void send(Writer out, String line) throws IOException {
+        synchronized (out) {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    @RunListener.ThreadSafe
+    private static final class Reporter extends RunListener {
+
+        private final Writer out;
+
+        Reporter(Writer out) {
+            this.out = out;
+        }
+
+        private void send(String what, Description desc, String detail) throws IOException {
+            String method = desc.getMethodName() == null ? "" : desc.getMethodName();
+            String className = desc.getClassName() == null ? desc.getDisplayName() : desc.getClassName();
+            // Detail is already escaped
+            ShardWorker.send(out, what + "\t" + escape(className) + "\t" + escape(method)
+                    + (detail == null ? "" : "\t" + detail));
+        }
+
+        @Override
+        public void testStarted(Description description) throws Exception {
+            send(STARTED, description, null);
+        }
+
+        @Override
+        public void testFinished(Description description) throws Exception {
+            // Screenshots and video are published as system properties in
+            // this JVM, which the coordinator cannot see
+            String shots = System.getProperty(StructuredReporter.SCREENSHOTS_PROPERTY_PREFIX
+                    + description.getClassName() + "#" + description.getMethodName());
+            String video = description.getMethodName() == null ? null
+                    : System.getProperty(StructuredReporter.CLIP_PROPERTY_PREFIX
+                            + description.getClassName() + "#" + description.getMethodName());
+            if (video == null) {
+                video = System.getProperty(StructuredReporter.VIDEO_PROPERTY);
+            }
+            if ((shots != null || video != null) && description.getMethodName() != null) {
+                ShardWorker.send(out, ARTIFACTS + "\t" + escape(description.getClassName())
+                        + "\t" + escape(description.getMethodName()) + "\t" + escape(shots == null ? "" : shots)
+                        + "\t" + escape(video == null ? "" : video));
+            }
+            send(FINISHED, description, null);
+        }
+
+        @Override
+        public void testFailure(Failure failure) throws Exception {
+            send(FAILURE, failure.getDescription(), describe(failure.getException()));
+        }
+
+        @Override
+        public void testAssumptionFailure(Failure failure) {
+            try {
+                send(ASSUMPTION_FAILURE, failure.getDescription(), describe(failure.getException()));
+            } catch (IOException ex) {
+                ex.printStackTrace(System.out);
+            }
+        }
+
+        /**
+         * Enough of an exception for the coordinator's reports to say what it
+         * was: its string form, type, whether it is an assertion failure,
+         * message and stack trace, each escaped and tab separated.
+         */
+        private static String describe(Throwable t) {
+            if (t == null) {
+                return "null";
+            }
+            StringWriter trace = new StringWriter();
+            t.printStackTrace(new PrintWriter(trace));
+            return escape(String.valueOf(t)) + "\t" + escape(t.getClass().getName())
+                    + "\t" + (RemoteFailure.isAssertion(t) ? "assertion" : "error")
+                    + "\t" + escape(t.getMessage() == null ? "" : t.getMessage())
+                    + "\t" + escape(trace.toString());
+        }
+
+        @Override
+        public void testIgnored(Description description) throws Exception {
+            send(IGNORED, description, null);
+        }
+    }
+}
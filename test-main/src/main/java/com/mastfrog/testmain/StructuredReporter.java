@@ -0,0 +1,592 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Writes test results as they happen, as newline-delimited JSON (one event
+ * per line, flushed whenever the writer catches up, so a dashboard can tail
+ * it) and as JUnit XML, one TEST-[class].xml per class, written as soon as
+ * the class finishes. Each finished test carries its duration and the paths of
+ * any screenshots (published by SeleniumRunner under the system property
+ * <code>test.screenshots.[class]#[method]</code>) and video (its own clip,
+ * published by the video module as <code>test.video.[class]#[method]</code>,
+ * or else <code>video.file</code>) it produced.
+ * <p>
+ * All formatting and file I/O happens on a single background thread; test
+ * threads only enqueue.
+ *
+ * @author Tim Boudreau
+ */
+@RunListener.ThreadSafe
+final class StructuredReporter extends RunListener {
+
+    static final String JSON_FILE_SETTING = "test.results.json";
+    static final String XML_DIR_SETTING = "test.results.xml";
+    static final String SCREENSHOTS_PROPERTY_PREFIX = "test.screenshots.";
+    static final String VIDEO_PROPERTY = "video.file";
+    static final String CLIP_PROPERTY_PREFIX = "test.video.";
+    private static final String PASSED = "passed";
+    private static final String FAILED = "failed";
+    private static final String ERROR = "error";
+    private static final String SKIPPED = "skipped";
+    private static final String IGNORED = "ignored";
+    private final Map<Description, TestRecord> running = new ConcurrentHashMap<>();
+    private final Map<String, ClassRecord> classes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final File xmlDir;
+    private final Writer json;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    StructuredReporter(File jsonFile, File xmlDir) throws IOException {
+        this.xmlDir = xmlDir;
+        if (xmlDir != null && !xmlDir.exists()) {
+            xmlDir.mkdirs();
+        }
+        if (jsonFile != null) {
+            File dir = jsonFile.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            json = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(jsonFile), StandardCharsets.UTF_8), 65536);
+        } else {
+            json = null;
+        }
+        thread = new Thread("test-result-writer") {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static File defaultJsonFile() {
+        File target = new File("target");
+        return target.isDirectory() ? new File(target, "test-results.ndjson") : null;
+    }
+
+    static File defaultXmlDir() {
+        File target = new File("target");
+        return target.isDirectory() ? new File(target, "test-reports") : null;
+    }
+
+    private void drain() {
+        for (;;) {
+            Runnable r;
+            try {
+                r = queue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            try {
+                r.run();
+                if (json != null && queue.isEmpty()) {
+                    json.flush();
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace(System.err);
+            }
+            if (closed && queue.isEmpty()) {
+                if (json != null) {
+                    try {
+                        json.close();
+                    } catch (IOException ex) {
+                        ex.printStackTrace(System.err);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void enqueue(Runnable r) {
+        if (!closed) {
+            queue.add(r);
+        }
+    }
+
+    private void event(final String event, TestRecord rec, final Throwable failure) {
+        if (json == null) {
+            return;
+        }
+        // Take what we need now - the record may change before this is written
+        final long now = System.currentTimeMillis();
+        final String className = rec.className;
+        final String method = rec.method;
+        final String status = rec.status;
+        final long duration = status == null ? 0 : rec.durationMillis();
+        final List<String> screenshots = new ArrayList<>(rec.screenshots);
+        final String video = rec.video;
+        enqueue(new Runnable() {
+            @Override
+            public void run() {
+                StringBuilder sb = new StringBuilder(128);
+                sb.append("{\"event\":\"").append(event).append("\",\"time\":").append(now);
+                sb.append(",\"class\":");
+                quote(className, sb);
+                if (method != null) {
+                    sb.append(",\"method\":");
+                    quote(method, sb);
+                }
+                if (status != null) {
+                    sb.append(",\"status\":\"").append(status).append('"');
+                    sb.append(",\"durationMs\":").append(duration);
+                }
+                if (failure != null) {
+                    sb.append(",\"failure\":{\"type\":");
+                    quote(ShardCoordinator.RemoteFailure.typeName(failure), sb);
+                    sb.append(",\"message\":");
+                    quote(failure.getMessage(), sb);
+                    sb.append(",\"trace\":");
+                    quote(trace(failure), sb);
+                    sb.append('}');
+                }
+                if (!screenshots.isEmpty()) {
+                    sb.append(",\"screenshots\":[");
+                    for (int i = 0; i < screenshots.size(); i++) {
+                        if (i > 0) {
+                            sb.append(',');
+                        }
+                        quote(screenshots.get(i), sb);
+                    }
+                    sb.append(']');
+                }
+                if (video != null) {
+                    sb.append(",\"video\":");
+                    quote(video, sb);
+                }
+                sb.append("}\n");
+                try {
+                    json.write(sb.toString());
+                } catch (IOException ex) {
+                    ex.printStackTrace(System.err);
+                }
+            }
+        });
+    }
+
+    private ClassRecord classRecord(String className) {
+        ClassRecord result = classes.get(className);
+        if (result == null) {
+            ClassRecord nue = new ClassRecord(className);
+            result = classes.putIfAbsent(className, nue);
+            if (result == null) {
+                result = nue;
+                event("classStarted", new TestRecord(className, null), null);
+            }
+        }
+        return result;
+    }
+
+    private TestRecord record(Description desc) {
+        TestRecord result = running.get(desc);
+        if (result == null) {
+            // e.g. a failure in @BeforeClass, which has no test
+            result = new TestRecord(desc.getClassName(), desc.getMethodName() == null
+                    ? desc.getDisplayName() : desc.getMethodName());
+            running.put(desc, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void testStarted(Description description) {
+        classRecord(description.getClassName());
+        TestRecord rec = new TestRecord(description.getClassName(), description.getMethodName());
+        running.put(description, rec);
+        event("testStarted", rec, null);
+    }
+
+    @Override
+    public void testFailure(Failure failure) {
+        TestRecord rec = record(failure.getDescription());
+        rec.failure = failure.getException();
+        rec.status = ShardCoordinator.RemoteFailure.isAssertion(rec.failure) ? FAILED : ERROR;
+        if (failure.getDescription().getMethodName() == null) {
+            // No testFinished will come for a class-level failure
+            finish(failure.getDescription(), rec);
+        }
+    }
+
+    @Override
+    public void testAssumptionFailure(Failure failure) {
+        TestRecord rec = record(failure.getDescription());
+        rec.status = SKIPPED;
+    }
+
+    @Override
+    public void testIgnored(Description description) {
+        classRecord(description.getClassName());
+        TestRecord rec = new TestRecord(description.getClassName(), description.getMethodName());
+        rec.status = IGNORED;
+        rec.end = rec.start;
+        classRecord(description.getClassName()).add(rec);
+        event("testFinished", rec, null);
+    }
+
+    @Override
+    public void testFinished(Description description) {
+        TestRecord rec = running.get(description);
+        if (rec != null) {
+            finish(description, rec);
+        }
+    }
+
+    private void finish(Description description, TestRecord rec) {
+        running.remove(description);
+        rec.end = System.nanoTime();
+        if (rec.status == null) {
+            rec.status = PASSED;
+        }
+        if (rec.method != null) {
+            String shots = System.getProperty(SCREENSHOTS_PROPERTY_PREFIX + rec.className + "#" + rec.method);
+            String clip = System.getProperty(CLIP_PROPERTY_PREFIX + rec.className + "#" + rec.method);
+            if (shots != null || clip != null) {
+                artifacts(rec, shots, clip);
+            }
+        }
+        if (rec.video == null) {
+            rec.video = System.getProperty(VIDEO_PROPERTY);
+        }
+        classRecord(rec.className).add(rec);
+        event("testFinished", rec, rec.failure);
+    }
+
+    /**
+     * Attach artifacts which were reported by some other means (e.g. by a
+     * shard) to a test which is running.
+     *
+     * @param description The test
+     * @param screenshots Comma-separated screenshot paths, or null
+     * @param video The video path, or null
+     */
+    void artifacts(Description description, String screenshots, String video) {
+        artifacts(record(description), screenshots, video);
+    }
+
+    private void artifacts(TestRecord rec, String screenshots, String video) {
+        if (screenshots != null && !screenshots.isEmpty()) {
+            for (String shot : screenshots.split(",")) {
+                if (!rec.screenshots.contains(shot)) {
+                    rec.screenshots.add(shot);
+                }
+            }
+        }
+        if (video != null && !video.isEmpty()) {
+            rec.video = video;
+        }
+    }
+
+    @Override
+    public void testSuiteFinished(Description description) {
+        ClassRecord rec = description.getClassName() == null ? null : classes.remove(description.getClassName());
+        if (rec != null) {
+            writeXml(rec);
+        }
+    }
+
+    /**
+     * Write out any classes not yet finished and the totals, and wait for
+     * everything to be written.
+     *
+     * @param result The result of the run
+     */
+    void close(final Result result) {
+        for (String name : new ArrayList<>(classes.keySet())) {
+            ClassRecord rec = classes.remove(name);
+            if (rec != null) {
+                writeXml(rec);
+            }
+        }
+        if (json != null) {
+            enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        json.write("{\"event\":\"runFinished\",\"time\":" + System.currentTimeMillis()
+                                + ",\"run\":" + result.getRunCount() + ",\"failures\":" + result.getFailureCount()
+                                + ",\"ignored\":" + result.getIgnoreCount()
+                                + ",\"durationMs\":" + result.getRunTime() + "}\n");
+                    } catch (IOException ex) {
+                        ex.printStackTrace(System.err);
+                    }
+                }
+            });
+        }
+        closed = true;
+        queue.add(new Runnable() {
+            @Override
+            public void run() {
+                // wake up the writer thread
+            }
+        });
+        try {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeXml(final ClassRecord rec) {
+        event("classFinished", new TestRecord(rec.className, null), null);
+        if (xmlDir == null) {
+            return;
+        }
+        enqueue(new Runnable() {
+            @Override
+            public void run() {
+                List<TestRecord> tests = rec.tests();
+                int failures = 0;
+                int errors = 0;
+                int skipped = 0;
+                long nanos = 0;
+                for (TestRecord t : tests) {
+                    failures += FAILED.equals(t.status) ? 1 : 0;
+                    errors += ERROR.equals(t.status) ? 1 : 0;
+                    skipped += SKIPPED.equals(t.status) || IGNORED.equals(t.status) ? 1 : 0;
+                    nanos += t.end - t.start;
+                }
+                StringBuilder sb = new StringBuilder(1024);
+                sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuite name=\"");
+                attribute(rec.className, sb);
+                sb.append("\" tests=\"").append(tests.size()).append("\" failures=\"").append(failures)
+                        .append("\" errors=\"").append(errors).append("\" skipped=\"").append(skipped)
+                        .append("\" time=\"").append(seconds(nanos)).append("\" timestamp=\"")
+                        .append(Instant.ofEpochMilli(rec.started)).append("\">\n");
+                for (TestRecord t : tests) {
+                    sb.append("  <testcase name=\"");
+                    attribute(t.method, sb);
+                    sb.append("\" classname=\"");
+                    attribute(t.className, sb);
+                    sb.append("\" time=\"").append(seconds(t.end - t.start)).append("\"");
+                    if (PASSED.equals(t.status) && t.screenshots.isEmpty() && t.video == null) {
+                        sb.append("/>\n");
+                        continue;
+                    }
+                    sb.append(">\n");
+                    if (SKIPPED.equals(t.status) || IGNORED.equals(t.status)) {
+                        sb.append("    <skipped/>\n");
+                    } else if (t.failure != null) {
+                        String tag = FAILED.equals(t.status) ? "failure" : "error";
+                        sb.append("    <").append(tag).append(" message=\"");
+                        attribute(t.failure.getMessage(), sb);
+                        sb.append("\" type=\"");
+                        attribute(ShardCoordinator.RemoteFailure.typeName(t.failure), sb);
+                        sb.append("\">");
+                        xml(trace(t.failure), sb);
+                        sb.append("</").append(tag).append(">\n");
+                    }
+                    if (!t.screenshots.isEmpty() || t.video != null) {
+                        // The form Jenkins' attachments plugin recognizes
+                        sb.append("    <system-out>");
+                        for (String shot : t.screenshots) {
+                            sb.append("[[ATTACHMENT|");
+                            xml(shot, sb);
+                            sb.append("]]\n");
+                        }
+                        if (t.video != null) {
+                            sb.append("[[ATTACHMENT|");
+                            xml(t.video, sb);
+                            sb.append("]]\n");
+                        }
+                        sb.append("</system-out>\n");
+                    }
+                    sb.append("  </testcase>\n");
+                }
+                sb.append("</testsuite>\n");
+                File file = new File(xmlDir, "TEST-" + rec.className + ".xml");
+                File tmp = new File(xmlDir, "TEST-" + rec.className + ".xml.tmp");
+                try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+                    out.write(sb.toString());
+                } catch (IOException ex) {
+                    ex.printStackTrace(System.err);
+                    return;
+                }
+                if (!tmp.renameTo(file)) {
+                    file.delete();
+                    tmp.renameTo(file);
+                }
+            }
+        });
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000000D);
+    }
+
+    private static String trace(Throwable t) {
+        StringWriter out = new StringWriter();
+        t.printStackTrace(new PrintWriter(out));
+        return out.toString();
+    }
+
+    private static void quote(String s, StringBuilder into) {
+        if (s == null) {
+            into.append("null");
+            return;
+        }
+        into.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    into.append("\\\"");
+                    break;
+                case '\\':
+                    into.append("\\\\");
+                    break;
+                case '\n':
+                    into.append("\\n");
+                    break;
+                case '\r':
+                    into.append("\\r");
+                    break;
+                case '\t':
+                    into.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        into.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        into.append(c);
+                    }
+            }
+        }
+        into.append('"');
+    }
+
+    private static void xml(String s, StringBuilder into) {
+        xml(s, false, into);
+    }
+
+    private static void attribute(String s, StringBuilder into) {
+        xml(s, true, into);
+    }
+
+    private static void xml(String s, boolean attribute, StringBuilder into) {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    into.append("&lt;");
+                    break;
+                case '>':
+                    into.append("&gt;");
+                    break;
+                case '&':
+                    into.append("&amp;");
+                    break;
+                case '"':
+                    into.append("&quot;");
+                    break;
+                case '\n':
+                case '\r':
+                case '\t':
+                    // Parsers turn whitespace in attribute values into
+                    // spaces unless it is escaped
+                    if (attribute) {
+                        into.append("&#").append((int) c).append(';');
+                    } else {
+                        into.append(c);
+                    }
+                    break;
+                default:
+                    // Other control characters are not legal in XML 1.0
+                    // at all
+                    if (c >= 0x20) {
+                        into.append(c);
+                    }
+            }
+        }
+    }
+
+    private static final class TestRecord {
+
+        final String className;
+        final String method;
+        final long start = System.nanoTime();
+        final List<String> screenshots = Collections.synchronizedList(new ArrayList<String>(2));
+        volatile long end;
+        volatile String status;
+        volatile Throwable failure;
+        volatile String video;
+
+        TestRecord(String className, String method) {
+            this.className = className;
+            this.method = method;
+        }
+
+        long durationMillis() {
+            return Math.max(0, end - start) / 1000000;
+        }
+    }
+
+    private static final class ClassRecord {
+
+        final String className;
+        final long started = System.currentTimeMillis();
+        private final List<TestRecord> tests = new ArrayList<>();
+
+        ClassRecord(String className) {
+            this.className = className;
+        }
+
+        synchronized void add(TestRecord rec) {
+            tests.add(rec);
+        }
+
+        synchronized List<TestRecord> tests() {
+            return Collections.unmodifiableList(new ArrayList<>(tests));
+        }
+    }
+}
@@ -23,9 +23,9 @@
  */
 package com.mastfrog.testmain;
 
-import com.google.common.reflect.ClassPath;
 import com.mastfrog.settings.Settings;
 import com.mastfrog.settings.SettingsBuilder;
+import com.mastfrog.testmain.index.TestIndex;
 import com.mastfrog.testmain.suites.SuiteLists;
 import java.awt.EventQueue;
 import java.awt.Font;
@@ -33,9 +33,12 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -43,6 +46,8 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,10 +55,11 @@ import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JWindow;
 import javax.swing.Timer;
-import org.junit.Test;
 import org.junit.runner.Description;
 import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
 import org.junit.runner.Result;
+import org.junit.runner.manipulation.Filter;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 
@@ -70,10 +76,41 @@ import org.junit.runner.notification.RunListener;
  * classes
  * </li>
  * <li>--exclude [list of packages] - packages to exclude from scanning</li>
+ * <li>--test.index false - ignore the compile-time test index and scan</li>
+ * <li>--workers [count] - run up to this many test classes concurrently; the
+ * window showing the test name is not shown in this mode</li>
+ * <li>--shards [count] - run test classes in this many child JVMs, which take
+ * classes from this one as they finish the last; combines with --workers,
+ * which then applies to each child</li>
+ * <li>--test.schedule false - run classes in the order found, rather than
+ * running those which failed last time first and, when running concurrently,
+ * the slowest next, using timings saved by the last run</li>
+ * <li>--test.timings.file [path] - where timings are saved, by default
+ * target/test-timings if there is a target directory</li>
+ * <li>--rerun-failed - run only the test methods which failed in the last
+ * run</li>
+ * <li>--test.failures.file [path] - where the tests which failed are listed,
+ * by default target/test-failures if there is a target directory</li>
+ * <li>--test.results.json [path] - where to stream results as
+ * newline-delimited JSON, by default target/test-results.ndjson if there is a
+ * target directory; empty to disable</li>
+ * <li>--test.results.xml [dir] - where to write JUnit XML reports, one per
+ * class as it finishes, by default target/test-reports if there is a target
+ * directory; empty to disable</li>
+ * <li>--test.jfr [path] - record the run with Flight Recorder to this file;
+ * with --shards, each child JVM records to its own file, named with its
+ * process id</li>
  * </ul>
- * The default behavior with no arguments is to scan the entire classpath for
- * classes whose name ends in Test where at least one method has the &#064Test
- * annotation. This works, but is slower than explicitly specifying classes.
+ * RunListeners registered in META-INF/services/org.junit.runner.notification.RunListener
+ * are added to the run.
+ * <p>
+ * The default behavior with no arguments is to run the test classes listed in
+ * META-INF/tests/index.list, which TestIndexProcessor writes at compile time.
+ * Classpath entries with no index have their class files read (in parallel,
+ * without loading them) to find classes whose name ends in Test where at least
+ * one method has the &#064Test annotation. Both select the same classes; the
+ * index only saves reading the class files. This works, but is slower than
+ * explicitly specifying classes.
  * <p>
  * A process exit code of 2 means tests failed.
  * <p>
@@ -104,21 +141,114 @@ public class TestMain {
     };
     private static boolean showWindow;
 
-    public static void main(String[] args) throws IOException, ClassNotFoundException {
+    public static void main(String[] args) throws IOException, ClassNotFoundException, InterruptedException {
         // Ensure that @Named values for within tests are set up including any command
         // line arguments passed here
         Settings settings = new SettingsBuilder().parseCommandLineArguments(args).build();
         for (String key : settings.allKeys()) {
             System.setProperty(key, settings.getString(key));
         }
+        int workers = settings.getInt("workers", 1);
+        String failuresFile = settings.getString(FailureLedger.FAILURES_FILE_SETTING);
+        FailureLedger ledger = new FailureLedger(failuresFile == null ? FailureLedger.defaultFile()
+                : failuresFile.isEmpty() ? null : new File(failuresFile));
+        boolean rerunFailed = settings.getBoolean(FailureLedger.RERUN_FAILED_SETTING, false);
+        Filter filter = rerunFailed ? ledger.filter() : null;
+        String coordinator = settings.getString(ShardCoordinator.COORDINATOR_SETTING);
+        if (coordinator != null) {
+            // We are a child JVM started by --shards; the coordinator
+            // hands out the tests and reports the results
+            FlightRecording recording = flightRecording(settings, true);
+            List<RunListener> childListeners = serviceListeners();
+            childListeners.add(new CmdLineOut());
+            if (recording != null) {
+                childListeners.add(recording);
+            }
+            new ShardWorker(Integer.parseInt(coordinator), filter,
+                    childListeners.toArray(new RunListener[childListeners.size()])).run(Math.max(1, workers));
+            if (recording != null) {
+                recording.close();
+            }
+            System.exit(0);
+        }
         String testNamespace = System.getProperty("test.config", "tests");
 
-        Class<?>[] tests = findTests(testNamespace, args);
-        JUnitCore core = new JUnitCore();
+        Class<?>[] tests;
+        if (rerunFailed) {
+            if (ledger.file == null) {
+                System.err.println("No failures file - pass --" + FailureLedger.FAILURES_FILE_SETTING);
+                System.exit(3);
+            }
+            if (ledger.isEmpty()) {
+                System.out.println("::No failures recorded in " + ledger.file);
+                return;
+            }
+            tests = ledger.types(TestMain.class.getClassLoader());
+            if (tests.length == 0) {
+                System.out.println("::No recorded failures still exist");
+                ledger.save();
+                return;
+            }
+            showWindow = settings.getBoolean("test.window", true) && !Boolean.getBoolean("java.awt.headless");
+            System.out.println("::RERUNNING: " + ledger.size() + " failures in " + typesToString(Arrays.asList(tests)));
+        } else {
+            tests = findTests(testNamespace, args);
+        }
+        int shards = settings.getInt(ShardCoordinator.SHARDS_SETTING, 0);
+        Result result;
+        if (shards > 1 || workers > 1) {
+            if (showWindow) {
+                // One window naming "the current test" means nothing when
+                // several are running
+                System.out.println("::Test name window disabled when running tests concurrently");
+                showWindow = false;
+            }
+        }
+        String timingsFile = settings.getString(TestTimings.TIMINGS_FILE_SETTING);
+        TestTimings timings = new TestTimings(timingsFile == null ? TestTimings.defaultFile()
+                : timingsFile.isEmpty() ? null : new File(timingsFile));
+        if (settings.getBoolean("test.schedule", true)) {
+            tests = timings.schedule(tests, shards > 1 || workers > 1);
+        }
+        List<RunListener> listeners = serviceListeners();
+        listeners.add(timings.recorder());
+        listeners.add(ledger.recorder());
+        StructuredReporter reporter = structuredReporter(settings);
+        if (reporter != null) {
+            listeners.add(reporter);
+        }
+        FlightRecording recording = flightRecording(settings, false);
+        if (recording != null) {
+            listeners.add(recording);
+        }
+        RunListener[] extraListeners = listeners.toArray(new RunListener[listeners.size()]);
+        if (shards > 1) {
+            result = new ShardCoordinator(shards, args, extraListeners).run(tests);
+        } else if (workers > 1) {
+            listeners.add(0, new CmdLineOut());
+            result = new ParallelTests(workers, filter, listeners.toArray(new RunListener[listeners.size()])).run(tests);
+        } else {
+            JUnitCore core = new JUnitCore();
 
-        core.addListener(new CmdLineOut());
+            core.addListener(new CmdLineOut());
+            for (RunListener l : extraListeners) {
+                core.addListener(l);
+            }
 
-        Result result = core.run(tests);
+            result = core.run(filter == null ? Request.classes(tests) : Request.classes(tests).filterWith(filter));
+        }
+        if (reporter != null) {
+            reporter.close(result);
+        }
+        if (recording != null) {
+            recording.close();
+        }
+        if (!rerunFailed) {
+            // A class's time with only some of its tests run would make it
+            // look faster than it is
+            timings.save();
+        }
+        ledger.save();
         // Pending - take screen shots on failure, use some reporting engine or other
         System.out.println("::RAN: " + result.getRunCount());
         System.out.println("::FAILURES: " + result.getFailureCount());
@@ -134,6 +264,45 @@ public class TestMain {
         }
     }
 
+    private static StructuredReporter structuredReporter(Settings settings) throws IOException {
+        String jsonFile = settings.getString(StructuredReporter.JSON_FILE_SETTING);
+        String xmlDir = settings.getString(StructuredReporter.XML_DIR_SETTING);
+        File json = jsonFile == null ? StructuredReporter.defaultJsonFile()
+                : jsonFile.isEmpty() ? null : new File(jsonFile);
+        File xml = xmlDir == null ? StructuredReporter.defaultXmlDir()
+                : xmlDir.isEmpty() ? null : new File(xmlDir);
+        return json == null && xml == null ? null : new StructuredReporter(json, xml);
+    }
+
+    /**
+     * RunListeners registered in META-INF/services, such as the video
+     * module's, which go ahead of the built in ones so anything they publish
+     * for a test is there to be reported when it finishes.
+     */
+    private static List<RunListener> serviceListeners() {
+        List<RunListener> result = new ArrayList<>();
+        try {
+            for (RunListener l : ServiceLoader.load(RunListener.class)) {
+                result.add(l);
+            }
+        } catch (ServiceConfigurationError err) {
+            System.err.println("::Could not load RunListeners: " + err);
+        }
+        return result;
+    }
+
+    private static FlightRecording flightRecording(Settings settings, boolean shard) throws IOException {
+        String file = settings.getString(FlightRecording.FILE_SETTING);
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        if (!FlightRecording.available()) {
+            System.out.println("::Flight Recorder not available in this JVM - not recording");
+            return null;
+        }
+        return new FlightRecording(shard ? FlightRecording.shardFile(new File(file)) : new File(file));
+    }
+
     private static Class<?>[] findTests(String testNamespace, String... args) throws IOException, ClassNotFoundException {
         // Parse the command-line arguments and any system settings in /etc/tests.properties
         Settings settings = new SettingsBuilder(testNamespace)
@@ -208,66 +377,95 @@ public class TestMain {
             // We will scan packages for classes whose name ends with "Test"
             String pkgs = settings.getString("packages");
             Set<String> packages = pkgs == null ? Collections.<String>emptySet() : new HashSet<String>(Arrays.asList(pkgs.split(",")));
-            ClassPath pth = ClassPath.from(TestMain.class.getClassLoader());
+            TestIndex index = new TestIndex();
             Set<Class<?>> types = new LinkedHashSet<>();
-            NEXT_TYPE:
-            for (ClassPath.ClassInfo info : pth.getAllClasses()) {
-                String packageName = info.getPackageName();
-                // If the user passed e.g. --testPackages com.foo.bar,com.foo.baz
+            Set<File> indexed = Collections.emptySet();
+            if (!index.isEmpty() && settings.getBoolean("test.index", true)) {
+                types.addAll(indexedTests(index, packages, excluded));
+                indexed = index.indexedEntries();
+            }
+            // Jars and directories built without the index still get scanned
+            types.addAll(scannedTests(packages, excluded, indexed));
+            if (types.isEmpty()) {
+                System.err.println("No test types found");
+                System.exit(1);
+            }
+            System.out.println("::TESTS: " + typesToString(types));
+            return types.toArray(new Class<?>[types.size()]);
+        }
+    }
+
+    private static Set<Class<?>> indexedTests(TestIndex index, Set<String> packages, Set<String> excluded) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (String name : index.typeNames()) {
+            int dot = name.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : name.substring(0, dot);
+            if (!packageIncluded(packageName, packages, excluded)) {
+                continue;
+            }
+            try {
+                // Don't run static initializers until JUnit needs the class
+                types.add(Class.forName(name, false, TestMain.class.getClassLoader()));
+            } catch (ClassNotFoundException ex) {
+                System.err.println("Stale test index entry " + name + " - rebuild?");
+            }
+        }
+        return types;
+    }
+
+    private static Set<Class<?>> scannedTests(final Set<String> packages, final Set<String> excluded, Set<File> indexed) throws IOException {
+        ClassLoader loader = TestMain.class.getClassLoader();
+        ClassPathScanner scanner = new ClassPathScanner(loader, new ClassPathScanner.PackageFilter() {
+            @Override
+            public boolean include(String packageName) {
+                // If the user passed e.g. --packages com.foo.bar,com.foo.baz
                 // then prune out anything that doesn't match
-                if (!packages.isEmpty()) {
-                    for (String pkg : packages) {
-                        if (!packageName.startsWith(pkg)) {
-                            continue NEXT_TYPE;
-                        }
-                    }
-                } else {
-                    for (String exc : excluded) {
-                        if (packageName.startsWith(exc)) {
-                            continue NEXT_TYPE;
-                        }
-                    }
+                if (!packageIncluded(packageName, packages, excluded)) {
+                    return false;
+                }
+                if (packages.isEmpty()) {
                     // Since we're scanning the classpath, avoid picking up stuff
                     // from the JDK or libraries that happens to end with "Test"
                     for (String pkg : DEFAULT_EXCLUDED_PACKAGES) {
                         if (packageName.startsWith(pkg)) {
-                            continue NEXT_TYPE;
+                            return false;
                         }
                     }
                     // Ensure on other JDKs that obvious stuff isn't picked up
-                    if (packageName.startsWith("java") || packageName.startsWith("javax") || packageName.startsWith("com.sun")) {
-                        continue;
+                    if (packageName.startsWith("java") || packageName.startsWith("com.sun")) {
+                        return false;
                     }
                 }
-                // Only include classes whose name ends in "Test"
-                if (info.getName().endsWith("Test")) {
-                    Class<?> type = info.load();
-                    // Weed out things that cannot possibly be usable
-                    if (type.isLocalClass()) {
-                        continue;
-                    }
-                    if ((type.getModifiers() & Modifier.ABSTRACT) != 0) {
-                        continue;
-                    }
-                    boolean foundTestAnnotation = false;
-                    for (Method m : type.getMethods()) {
-                        if (m.getAnnotation(Test.class) != null) {
-                            foundTestAnnotation = true;
-                            break;
-                        }
-                    }
-                    if (foundTestAnnotation && type.getAnnotation(Ignore.class) == null) { // allow base classes to be ignored
-                        types.add(info.load());
-                    }
+                return true;
+            }
+        }, indexed);
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (String name : scanner.scan()) {
+            try {
+                // Don't run static initializers until JUnit needs the class
+                types.add(Class.forName(name, false, loader));
+            } catch (ClassNotFoundException | LinkageError ex) {
+                System.err.println("Could not load " + name + ": " + ex);
+            }
+        }
+        return types;
+    }
+
+    private static boolean packageIncluded(String packageName, Set<String> packages, Set<String> excluded) {
+        if (!packages.isEmpty()) {
+            for (String pkg : packages) {
+                if (packageName.startsWith(pkg.trim())) {
+                    return true;
                 }
             }
-            if (types.isEmpty()) {
-                System.err.println("No test types found");
-                System.exit(1);
+            return false;
+        }
+        for (String exc : excluded) {
+            if (packageName.startsWith(exc)) {
+                return false;
             }
-            System.out.println("::TESTS: " + typesToString(types));
-            return types.toArray(new Class<?>[types.size()]);
         }
+        return true;
     }
 
     static CharSequence typesToString(Iterable<Class<?>> types) {
@@ -281,6 +479,7 @@ public class TestMain {
         return sb;
     }
 
+    @RunListener.ThreadSafe
     static class CmdLineOut extends RunListener {
         // Continuous build simple reporting output like
         // RUN: foo
@@ -307,8 +506,7 @@ public class TestMain {
 
         @Override
         public void testAssumptionFailure(Failure failure) {
-            System.out.println("::FAIL: " + testName(failure.getDescription()));
-            failure.getException().printStackTrace(System.out);
+            printFailure(failure);
         }
 
         @Override
@@ -318,8 +516,19 @@ public class TestMain {
 
         @Override
         public void testFailure(Failure failure) throws Exception {
-            System.out.println("::FAIL: " + testName(failure.getDescription()));
-            failure.getException().printStackTrace(System.out);
+            printFailure(failure);
+        }
+
+        private void printFailure(Failure failure) {
+            // Write the stack trace in one go, so it is not interleaved
+            // with output from tests running on other threads
+            StringWriter out = new StringWriter();
+            PrintWriter pw = new PrintWriter(out);
+            pw.println("::FAIL: " + testName(failure.getDescription()));
+            failure.getException().printStackTrace(pw);
+            pw.flush();
+            System.out.print(out);
+            System.out.flush();
         }
     }
 
@@ -0,0 +1,262 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * How long test classes and methods took, and whether they failed, the last
+ * time they ran. Saved to <code>test.timings.file</code> (default
+ * target/test-timings, if there is a target directory) and used to order the
+ * next run: classes which failed last time go first, for fast feedback, and
+ * when classes run concurrently the longest go next, so that one slow class
+ * does not start last and stretch the whole run.
+ *
+ * @author Tim Boudreau
+ */
+final class TestTimings {
+
+    static final String TIMINGS_FILE_SETTING = "test.timings.file";
+    private static final String CLASS_PREFIX = "class:";
+    private static final String METHOD_PREFIX = "method:";
+    private static final String FAILED_SUFFIX = ",failed";
+    private final Map<String, Timing> classes = new ConcurrentHashMap<>();
+    private final Map<String, Timing> methods = new ConcurrentHashMap<>();
+    private final File file;
+
+    TestTimings(File file) {
+        this.file = file;
+        load();
+    }
+
+    static File defaultFile() {
+        File target = new File("target");
+        return target.isDirectory() ? new File(target, "test-timings") : null;
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+            for (String key : props.stringPropertyNames()) {
+                String value = props.getProperty(key);
+                boolean failed = value.endsWith(FAILED_SUFFIX);
+                if (failed) {
+                    value = value.substring(0, value.length() - FAILED_SUFFIX.length());
+                }
+                Timing timing = new Timing(Long.parseLong(value.trim()), failed);
+                if (key.startsWith(CLASS_PREFIX)) {
+                    classes.put(key.substring(CLASS_PREFIX.length()), timing);
+                } else if (key.startsWith(METHOD_PREFIX)) {
+                    methods.put(key.substring(METHOD_PREFIX.length()), timing);
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            System.err.println("Could not read test timings from " + file + ": " + ex);
+        }
+    }
+
+    /**
+     * Save the timings, merging in those of any tests which ran.
+     */
+    void save() {
+        if (file == null) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, Timing> e : classes.entrySet()) {
+            props.setProperty(CLASS_PREFIX + e.getKey(), e.getValue().toString());
+        }
+        for (Map.Entry<String, Timing> e : methods.entrySet()) {
+            props.setProperty(METHOD_PREFIX + e.getKey(), e.getValue().toString());
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, "Milliseconds each test class and method took in its last run");
+        } catch (IOException ex) {
+            System.err.println("Could not save test timings to " + file + ": " + ex);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                System.err.println("Could not save test timings to " + file);
+            }
+        }
+    }
+
+    /**
+     * Order test classes for a run: those which failed last time first, then,
+     * if longestFirst, by descending duration, with classes never timed
+     * treated as average. The order is otherwise unchanged.
+     *
+     * @param tests The tests
+     * @param longestFirst Whether to sort by duration
+     * @return The tests, reordered
+     */
+    Class<?>[] schedule(Class<?>[] tests, final boolean longestFirst) {
+        long total = 0;
+        int count = 0;
+        for (Timing t : classes.values()) {
+            total += t.millis;
+            count++;
+        }
+        final long average = count == 0 ? 0 : total / count;
+        Class<?>[] result = Arrays.copyOf(tests, tests.length);
+        // Arrays.sort on objects is stable
+        Arrays.sort(result, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> a, Class<?> b) {
+                Timing ta = classes.get(a.getName());
+                Timing tb = classes.get(b.getName());
+                boolean fa = ta != null && ta.failed;
+                boolean fb = tb != null && tb.failed;
+                if (fa != fb) {
+                    return fa ? -1 : 1;
+                }
+                if (!longestFirst) {
+                    return 0;
+                }
+                long da = ta == null ? average : ta.millis;
+                long db = tb == null ? average : tb.millis;
+                return Long.compare(db, da);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get a listener which records timings of tests as they run. Class
+     * timings are from the start of a class's first test to the end of its
+     * last.
+     *
+     * @return A listener
+     */
+    RunListener recorder() {
+        return new Recorder();
+    }
+
+    private static final class Timing {
+
+        final long millis;
+        final boolean failed;
+
+        Timing(long millis, boolean failed) {
+            this.millis = millis;
+            this.failed = failed;
+        }
+
+        @Override
+        public String toString() {
+            return failed ? millis + FAILED_SUFFIX : Long.toString(millis);
+        }
+    }
+
+    private static final class Span {
+
+        final long start = System.nanoTime();
+        volatile long end;
+        volatile boolean failed;
+    }
+
+    @RunListener.ThreadSafe
+    private final class Recorder extends RunListener {
+
+        private final Map<Description, Long> started = new ConcurrentHashMap<>();
+        private final Map<Description, Boolean> failed = new ConcurrentHashMap<>();
+        private final Map<String, Span> spans = new ConcurrentHashMap<>();
+
+        private Span span(String className) {
+            Span result = spans.get(className);
+            if (result == null) {
+                Span nue = new Span();
+                result = spans.putIfAbsent(className, nue);
+                if (result == null) {
+                    result = nue;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void testStarted(Description description) {
+            started.put(description, System.nanoTime());
+            span(description.getClassName());
+        }
+
+        @Override
+        public void testFailure(Failure failure) {
+            Description desc = failure.getDescription();
+            failed.put(desc, true);
+            // Failures of a whole class (e.g. in @BeforeClass) have no method
+            span(desc.getClassName()).failed = true;
+            updateClass(desc.getClassName());
+        }
+
+        @Override
+        public void testAssumptionFailure(Failure failure) {
+            // A skipped test, not a failed one
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            long now = System.nanoTime();
+            Long start = started.remove(description);
+            boolean wasFailed = failed.remove(description) != null;
+            if (start != null && description.getMethodName() != null) {
+                methods.put(description.getClassName() + "#" + description.getMethodName(),
+                        new Timing((now - start) / 1000000, wasFailed));
+            }
+            Span span = span(description.getClassName());
+            span.end = now;
+            updateClass(description.getClassName());
+        }
+
+        private void updateClass(String className) {
+            Span span = spans.get(className);
+            long end = span.end == 0 ? System.nanoTime() : span.end;
+            classes.put(className, new Timing((end - span.start) / 1000000, span.failed));
+        }
+    }
+}
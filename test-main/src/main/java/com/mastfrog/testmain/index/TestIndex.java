@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain.index;
+
+import com.mastfrog.util.streams.Streams;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The test classes listed in META-INF/tests/index.list files on the classpath,
+ * written at compile time by TestIndexProcessor.
+ *
+ * @author Tim Boudreau
+ */
+public class TestIndex {
+
+    public static final String TEST_INDEX_FILE = "META-INF/tests/index.list";
+    private final Set<String> typeNames = new LinkedHashSet<>();
+    private final Set<File> indexedEntries = new LinkedHashSet<>();
+
+    public TestIndex() throws IOException {
+        Enumeration<URL> urls = TestIndex.class.getClassLoader().getResources(TEST_INDEX_FILE);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            File entry = classpathEntry(url);
+            if (entry != null) {
+                indexedEntries.add(entry);
+            }
+            try (InputStream in = url.openStream()) {
+                for (String line : Streams.readString(in).split("\n")) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    typeNames.add(line);
+                }
+            }
+        }
+    }
+
+    private static File classpathEntry(URL url) throws IOException {
+        try {
+            if ("jar".equals(url.getProtocol())) {
+                return new File(((JarURLConnection) url.openConnection()).getJarFileURL().toURI()).getAbsoluteFile();
+            } else if ("file".equals(url.getProtocol())) {
+                // Up from META-INF/tests/index.list
+                return new File(url.toURI()).getParentFile().getParentFile().getParentFile().getAbsoluteFile();
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            // Not a local file; scanning will not see it either
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return typeNames.isEmpty();
+    }
+
+    public List<String> typeNames() {
+        return new ArrayList<>(typeNames);
+    }
+
+    /**
+     * The classpath entries (directories or jars) which have an index.
+     *
+     * @return A set of files
+     */
+    public Set<File> indexedEntries() {
+        return Collections.unmodifiableSet(indexedEntries);
+    }
+}
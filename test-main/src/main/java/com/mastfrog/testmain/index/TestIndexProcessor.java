@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain.index;
+
+import com.mastfrog.annotation.AnnotationUtils;
+import com.mastfrog.annotation.registries.AbstractLineOrientedRegistrationAnnotationProcessor;
+import com.mastfrog.util.service.ServiceProvider;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Writes the names of test classes TestMain can run - public, concrete,
+ * top-level or static nested classes whose name ends in Test, with
+ * &#064;Test methods of their own or inherited, and not marked &#064;Ignore -
+ * to META-INF/tests/index.list, so TestMain need not scan the classpath for
+ * them.
+ *
+ * @author Tim Boudreau
+ */
+@ServiceProvider(Processor.class)
+@SupportedAnnotationTypes({"org.junit.Test"})
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class TestIndexProcessor extends AbstractLineOrientedRegistrationAnnotationProcessor {
+
+    private static final String TEST = "org.junit.Test";
+    private static final String IGNORE = "com.mastfrog.testmain.Ignore";
+    private final Set<String> added = new HashSet<>();
+    private int ix;
+
+    @Override
+    protected void handleOne(Element el, AnnotationMirror anno, int order, AnnotationUtils utils) {
+        if (el.getEnclosingElement() instanceof TypeElement) {
+            addIfRunnable((TypeElement) el.getEnclosingElement());
+        }
+    }
+
+    @Override
+    protected void onAfterRound(RoundEnvironment env, boolean processingOver, int round) {
+        // Subclasses which only inherit their @Test methods are not seen by
+        // handleOne()
+        for (Element el : env.getRootElements()) {
+            if (el instanceof TypeElement) {
+                scan((TypeElement) el);
+            }
+        }
+    }
+
+    private void scan(TypeElement type) {
+        if (inheritsTests(type)) {
+            addIfRunnable(type);
+        }
+        for (Element e : type.getEnclosedElements()) {
+            if (e instanceof TypeElement) {
+                scan((TypeElement) e);
+            }
+        }
+    }
+
+    private boolean inheritsTests(TypeElement type) {
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if (member.getKind() == ElementKind.METHOD && hasAnnotation(member, TEST)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAnnotation(Element el, String annotationType) {
+        for (AnnotationMirror mirror : el.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addIfRunnable(TypeElement type) {
+        // The same checks TestMain makes when scanning
+        if (type.getKind() != ElementKind.CLASS
+                || !type.getModifiers().contains(Modifier.PUBLIC)
+                || type.getModifiers().contains(Modifier.ABSTRACT)
+                || hasAnnotation(type, IGNORE)) {
+            return;
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) {
+            return;
+        }
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        // Helpers with @Test methods are left for the classes that use them
+        if (!name.endsWith("Test")) {
+            return;
+        }
+        if (added.add(name)) {
+            super.addLine(TestIndex.TEST_INDEX_FILE, name, type);
+        }
+    }
+
+    @Override
+    protected int getOrder(AnnotationMirror anno) {
+        return ix++;
+    }
+}
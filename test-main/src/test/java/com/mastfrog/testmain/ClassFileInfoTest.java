@@ -0,0 +1,228 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ClassFileInfoTest {
+
+    @Test
+    public void testTopLevelClass() throws IOException {
+        ClassFileInfo info = parse(ClassFileInfoTest.class);
+        assertEquals(ClassFileInfoTest.class.getName(), info.name);
+        assertEquals("java.lang.Object", info.superName);
+        assertTrue(info.concrete);
+        assertTrue(info.hasTestMethod);
+        assertFalse(info.ignored);
+        // It has an InnerClasses attribute, listing its own nested classes
+        assertFalse(info.local);
+    }
+
+    @Test
+    public void testLongAndDoubleConstantsTakeTwoSlots() throws IOException {
+        ClassFileInfo info = parse(Constants.class);
+        assertEquals(Constants.class.getName(), info.name);
+        assertEquals(Base.class.getName(), info.superName);
+        assertTrue(info.concrete);
+        assertTrue(info.hasTestMethod);
+        assertFalse(info.local);
+    }
+
+    @Test
+    public void testNestedAnnotationValues() throws IOException {
+        // @Test comes after an annotation with nested annotations, arrays,
+        // enums and class literals, which must be skipped correctly to find it
+        ClassFileInfo info = parse(Annotated.class);
+        assertTrue(info.hasTestMethod);
+        assertTrue(info.ignored);
+    }
+
+    @Test
+    public void testNonPublicTestMethodsDoNotCount() throws IOException {
+        assertFalse(parse(PackagePrivateMethod.class).hasTestMethod);
+        assertFalse(parse(Base.class).hasTestMethod);
+    }
+
+    @Test
+    public void testAbstractAndInterface() throws IOException {
+        assertFalse(parse(AbstractSample.class).concrete);
+        assertTrue(parse(AbstractSample.class).hasTestMethod);
+        assertFalse(parse(Runnable.class).concrete);
+        assertNotNull(parse(Runnable.class).superName);
+    }
+
+    @Test
+    public void testLocalAndAnonymousClasses() throws IOException {
+        class Local {
+
+            @Test
+            public void test() {
+            }
+        }
+        Object anonymous = new Object() {
+            @Test
+            public void test() {
+            }
+        };
+        ClassFileInfo local = parse(Local.class);
+        assertTrue(local.local);
+        assertTrue(local.hasTestMethod);
+        assertTrue(parse(anonymous.getClass()).local);
+        assertFalse(parse(Constants.class).local);
+        assertFalse(parse(Constants.Inner.class).local);
+    }
+
+    @Test
+    public void testNotAClassFile() {
+        try {
+            ClassFileInfo.parse(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+            fail("Not a class file");
+        } catch (IOException ex) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testTruncatedClassFile() throws IOException {
+        byte[] bytes = bytes(Constants.class);
+        try {
+            ClassFileInfo.parse(Arrays.copyOf(bytes, bytes.length / 2));
+            fail("Truncated");
+        } catch (IOException ex) {
+            // ok
+        }
+    }
+
+    private static ClassFileInfo parse(Class<?> type) throws IOException {
+        return ClassFileInfo.parse(bytes(type));
+    }
+
+    private static byte[] bytes(Class<?> type) throws IOException {
+        String resource = '/' + type.getName().replace('.', '/') + ".class";
+        try (InputStream in = ClassFileInfoTest.class.getResourceAsStream(resource)) {
+            assertNotNull(resource, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int read = in.read(buf); read >= 0; read = in.read(buf)) {
+                out.write(buf, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static class Base {
+
+        @Test
+        void notPublic() {
+        }
+    }
+
+    public static class Constants extends Base {
+
+        static final long LONG = 0x123456789ABCDEFL;
+        static final double DOUBLE = 2.718281828459045;
+        static final long ANOTHER_LONG = -98765432109876L;
+        static final double ANOTHER_DOUBLE = 1.0E-300;
+        long value = 0x7EDCBA9876543210L;
+
+        @Test
+        public void test() {
+            value += LONG * ANOTHER_LONG;
+            assertTrue(DOUBLE * ANOTHER_DOUBLE > 0);
+        }
+
+        public static class Inner {
+        }
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Nested {
+
+        String value();
+
+        int[] numbers() default {};
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Complex {
+
+        Nested value();
+
+        Nested[] more();
+
+        ElementType kind();
+
+        Class<?>[] types();
+
+        String[] strings();
+
+        long number();
+    }
+
+    @Ignore
+    @Complex(value = @Nested(value = "a", numbers = {1, 2, 3}),
+            more = {@Nested("b"), @Nested(value = "c", numbers = 4)},
+            kind = ElementType.METHOD, types = {String.class, int[].class},
+            strings = {"x", "y"}, number = Long.MAX_VALUE)
+    public static class Annotated {
+
+        @Complex(value = @Nested(value = "a", numbers = {1, 2, 3}),
+                more = {@Nested("b"), @Nested(value = "c", numbers = 4)},
+                kind = ElementType.METHOD, types = {String.class, int[].class},
+                strings = {"x", "y"}, number = Long.MIN_VALUE)
+        @Test
+        public void test() {
+        }
+    }
+
+    public static class PackagePrivateMethod {
+
+        @Test
+        void test() {
+        }
+    }
+
+    public abstract static class AbstractSample {
+
+        @Test
+        public void test() {
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class FailureLedgerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File file = new File(tmp.getRoot(), "test-failures");
+        FailureLedger ledger = new FailureLedger(file);
+        assertTrue(ledger.isEmpty());
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(ledger.recorder());
+        Result result = junit.run(Mixed.class, BrokenSetup.class, Passing.class);
+        assertEquals(2, result.getFailureCount());
+        ledger.save();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("# Tests which failed in the last run",
+                BrokenSetup.class.getName(),
+                Mixed.class.getName() + "#fails"), lines);
+
+        FailureLedger reloaded = new FailureLedger(file);
+        assertFalse(reloaded.isEmpty());
+        assertEquals(2, reloaded.size());
+        assertArrayEquals(new Class<?>[]{BrokenSetup.class, Mixed.class},
+                reloaded.types(FailureLedgerTest.class.getClassLoader()));
+    }
+
+    @Test
+    public void testSaveReplacesThePreviousRun() throws IOException {
+        File file = ledgerFile(Mixed.class.getName() + "#fails", Passing.class.getName() + "#passes");
+        FailureLedger ledger = new FailureLedger(file);
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(ledger.recorder());
+        junit.run(Passing.class);
+        ledger.save();
+        assertTrue(new FailureLedger(file).isEmpty());
+    }
+
+    @Test
+    public void testFilterRunsOnlyFailedMethods() throws IOException {
+        FailureLedger ledger = new FailureLedger(ledgerFile(
+                Mixed.class.getName() + "#fails",
+                BrokenSetup.class.getName()));
+        Result mixed = new JUnitCore().run(Request.aClass(Mixed.class).filterWith(ledger.filter()));
+        assertEquals(1, mixed.getRunCount());
+        assertEquals("fails", mixed.getFailures().get(0).getDescription().getMethodName());
+        // A class which failed as a whole is rerun whole
+        Result broken = new JUnitCore().run(Request.aClass(BrokenSetup.class).filterWith(ledger.filter()));
+        assertEquals(1, broken.getFailureCount());
+        assertTrue(broken.getFailures().get(0).getException() instanceof IllegalStateException);
+        assertFalse(ledger.filter().shouldRun(Request.aClass(Passing.class).getRunner().getDescription()));
+    }
+
+    @Test
+    public void testStaleEntriesAreDropped() throws IOException {
+        FailureLedger ledger = new FailureLedger(ledgerFile(
+                Mixed.class.getName() + "#fails",
+                Mixed.class.getName() + "#renamed",
+                Passing.class.getName() + "#deleted",
+                "com.mastfrog.testmain.NoSuchClass",
+                "com.mastfrog.testmain.NoSuchClass2#method"));
+        assertEquals(5, ledger.size());
+        assertArrayEquals(new Class<?>[]{Mixed.class},
+                ledger.types(FailureLedgerTest.class.getClassLoader()));
+        // Only the missing methods are forgotten; missing classes are just
+        // not returned
+        assertEquals(3, ledger.size());
+        Result result = new JUnitCore().run(Request.aClass(Mixed.class).filterWith(ledger.filter()));
+        assertEquals(1, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+    }
+
+    @Test
+    public void testMissingFile() {
+        FailureLedger ledger = new FailureLedger(new File(tmp.getRoot(), "nothing-here"));
+        assertTrue(ledger.isEmpty());
+        assertEquals(0, ledger.types(FailureLedgerTest.class.getClassLoader()).length);
+        assertTrue(new FailureLedger(null).isEmpty());
+    }
+
+    private File ledgerFile(String... lines) throws IOException {
+        File result = tmp.newFile();
+        Files.write(result.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return result;
+    }
+
+    public static class Mixed {
+
+        @Test
+        public void passes() {
+        }
+
+        @Test
+        public void fails() {
+            throw new IllegalStateException("Expected failure");
+        }
+    }
+
+    public static class BrokenSetup {
+
+        @BeforeClass
+        public static void setUp() {
+            throw new IllegalStateException("Expected failure");
+        }
+
+        @Test
+        public void test() {
+        }
+    }
+
+    public static class Passing {
+
+        @Test
+        public void passes() {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ParallelTestsTest {
+
+    private static final long PAUSE = 400;
+    // Each fixture class waits for the other, so both must be running at once
+    static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+
+    @Test
+    public void testTwoWorkers() {
+        Recorder recorder = new Recorder();
+        Result result = new ParallelTests(2, null, recorder).run(First.class, Second.class);
+        assertEquals(5, result.getRunCount());
+        assertEquals(2, result.getFailureCount());
+        assertEquals(1, result.getIgnoreCount());
+        assertEquals(1, result.getAssumptionFailureCount());
+        List<String> failed = new ArrayList<>();
+        for (Failure f : result.getFailures()) {
+            failed.add(f.getDescription().getDisplayName());
+        }
+        Collections.sort(failed);
+        assertEquals(2, failed.size());
+        assertEquals("fails(" + First.class.getName() + ")", failed.get(0));
+        assertEquals("fails(" + Second.class.getName() + ")", failed.get(1));
+        // The classes ran side by side, so the run took about as long as one
+        // of them, not the sum
+        long runTime = result.getRunTime();
+        assertTrue("Run time " + runTime, runTime >= PAUSE);
+        assertTrue("Run time " + runTime, runTime < PAUSE * 2 - PAUSE / 4);
+
+        assertEquals(5, recorder.finished.size());
+        assertEquals(1, recorder.ignored.size());
+    }
+
+    static final class Recorder extends RunListener {
+
+        final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> ignored = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void testFinished(Description description) {
+            finished.add(description.getDisplayName());
+        }
+
+        @Override
+        public void testIgnored(Description description) {
+            ignored.add(description.getDisplayName());
+        }
+    }
+
+    private static void pause() throws Exception {
+        BARRIER.await(10, TimeUnit.SECONDS);
+        Thread.sleep(PAUSE);
+    }
+
+    public static class First {
+
+        @Test
+        public void slow() throws Exception {
+            pause();
+        }
+
+        @Test
+        public void fails() {
+            throw new AssertionError("first");
+        }
+
+        @Ignore
+        @Test
+        public void ignored() {
+        }
+    }
+
+    public static class Second {
+
+        @Test
+        public void slow() throws Exception {
+            pause();
+        }
+
+        @Test
+        public void fails() {
+            throw new IllegalStateException("second");
+        }
+
+        @Test
+        public void assumes() {
+            Assume.assumeTrue(false);
+        }
+    }
+}
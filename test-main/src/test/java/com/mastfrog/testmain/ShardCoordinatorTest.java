@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import static com.mastfrog.testmain.ShardCoordinator.DONE;
+import static com.mastfrog.testmain.ShardCoordinator.FAILURE;
+import static com.mastfrog.testmain.ShardCoordinator.FINISHED;
+import static com.mastfrog.testmain.ShardCoordinator.IGNORED;
+import static com.mastfrog.testmain.ShardCoordinator.NEXT;
+import static com.mastfrog.testmain.ShardCoordinator.RUN;
+import static com.mastfrog.testmain.ShardCoordinator.STARTED;
+import com.mastfrog.testmain.ShardCoordinator.RemoteFailure;
+import static com.mastfrog.testmain.ShardCoordinator.childArgs;
+import static com.mastfrog.testmain.ShardCoordinator.escape;
+import static com.mastfrog.testmain.ShardCoordinator.unescape;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ShardCoordinatorTest {
+
+    private static final String SAMPLE = Sample.class.getName();
+
+    @Test
+    public void testEscapeRoundTrips() {
+        String[] values = {"", "plain", "tab\there", "lines\nand\r\nreturns", "back\\slash",
+            "literal \\t and \\n", "trailing\\", "\\\\\t\\"};
+        for (String value : values) {
+            String escaped = escape(value);
+            assertFalse(escaped, escaped.contains("\t"));
+            assertFalse(escaped, escaped.contains("\n"));
+            assertFalse(escaped, escaped.contains("\r"));
+            assertEquals(value, unescape(escaped));
+        }
+        assertEquals("a\\t\\n\\\\b", escape("a\t\n\\b"));
+        // Not something escape() produces, but should not be lost
+        assertEquals("end\\", unescape("end\\"));
+    }
+
+    @Test
+    public void testParseFailure() {
+        RemoteFailure assertion = RemoteFailure.parse(failure("m", "java.lang.AssertionError: boom\tnow",
+                "java.lang.AssertionError", true, "boom\tnow", "java.lang.AssertionError: boom\n\tat Foo.m(Foo.java:3)\n"));
+        assertEquals("java.lang.AssertionError: boom\tnow", assertion.toString());
+        assertEquals("boom\tnow", assertion.getMessage());
+        assertTrue(RemoteFailure.isAssertion(assertion));
+        assertEquals("java.lang.AssertionError", RemoteFailure.typeName(assertion));
+        StringWriter trace = new StringWriter();
+        assertion.printStackTrace(new PrintWriter(trace, true));
+        assertEquals("java.lang.AssertionError: boom\n\tat Foo.m(Foo.java:3)\n", trace.toString());
+
+        RemoteFailure error = RemoteFailure.parse(failure("m", "java.lang.IllegalStateException",
+                "java.lang.IllegalStateException", false, "", "trace"));
+        assertNull(error.getMessage());
+        assertFalse(RemoteFailure.isAssertion(error));
+        assertEquals("java.lang.IllegalStateException", RemoteFailure.typeName(error));
+
+        // What a shard sends for a failure with no exception
+        RemoteFailure bare = RemoteFailure.parse(new String[]{FAILURE, SAMPLE, "m", "null"});
+        assertEquals("null", bare.toString());
+        assertEquals("null", bare.getMessage());
+        assertFalse(RemoteFailure.isAssertion(bare));
+        assertEquals(RemoteFailure.class.getName(), RemoteFailure.typeName(bare));
+
+        assertTrue(RemoteFailure.isAssertion(new AssertionError()));
+        assertFalse(RemoteFailure.isAssertion(new IOException()));
+        assertEquals(IOException.class.getName(), RemoteFailure.typeName(new IOException()));
+    }
+
+    @Test
+    public void testChildArgs() {
+        assertEquals(Arrays.asList("--workers", "2"), childArgs("--shards", "3", "--workers", "2"));
+        assertEquals(Arrays.asList("--workers", "2"), childArgs("--workers", "2", "--shards", "3"));
+        assertEquals(Arrays.asList("--foo", "--bar"), childArgs("--foo", "--shards", "--bar"));
+        assertEquals(Collections.emptyList(), childArgs("--shards"));
+        assertEquals(Arrays.asList("--workers", "2"), childArgs("--workers", "2"));
+    }
+
+    @Test
+    public void testCrashedClassIsNotCountedTwice() throws Exception {
+        Result result = new Result();
+        Recorder events = new Recorder();
+        ShardCoordinator coordinator = new ShardCoordinator(1, new String[0], result.createListener(), events);
+        coordinator.enqueue(Sample.class);
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            // Passes a, fails b, and dies in the middle of both b and c
+            shard(coordinator, server, false,
+                    message(STARTED, "a"), message(FINISHED, "a"),
+                    message(STARTED, "b"), String.join("\t", failure("b", "boom", "java.lang.AssertionError", true, "boom", "trace")),
+                    message(STARTED, "c"));
+            assertEquals(Arrays.asList("started a", "finished a", "started b", "failure b boom",
+                    "started c", "finished b", "failure c Shard JVM died running it", "finished c"), events.events);
+            assertEquals(3, result.getRunCount());
+            assertEquals(2, result.getFailureCount());
+
+            events.events.clear();
+            // The requeued class runs again from the start
+            shard(coordinator, server, true,
+                    message(STARTED, "a"), message(FINISHED, "a"),
+                    message(STARTED, "b"), String.join("\t", failure("b", "boom", "java.lang.AssertionError", true, "boom", "trace")),
+                    message(FINISHED, "b"),
+                    message(STARTED, "c"), message(FINISHED, "c"),
+                    message(STARTED, "d"), message(FINISHED, "d"),
+                    message(IGNORED, "e"));
+            assertEquals(Arrays.asList("started d", "finished d", "ignored e", "suite finished"), events.events);
+            assertEquals(4, result.getRunCount());
+            assertEquals(2, result.getFailureCount());
+            assertEquals(1, result.getIgnoreCount());
+        }
+    }
+
+    @Test
+    public void testGivesUpAfterSecondCrash() throws Exception {
+        Result result = new Result();
+        Recorder events = new Recorder();
+        ShardCoordinator coordinator = new ShardCoordinator(1, new String[0], result.createListener(), events);
+        coordinator.enqueue(Sample.class);
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            shard(coordinator, server, false, message(STARTED, "a"));
+            shard(coordinator, server, false, message(STARTED, "a"));
+        }
+        assertEquals(Arrays.asList("started a", "failure a Shard JVM died running it", "finished a",
+                "failure " + SAMPLE + " Shard JVM died running it 2 times"), events.events);
+        assertEquals(1, result.getRunCount());
+        assertEquals(2, result.getFailureCount());
+    }
+
+    private static void shard(final ShardCoordinator coordinator, ServerSocket server, boolean done,
+            String... messages) throws Exception {
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            final Socket accepted = server.accept();
+            Thread serving = new Thread("serve") {
+                @Override
+                public void run() {
+                    coordinator.serve(accepted);
+                }
+            };
+            serving.start();
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            out.write(NEXT + "\n");
+            out.flush();
+            assertEquals(RUN + "\t" + SAMPLE, in.readLine());
+            for (String message : messages) {
+                out.write(message + "\n");
+            }
+            if (done) {
+                out.write(DONE + "\t" + SAMPLE + "\n");
+            }
+            out.flush();
+            // Closing without DONE is what a dead shard looks like
+            client.shutdownOutput();
+            serving.join(10000);
+            assertFalse(serving.isAlive());
+        }
+    }
+
+    private static String message(String what, String method) {
+        return what + "\t" + escape(SAMPLE) + "\t" + escape(method);
+    }
+
+    private static String[] failure(String method, String string, String type, boolean assertion,
+            String message, String trace) {
+        return new String[]{FAILURE, escape(SAMPLE), escape(method), escape(string), escape(type),
+            assertion ? "assertion" : "error", escape(message), escape(trace)};
+    }
+
+    static final class Recorder extends RunListener {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void testStarted(Description description) {
+            events.add("started " + description.getMethodName());
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            events.add("finished " + description.getMethodName());
+        }
+
+        @Override
+        public void testFailure(Failure failure) {
+            Description d = failure.getDescription();
+            events.add("failure " + (d.getMethodName() == null ? d.getClassName() : d.getMethodName())
+                    + " " + failure.getMessage());
+        }
+
+        @Override
+        public void testIgnored(Description description) {
+            events.add("ignored " + description.getMethodName());
+        }
+
+        @Override
+        public void testSuiteFinished(Description description) {
+            events.add("suite finished");
+        }
+    }
+
+    static final class Sample {
+    }
+}
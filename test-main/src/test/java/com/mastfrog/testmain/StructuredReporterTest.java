@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class StructuredReporterTest {
+
+    static final String MESSAGE = "bad <thing> & \"stuff\" \\ 'here'\r\nline2\ttab\u0001end";
+    private static final String SCREENSHOTS = "shots/a&b<c>.png,shots/\"quoted\".png";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testJsonEscaping() throws IOException {
+        File json = run().json;
+        List<String> lines = Files.readAllLines(json.toPath(), StandardCharsets.UTF_8);
+        String fails = null;
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("{\"event\":\"") && line.endsWith("}"));
+            for (char c : line.toCharArray()) {
+                assertTrue("Unescaped control character in " + line, c >= 0x20);
+            }
+            if (line.contains("\"event\":\"testFinished\"") && line.contains("\"method\":\"fails\"")) {
+                fails = line;
+            }
+        }
+        assertNotNull(fails);
+        assertTrue(fails, fails.contains("\"class\":\"" + Sample.class.getName() + "\""));
+        assertTrue(fails, fails.contains("\"status\":\"error\""));
+        assertTrue(fails, fails.contains("\"type\":\"java.lang.IllegalStateException\""));
+        assertTrue(fails, fails.contains("\"message\":\"bad <thing> & \\\"stuff\\\" \\\\ 'here'\\r\\nline2\\ttab\\u0001end\""));
+        assertTrue(lines.get(lines.size() - 1), lines.get(lines.size() - 1).startsWith("{\"event\":\"runFinished\""));
+    }
+
+    @Test
+    public void testJsonArtifacts() throws IOException {
+        File json = run().json;
+        String passes = null;
+        for (String line : Files.readAllLines(json.toPath(), StandardCharsets.UTF_8)) {
+            if (line.contains("\"event\":\"testFinished\"") && line.contains("\"method\":\"passes\"")) {
+                passes = line;
+            }
+        }
+        assertNotNull(passes);
+        assertTrue(passes, passes.contains("\"status\":\"passed\""));
+        assertTrue(passes, passes.contains("\"screenshots\":[\"shots/a&b<c>.png\",\"shots/\\\"quoted\\\".png\"]"));
+    }
+
+    @Test
+    public void testXmlEscaping() throws Exception {
+        File xml = new File(run().xmlDir, "TEST-" + Sample.class.getName() + ".xml");
+        assertTrue(xml + " not written", xml.exists());
+        Document doc = parse(xml);
+        Element suite = doc.getDocumentElement();
+        assertEquals("testsuite", suite.getTagName());
+        assertEquals(Sample.class.getName(), suite.getAttribute("name"));
+        assertEquals("3", suite.getAttribute("tests"));
+        assertEquals("1", suite.getAttribute("failures"));
+        assertEquals("1", suite.getAttribute("errors"));
+
+        Element error = (Element) testCase(doc, "fails").getElementsByTagName("error").item(0);
+        assertNotNull(error);
+        assertEquals("java.lang.IllegalStateException", error.getAttribute("type"));
+        // The control character cannot be represented; the rest, including
+        // line breaks and tabs in an attribute, must survive
+        assertEquals(MESSAGE.replace("\u0001", ""), error.getAttribute("message"));
+        assertTrue(error.getTextContent(), error.getTextContent()
+                .contains("bad <thing> & \"stuff\" \\ 'here'"));
+
+        Element failure = (Element) testCase(doc, "asserts").getElementsByTagName("failure").item(0);
+        assertNotNull(failure);
+        assertEquals("java.lang.AssertionError", failure.getAttribute("type"));
+        assertEquals("expected <1> & got \"2\"", failure.getAttribute("message"));
+
+        Element passes = testCase(doc, "passes");
+        assertEquals(0, passes.getElementsByTagName("error").getLength());
+        assertEquals(0, passes.getElementsByTagName("failure").getLength());
+        String out = passes.getElementsByTagName("system-out").item(0).getTextContent();
+        assertEquals("[[ATTACHMENT|shots/a&b<c>.png]]\n[[ATTACHMENT|shots/\"quoted\".png]]\n", out);
+    }
+
+    private Outputs run() throws IOException {
+        Outputs result = new Outputs(new File(tmp.getRoot(), "results.ndjson"), new File(tmp.getRoot(), "xml"));
+        StructuredReporter reporter = new StructuredReporter(result.json, result.xmlDir);
+        String key = StructuredReporter.SCREENSHOTS_PROPERTY_PREFIX + Sample.class.getName() + "#passes";
+        System.setProperty(key, SCREENSHOTS);
+        try {
+            JUnitCore junit = new JUnitCore();
+            junit.addListener(reporter);
+            Result run = junit.run(Sample.class);
+            assertEquals(3, run.getRunCount());
+            assertEquals(2, run.getFailureCount());
+            reporter.close(run);
+        } finally {
+            System.clearProperty(key);
+        }
+        return result;
+    }
+
+    private static Document parse(File file) throws ParserConfigurationException, SAXException, IOException {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    }
+
+    private static Element testCase(Document doc, String method) {
+        NodeList cases = doc.getElementsByTagName("testcase");
+        for (int i = 0; i < cases.getLength(); i++) {
+            Element el = (Element) cases.item(i);
+            if (method.equals(el.getAttribute("name"))) {
+                assertEquals(Sample.class.getName(), el.getAttribute("classname"));
+                return el;
+            }
+        }
+        fail("No testcase " + method);
+        return null;
+    }
+
+    private static final class Outputs {
+
+        final File json;
+        final File xmlDir;
+
+        Outputs(File json, File xmlDir) {
+            this.json = json;
+            this.xmlDir = xmlDir;
+        }
+    }
+
+    public static class Sample {
+
+        @Test
+        public void passes() {
+        }
+
+        @Test
+        public void fails() {
+            throw new IllegalStateException(MESSAGE);
+        }
+
+        @Test
+        public void asserts() {
+            throw new AssertionError("expected <1> & got \"2\"");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class TestTimingsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testFailedFirstThenLongest() throws IOException {
+        TestTimings timings = new TestTimings(timings(
+                "class:" + A.class.getName(), "100",
+                "class:" + B.class.getName(), "500",
+                "class:" + C.class.getName(), "300,failed",
+                "class:" + E.class.getName(), "50,failed"));
+        Class<?>[] tests = {A.class, B.class, C.class, D.class, E.class};
+        // D was never timed, so counts as the average, 237ms
+        assertArrayEquals(new Class<?>[]{C.class, E.class, B.class, D.class, A.class},
+                timings.schedule(tests, true));
+        assertArrayEquals(new Class<?>[]{A.class, B.class, C.class, D.class, E.class}, tests);
+    }
+
+    @Test
+    public void testFailedFirstOtherwiseUnchanged() throws IOException {
+        TestTimings timings = new TestTimings(timings(
+                "class:" + A.class.getName(), "100",
+                "class:" + B.class.getName(), "500",
+                "class:" + C.class.getName(), "300,failed",
+                "class:" + E.class.getName(), "50,failed"));
+        assertArrayEquals(new Class<?>[]{C.class, E.class, A.class, B.class, D.class},
+                timings.schedule(new Class<?>[]{A.class, B.class, C.class, D.class, E.class}, false));
+    }
+
+    @Test
+    public void testEqualDurationsKeepTheirOrder() throws IOException {
+        TestTimings timings = new TestTimings(timings(
+                "class:" + A.class.getName(), "200",
+                "class:" + B.class.getName(), "200",
+                "class:" + C.class.getName(), "200"));
+        assertArrayEquals(new Class<?>[]{C.class, A.class, D.class, B.class},
+                timings.schedule(new Class<?>[]{C.class, A.class, D.class, B.class}, true));
+    }
+
+    @Test
+    public void testNoTimings() {
+        TestTimings timings = new TestTimings(new File(tmp.getRoot(), "nonexistent"));
+        Class<?>[] tests = {E.class, A.class, C.class};
+        assertArrayEquals(tests, timings.schedule(tests, true));
+        assertArrayEquals(tests, new TestTimings(null).schedule(tests, true));
+    }
+
+    @Test
+    public void testRecordedTimingsOrderTheNextRun() throws IOException {
+        File file = new File(tmp.getRoot(), "test-timings");
+        TestTimings timings = new TestTimings(file);
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(timings.recorder());
+        Result result = junit.run(Quick.class, Slow.class, Failing.class);
+        assertEquals(5, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+        timings.save();
+        assertTrue(file.exists());
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        assertTrue(props.getProperty("class:" + Failing.class.getName()).endsWith(",failed"));
+        assertTrue(props.getProperty("method:" + Failing.class.getName() + "#fails").endsWith(",failed"));
+        assertFalse(props.getProperty("method:" + Failing.class.getName() + "#passes").endsWith(",failed"));
+        assertTrue(Long.parseLong(props.getProperty("class:" + Slow.class.getName())) >= 100);
+
+        TestTimings reloaded = new TestTimings(file);
+        assertArrayEquals(new Class<?>[]{Failing.class, Slow.class, Quick.class},
+                reloaded.schedule(new Class<?>[]{Quick.class, Slow.class, Failing.class}, true));
+        assertArrayEquals(new Class<?>[]{Failing.class, Quick.class, Slow.class},
+                reloaded.schedule(new Class<?>[]{Quick.class, Slow.class, Failing.class}, false));
+    }
+
+    private File timings(String... keysAndValues) throws IOException {
+        Properties props = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            props.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        File result = tmp.newFile();
+        try (OutputStream out = new FileOutputStream(result)) {
+            props.store(out, null);
+        }
+        return result;
+    }
+
+    static class A {
+    }
+
+    static class B {
+    }
+
+    static class C {
+    }
+
+    static class D {
+    }
+
+    static class E {
+    }
+
+    public static class Quick {
+
+        @Test
+        public void test() {
+        }
+    }
+
+    public static class Slow {
+
+        @Test
+        public void one() throws InterruptedException {
+            Thread.sleep(60);
+        }
+
+        @Test
+        public void two() throws InterruptedException {
+            Thread.sleep(60);
+        }
+    }
+
+    public static class Failing {
+
+        @Test
+        public void passes() {
+        }
+
+        @Test
+        public void fails() {
+            throw new IllegalStateException("Expected failure");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.testmain.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class TestIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testIndexesRunnableTestClasses() throws IOException {
+        List<String> index = compile(
+                source("p.PlainTest",
+                        "package p;",
+                        "public class PlainTest {",
+                        "  @org.junit.Test public void test() {}",
+                        "}"),
+                source("p.Helper",
+                        "package p;",
+                        "public class Helper {",
+                        "  @org.junit.Test public void test() {}",
+                        "}"),
+                source("p.AbstractBaseTest",
+                        "package p;",
+                        "public abstract class AbstractBaseTest {",
+                        "  @org.junit.Test public void test() {}",
+                        "}"),
+                source("p.InheritsTest",
+                        "package p;",
+                        "public class InheritsTest extends AbstractBaseTest {",
+                        "}"),
+                source("p.IgnoredTest",
+                        "package p;",
+                        "@com.mastfrog.testmain.Ignore",
+                        "public class IgnoredTest {",
+                        "  @org.junit.Test public void test() {}",
+                        "}"),
+                source("p.HiddenTest",
+                        "package p;",
+                        "class HiddenTest {",
+                        "  @org.junit.Test public void test() {}",
+                        "}"),
+                source("p.Outer",
+                        "package p;",
+                        "public class Outer {",
+                        "  public static class NestedTest {",
+                        "    @org.junit.Test public void test() {}",
+                        "  }",
+                        "  public class InnerTest {",
+                        "    @org.junit.Test public void test() {}",
+                        "  }",
+                        "  void local() {",
+                        "    class LocalTest {",
+                        "      @org.junit.Test public void test() {}",
+                        "    }",
+                        "  }",
+                        "}"),
+                source("p.NoTestsTest",
+                        "package p;",
+                        "public class NoTestsTest {",
+                        "  public void test() {}",
+                        "}"));
+        assertEquals(Arrays.asList("p.InheritsTest", "p.Outer$NestedTest", "p.PlainTest"), index);
+    }
+
+    private List<String> compile(JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("No compiler - not running on a JDK?", compiler);
+        File out = tmp.newFolder("classes");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-d", out.getPath(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", TestIndexProcessor.class.getName(),
+                "-source", "8", "-target", "8", "-Xlint:-options");
+        boolean ok = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(sources)).call();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            assertTrue(d.toString(), d.getKind() != Diagnostic.Kind.ERROR);
+        }
+        assertTrue(ok);
+        File index = new File(out, TestIndex.TEST_INDEX_FILE);
+        assertTrue(index + " not written", index.exists());
+        List<String> result = new ArrayList<>();
+        for (String line : Files.readAllLines(index.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                result.add(line);
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    private static JavaFileObject source(String name, String... lines) {
+        final String text = String.join("\n", lines) + "\n";
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return text;
+            }
+        };
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import static com.mastfrog.video.VideoModule.log;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Supervises an ffmpeg process. Its output is drained continuously by a
+ * pump thread, so a long recording can never stall on a full pipe; ffmpeg is
+ * run with <code>-progress pipe:1</code>, and a watchdog thread restarts it,
+ * recording to a new part file, if it exits unexpectedly or stops reporting
+ * progress. Stopping asks ffmpeg to finish by writing <code>q</code> to its
+ * stdin, so the file is finalized properly, and only kills it if it does not
+ * exit in time.
+ *
+ * @author Tim Boudreau
+ */
+final class FfmpegProcess {
+
+    private static final boolean JFR = jfrAvailable();
+    private static final int KEEP_LINES = 20;
+    private final List<String> command;
+    private final File output;
+    private final int maxRestarts;
+    private final long stallNanos;
+    private final long stopMillis;
+    private final Deque<String> lastLines = new ArrayDeque<>();
+    private Process process;
+    private File currentOutput;
+    private Object event;
+    private int restarts;
+    private volatile long lastProgress;
+    // ffmpeg's last reported position in microseconds, and the nanoTime
+    // when it was reported
+    private volatile long[] clock;
+    private volatile boolean stopping;
+    private Thread watchdog;
+
+    /**
+     * Create a supervisor.
+     *
+     * @param command The ffmpeg command line, less the output file
+     * @param output The output file; restarts write to siblings of it named
+     * with -part2, -part3 and so on
+     * @param maxRestarts The number of times to restart ffmpeg if it dies
+     * @param stallSeconds How long ffmpeg may go without reporting progress
+     * before it is considered hung and restarted
+     * @param stopSeconds How long to wait for ffmpeg to finish the file on
+     * stop before killing it
+     */
+    FfmpegProcess(List<String> command, File output, int maxRestarts, int stallSeconds, int stopSeconds) {
+        this.command = new ArrayList<>(command);
+        this.output = output;
+        this.maxRestarts = maxRestarts;
+        this.stallNanos = TimeUnit.SECONDS.toNanos(stallSeconds);
+        this.stopMillis = TimeUnit.SECONDS.toMillis(stopSeconds);
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static String commandLine(List<String> command) {
+        StringBuilder sb = new StringBuilder();
+        for (String arg : command) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(arg);
+        }
+        return sb.toString();
+    }
+
+    synchronized void start() throws IOException {
+        if (process != null) {
+            return;
+        }
+        stopping = false;
+        restarts = 0;
+        launch(output);
+        watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "ffmpeg-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    synchronized boolean isRunning() {
+        return process != null && process.isAlive();
+    }
+
+    private void launch(File file) throws IOException {
+        List<String> cmd = new ArrayList<>(command);
+        cmd.add(file.getPath());
+        String cmdline = commandLine(cmd);
+        log("Will run ffmpeg with command-line: '" + cmdline + "'");
+        ProcessBuilder pb = new ProcessBuilder(cmd).redirectErrorStream(true);
+        final Process proc = pb.start();
+        process = proc;
+        currentOutput = file;
+        lastProgress = System.nanoTime();
+        clock = null;
+        event = JFR ? FfmpegProcessEvent.started(file.getPath(), cmdline) : null;
+        Thread pump = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pump(proc);
+            }
+        }, "ffmpeg-output");
+        pump.setDaemon(true);
+        pump.start();
+        log("Started ffmpeg recording to " + file);
+    }
+
+    private void pump(Process proc) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith("progress=")) {
+                    lastProgress = System.nanoTime();
+                } else if (line.startsWith("out_time_us=") || line.startsWith("out_time_ms=")) {
+                    // out_time_ms is in microseconds too, in older ffmpegs
+                    try {
+                        clock = new long[]{Long.parseLong(line.substring(12).trim()), System.nanoTime()};
+                    } catch (NumberFormatException ex) {
+                        // N/A before the first frame
+                    }
+                } else if (line.indexOf('=') < 0 || line.indexOf(' ') >= 0) {
+                    // Not one of -progress's key=value lines
+                    log("ffmpeg: " + line);
+                    synchronized (lastLines) {
+                        if (lastLines.size() == KEEP_LINES) {
+                            lastLines.removeFirst();
+                        }
+                        lastLines.addLast(line);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // Stream closed when the process was killed
+        }
+    }
+
+    private void watch() {
+        while (!stopping) {
+            Process proc;
+            synchronized (this) {
+                proc = process;
+            }
+            if (proc == null) {
+                return;
+            }
+            try {
+                if (proc.waitFor(1, TimeUnit.SECONDS)) {
+                    if (!stopping) {
+                        restart("ffmpeg exited unexpectedly with " + proc.exitValue());
+                    }
+                } else if (System.nanoTime() - lastProgress > stallNanos && !stopping) {
+                    proc.destroyForcibly();
+                    proc.waitFor(5, TimeUnit.SECONDS);
+                    if (!stopping) {
+                        restart("ffmpeg made no progress for "
+                                + TimeUnit.NANOSECONDS.toSeconds(stallNanos) + " seconds");
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // stop() wakes us up
+            }
+        }
+    }
+
+    private synchronized void restart(String why) {
+        if (stopping || process == null) {
+            return;
+        }
+        finished(process.isAlive() ? -1 : process.exitValue());
+        StringBuilder msg = new StringBuilder(why);
+        synchronized (lastLines) {
+            for (String line : lastLines) {
+                msg.append("\n  ").append(line);
+            }
+            lastLines.clear();
+        }
+        if (restarts >= maxRestarts) {
+            Logger.getLogger(FfmpegProcess.class.getName()).log(Level.SEVERE,
+                    "{0} - giving up after {1} restarts", new Object[]{msg, restarts});
+            stopping = true;
+            return;
+        }
+        restarts++;
+        File part = partFile(restarts + 1);
+        Logger.getLogger(FfmpegProcess.class.getName()).log(Level.WARNING,
+                "{0} - restarting, recording to {1}", new Object[]{msg, part});
+        try {
+            launch(part);
+        } catch (IOException ex) {
+            Logger.getLogger(FfmpegProcess.class.getName()).log(Level.SEVERE, "Could not restart ffmpeg", ex);
+            stopping = true;
+        }
+    }
+
+    File partFile(int part) {
+        String name = output.getName();
+        int dot = name.lastIndexOf('.');
+        name = dot > 0 ? name.substring(0, dot) + "-part" + part + name.substring(dot)
+                : name + "-part" + part;
+        return new File(output.getParentFile(), name);
+    }
+
+    /**
+     * Get the position in the current output file which corresponds to a
+     * System.nanoTime() value, extrapolated from ffmpeg's last progress
+     * report.
+     *
+     * @param nanoTime A nanoTime
+     * @return A position in microseconds, or -1 if ffmpeg has not reported
+     * one yet
+     */
+    long positionMicros(long nanoTime) {
+        long[] c = clock;
+        if (c == null) {
+            return -1;
+        }
+        return Math.max(0, c[0] + (nanoTime - c[1]) / 1000);
+    }
+
+    synchronized File currentOutput() {
+        return currentOutput;
+    }
+
+    private void finished(int exitCode) {
+        if (event != null) {
+            FfmpegProcessEvent.finished(event, exitCode);
+            event = null;
+        }
+    }
+
+    /**
+     * Ask ffmpeg to finish the file and exit, waiting a bounded time for it
+     * to do so before killing it.
+     *
+     * @return The exit code, or -1 if it had to be killed
+     */
+    int stop() {
+        Process proc;
+        Thread watcher;
+        synchronized (this) {
+            stopping = true;
+            proc = process;
+            watcher = watchdog;
+            process = null;
+            watchdog = null;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        if (proc == null) {
+            return -1;
+        }
+        int result = -1;
+        try {
+            if (proc.isAlive()) {
+                try {
+                    OutputStream stdin = proc.getOutputStream();
+                    stdin.write('q');
+                    stdin.write('\n');
+                    stdin.flush();
+                } catch (IOException ex) {
+                    // Already exiting
+                }
+            }
+            if (proc.waitFor(stopMillis, TimeUnit.MILLISECONDS)) {
+                result = proc.exitValue();
+            } else {
+                log("ffmpeg did not exit within " + stopMillis + "ms of being asked to - killing it");
+                proc.destroy();
+                if (!proc.waitFor(2, TimeUnit.SECONDS)) {
+                    proc.destroyForcibly();
+                }
+            }
+        } catch (InterruptedException ex) {
+            proc.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            finished(result);
+        }
+        log("Stopped ffmpeg with exit code " + result);
+        return result;
+    }
+}
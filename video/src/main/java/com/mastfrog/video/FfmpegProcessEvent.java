@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the life of an ffmpeg process. Only loaded
+ * by FfmpegVideoRecorder when the JVM has Flight Recorder.
+ *
+ * @author Tim Boudreau
+ */
+@Name("com.mastfrog.video.FfmpegProcess")
+@Label("Ffmpeg Process")
+@Description("An ffmpeg process recording the display")
+@Category({"Selenium", "Video"})
+final class FfmpegProcessEvent extends Event {
+
+    @Label("File")
+    String file;
+    @Label("Command")
+    String command;
+    @Label("Exit Code")
+    int exitCode;
+
+    static Object started(String file, String command) {
+        FfmpegProcessEvent result = new FfmpegProcessEvent();
+        if (!result.isEnabled()) {
+            return null;
+        }
+        result.file = file;
+        result.command = command;
+        result.begin();
+        return result;
+    }
+
+    static void finished(Object event, int exitCode) {
+        FfmpegProcessEvent e = (FfmpegProcessEvent) event;
+        e.exitCode = exitCode;
+        e.commit();
+    }
+}
@@ -28,27 +28,65 @@ import com.mastfrog.settings.Settings;
 import com.mastfrog.shutdown.hooks.ShutdownHookRegistry;
 import com.mastfrog.util.time.TimeUtil;
 import static com.mastfrog.video.VideoModule.log;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.lang.ProcessBuilder.Redirect;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Records the X display with ffmpeg, under an FfmpegProcess which keeps its
+ * output drained, restarts it if it dies or hangs, and asks it to finish the
+ * file cleanly on stop. What is recorded, and how it is encoded, is up to the
+ * RecordingProfile. Other relevant settings:
+ * <ul>
+ * <li><code>video</code> - the output file</li>
+ * <li><code>video.ffmpeg</code> - the ffmpeg executable (default ffmpeg)</li>
+ * <li><code>video.restarts</code> - how many times to restart ffmpeg
+ * (default 3)</li>
+ * <li><code>video.stall.seconds</code> - how long ffmpeg may go without
+ * reporting progress before it is restarted (default 15)</li>
+ * <li><code>video.stop.seconds</code> - how long to wait for ffmpeg to finish
+ * the file on stop before killing it (default 10)</li>
+ * <li><code>video.segment.seconds</code> - if set, record the whole JVM's
+ * tests with one ffmpeg in segments of this length, and write a clip per
+ * test (see SegmentedRecording and VideoClips)</li>
+ * <li><code>video.segment.dir</code> - where segments and clips go (default
+ * target/video_[date] if there is a target directory)</li>
+ * <li><code>video.keep</code> - <code>all</code> (the default) or
+ * <code>failures</code>, to record segments (2 seconds long unless
+ * <code>video.segment.seconds</code> says otherwise) into a ring and keep
+ * clips only of tests which fail</li>
+ * <li><code>video.window.seconds</code> - how much video the ring holds
+ * (default 120); a failing test longer than this loses its beginning</li>
+ * <li><code>video.ring.dir</code> - where the ring is kept (default
+ * /dev/shm if writable, else the temp dir)</li>
+ * </ul>
  *
  * @author Tim Boudreau
  */
 final class FfmpegVideoRecorder implements VideoRecorder, Runnable {
 
-    private Process process;
+    private static final Pattern DIMENSIONS = Pattern.compile("dimensions:\\s+(\\d+)x(\\d+)");
+    private FfmpegProcess process;
     private final Settings settings;
+    private final RecordingProfile profile;
 
     @Inject
     @SuppressWarnings("LeakingThisInConstructor")
-    FfmpegVideoRecorder(Settings settings, ShutdownHookRegistry reg) {
+    FfmpegVideoRecorder(Settings settings, RecordingProfile profile, ShutdownHookRegistry reg) {
         reg.add(this);
         this.settings = settings;
+        this.profile = profile;
         if (settings.getBoolean("record.video", false)) {
             start();
         } else {
@@ -63,33 +101,39 @@ final class FfmpegVideoRecorder implements VideoRecorder, Runnable {
 
     @Override
     public void start() {
+        synchronized (this) {
+            if (process != null) {
+                return;
+            }
+        }
         String display = settings.getString("DISPLAY");
         if (display == null) {
             Logger.getLogger(FfmpegVideoRecorder.class.getName()).log(Level.SEVERE, null, new Error("ENV DISPLAY VARIABLE NOT SET"));
             return;
         }
+        boolean failuresOnly = "failures".equals(settings.getString("video.keep", "all"));
+        double segmentSeconds = settings.getDouble("video.segment.seconds", failuresOnly ? 2 : 0);
+        if (segmentSeconds > 0) {
+            startSegmented(display, segmentSeconds, failuresOnly);
+            return;
+        }
         log("Starting ffmpeg");
 
         String filename = settings.getString("video");
         if (filename == null) {
             filename = settings.getString("testMethodQname", "screencast");
-            String base = filename;
             if (!"screencast".equals(filename)) {
                 filename = filename.replace('.', '-');
             }
-            File f = new File("target");
-            if (f.exists() && f.isDirectory()) {
+            if (targetDir() != null) {
                 filename = "target" + File.separator + filename;
             }
             filename += '_' + dateString() + ".mp4";
         }
-        int threads = settings.getInt("video.threads", 2);
 
         System.setProperty("video.file", filename);
 
-        String cmdline = "ffmpeg -y -v 1 -r 15 -f x11grab -s 1280x1024 -i "
-                + display + " -vcodec libx264 -threads " + threads + " -q:v 2 -r 30 " + filename;
-        log("Will run ffmpeg with command-line: '" + cmdline + "'");
+        List<String> command = captureCommand(display);
         log("Recording video to " + filename);
         String urlBase = settings.getString("base.video.url");
         if (urlBase != null) {
@@ -103,32 +147,167 @@ final class FfmpegVideoRecorder implements VideoRecorder, Runnable {
             log("Video available from " + urlBase);
         }
 
-        ProcessBuilder pb = new ProcessBuilder().inheritIO().command(cmdline.split("\\s"));
-        pb.redirectOutput(Redirect.PIPE);
-        pb.redirectError(Redirect.PIPE);
+        FfmpegProcess proc = supervise(command, new File(filename));
         try {
+            proc.start();
             synchronized (this) {
-                process = pb.start();
+                process = proc;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(FfmpegVideoRecorder.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void startSegmented(String display, double segmentSeconds, boolean failuresOnly) {
+        if (SegmentedRecording.current() != null) {
+            // Already recording for an earlier test
+            return;
+        }
+        String dirName = settings.getString("video.segment.dir");
+        File dir = dirName != null ? new File(dirName)
+                : new File(targetDir() != null ? targetDir() : new File(System.getProperty("java.io.tmpdir")),
+                        "video_" + dateString());
+        File segmentDir = dir;
+        int wrap = 0;
+        if (failuresOnly) {
+            // Keep a rolling window of segments somewhere cheap to write,
+            // and only copy out the ones failed tests ran in
+            wrap = Math.max(2, (int) Math.ceil(settings.getDouble("video.window.seconds", 120) / segmentSeconds));
+            segmentDir = new File(ringDir(), "selenium-video-" + dateString());
+        }
+        for (File f : new File[]{dir, segmentDir}) {
+            if (!f.exists() && !f.mkdirs()) {
+                Logger.getLogger(FfmpegVideoRecorder.class.getName()).log(Level.SEVERE,
+                        "Could not create {0}", f);
+                return;
             }
-            log("Started ffmpeg");
+        }
+        List<String> command = captureCommand(display);
+        command.addAll(SegmentedRecording.segmentOptions(segmentSeconds, wrap));
+        try {
+            // Shared by every test in the JVM, and stopped on exit
+            SegmentedRecording.start(supervise(command, new File(segmentDir, "seg-%05d.mp4")),
+                    segmentDir, dir, segmentSeconds, wrap);
         } catch (IOException ex) {
             Logger.getLogger(FfmpegVideoRecorder.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    private File ringDir() {
+        String ringDir = settings.getString("video.ring.dir");
+        if (ringDir != null) {
+            return new File(ringDir);
+        }
+        // tmpfs, where there is one, so the constant rewriting of segments
+        // costs no disk I/O
+        File shm = new File("/dev/shm");
+        return shm.isDirectory() && shm.canWrite() ? shm : new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    private static File targetDir() {
+        File f = new File("target");
+        return f.exists() && f.isDirectory() ? f : null;
+    }
+
+    private List<String> captureCommand(String display) {
+        int[] size = displaySize(display);
+        // x11grab fails if the region runs off the display, and libx264
+        // needs even dimensions
+        int width = size[0] - profile.x();
+        int height = size[1] - profile.y();
+        if (profile.width() > 0) {
+            width = Math.min(width, profile.width());
+        }
+        if (profile.height() > 0) {
+            height = Math.min(height, profile.height());
+        }
+        width &= ~1;
+        height &= ~1;
+        String input = profile.x() == 0 && profile.y() == 0 ? display
+                : display + "+" + profile.x() + "," + profile.y();
+        List<String> result = new ArrayList<>(Arrays.asList(settings.getString("video.ffmpeg", "ffmpeg"),
+                "-y", "-v", "1", "-nostats", "-progress", "pipe:1",
+                // A deeper input queue rides out moments when the encoder
+                // is starved of CPU, instead of dropping frames
+                "-framerate", Integer.toString(profile.inputFps()), "-f", "x11grab", "-thread_queue_size", "512",
+                "-video_size", width + "x" + height, "-i", input,
+                "-c:v", profile.codec(), "-threads", Integer.toString(profile.threads())));
+        if (profile.preset() != null) {
+            result.add("-preset");
+            result.add(profile.preset());
+        }
+        if (profile.crf() >= 0) {
+            result.add("-crf");
+            result.add(Integer.toString(profile.crf()));
+        }
+        // x11grab's bgr0 would otherwise be encoded as 4:4:4, which costs
+        // more and most players cannot show
+        result.addAll(Arrays.asList("-pix_fmt", "yuv420p"));
+        if (profile.outputFps() != profile.inputFps()) {
+            result.add("-r");
+            result.add(Integer.toString(profile.outputFps()));
+        }
+        log("Recording " + width + "x" + height + " of " + display + " with " + profile);
+        return result;
+    }
+
+    /**
+     * Find the size of the X display with xdpyinfo, or assume 1280x1024.
+     */
+    private static int[] displaySize(String display) {
+        try {
+            Process proc = new ProcessBuilder("xdpyinfo", "-display", display).redirectErrorStream(true).start();
+            int[] result = null;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    Matcher m = DIMENSIONS.matcher(line);
+                    if (result == null && m.find()) {
+                        // Only the first screen is recorded
+                        result = new int[]{Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))};
+                    }
+                }
+            }
+            if (!proc.waitFor(5, TimeUnit.SECONDS)) {
+                proc.destroyForcibly();
+            }
+            if (result != null) {
+                return result;
+            }
+        } catch (IOException ex) {
+            log("Could not run xdpyinfo: " + ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return new int[]{1280, 1024};
+    }
+
+    private FfmpegProcess supervise(List<String> command, File output) {
+        return new FfmpegProcess(command, output,
+                settings.getInt("video.restarts", 3),
+                settings.getInt("video.stall.seconds", 15),
+                settings.getInt("video.stop.seconds", 10));
+    }
+
     @Override
     public void stop() {
         run();
+        SegmentedRecording segmented = SegmentedRecording.current();
+        if (segmented != null) {
+            segmented.run();
+        }
     }
 
     @Override
-    public synchronized void run() {
-        if (process != null) {
-            try {
-                process.destroy();
-            } catch (Exception ex) {
-                Logger.getLogger(FfmpegVideoRecorder.class.getName()).log(Level.SEVERE, null, ex);
-            }
+    public void run() {
+        // Called when the injector shuts down - a segmented recording
+        // carries on into the next test
+        FfmpegProcess proc;
+        synchronized (this) {
+            proc = process;
+            process = null;
+        }
+        if (proc != null) {
+            proc.stop();
         }
     }
 }
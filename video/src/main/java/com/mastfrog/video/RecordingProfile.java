@@ -0,0 +1,291 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import com.google.inject.Inject;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Provider;
+import com.mastfrog.settings.Settings;
+import static com.mastfrog.util.preconditions.Checks.greaterThanZero;
+import static com.mastfrog.util.preconditions.Checks.nonNegative;
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * What to record and how to encode it. By default, the whole display (its
+ * size is detected) at 15 frames per second, encoded at the same rate with
+ * libx264's ultrafast preset - encoding is cheap, and the browsers under test
+ * keep the CPU. Unless one is passed to VideoModule, the profile comes from
+ * settings:
+ * <ul>
+ * <li><code>video.x</code>, <code>video.y</code>, <code>video.width</code>,
+ * <code>video.height</code> - the region to record</li>
+ * <li><code>video.fps</code> - frames captured per second (default 15)</li>
+ * <li><code>video.output.fps</code> - frames per second in the output
+ * (default the same)</li>
+ * <li><code>video.codec</code> - the encoder (default libx264)</li>
+ * <li><code>video.preset</code> - the encoder preset (default ultrafast for
+ * libx264 and libx265, otherwise none)</li>
+ * <li><code>video.crf</code> - the constant rate factor - lower is better and
+ * bigger (default 28 for libx264 and libx265, otherwise none)</li>
+ * <li><code>video.threads</code> - encoder threads (default 2)</li>
+ * </ul>
+ *
+ * @author Tim Boudreau
+ */
+@ProvidedBy(RecordingProfile.FromSettings.class)
+public final class RecordingProfile {
+
+    private static final String DEFAULT_PRESET = "ultrafast";
+    private static final int DEFAULT_CRF = 28;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int inputFps;
+    private final int outputFps;
+    private final String codec;
+    private final String preset;
+    private final int crf;
+    private final int threads;
+
+    private RecordingProfile(Builder b) {
+        this.x = b.x;
+        this.y = b.y;
+        this.width = b.width;
+        this.height = b.height;
+        this.inputFps = b.inputFps;
+        this.outputFps = b.outputFps == 0 ? b.inputFps : b.outputFps;
+        this.codec = b.codec;
+        // Other encoders, such as mpeg4 or mjpeg, refuse to start when
+        // given x264's options
+        boolean x26x = b.codec.startsWith("libx264") || b.codec.startsWith("libx265");
+        this.preset = b.presetSet ? b.preset : x26x ? DEFAULT_PRESET : null;
+        this.crf = b.crfSet ? b.crf : x26x ? DEFAULT_CRF : -1;
+        this.threads = b.threads;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Create a profile from settings, as described above.
+     *
+     * @param settings Settings
+     * @return A profile
+     */
+    public static RecordingProfile fromSettings(Settings settings) {
+        Builder result = builder()
+                .region(settings.getInt("video.x", 0), settings.getInt("video.y", 0),
+                        settings.getInt("video.width", 0), settings.getInt("video.height", 0))
+                .inputFps(settings.getInt("video.fps", 15))
+                .outputFps(settings.getInt("video.output.fps", 0))
+                .codec(settings.getString("video.codec", "libx264"))
+                .threads(settings.getInt("video.threads", 2));
+        if (settings.getString("video.preset") != null) {
+            result.preset(settings.getString("video.preset"));
+        }
+        if (settings.getString("video.crf") != null) {
+            result.crf(settings.getInt("video.crf", -1));
+        }
+        return result.build();
+    }
+
+    public int x() {
+        return x;
+    }
+
+    public int y() {
+        return y;
+    }
+
+    /**
+     * The width of the region to record, or 0 for the rest of the display.
+     *
+     * @return A width
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * The height of the region to record, or 0 for the rest of the display.
+     *
+     * @return A height
+     */
+    public int height() {
+        return height;
+    }
+
+    public int inputFps() {
+        return inputFps;
+    }
+
+    public int outputFps() {
+        return outputFps;
+    }
+
+    public String codec() {
+        return codec;
+    }
+
+    /**
+     * The encoder preset, or null to leave it to the encoder.
+     *
+     * @return A preset name
+     */
+    public String preset() {
+        return preset;
+    }
+
+    /**
+     * The constant rate factor, or -1 to leave it to the encoder.
+     *
+     * @return A CRF
+     */
+    public int crf() {
+        return crf;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public String toString() {
+        return (width == 0 ? "display" : width + "x" + height) + "+" + x + "," + y
+                + " @ " + inputFps + "->" + outputFps + "fps " + codec
+                + (preset == null ? "" : " " + preset) + (crf < 0 ? "" : " crf " + crf)
+                + " threads " + threads;
+    }
+
+    public static final class Builder {
+
+        private int x;
+        private int y;
+        private int width;
+        private int height;
+        private int inputFps = 15;
+        private int outputFps;
+        private String codec = "libx264";
+        private String preset;
+        private boolean presetSet;
+        private int crf = -1;
+        private boolean crfSet;
+        private int threads = 2;
+
+        private Builder() {
+        }
+
+        /**
+         * Record part of the display. A width or height of 0 means to the
+         * edge of the display.
+         *
+         * @param x The left edge
+         * @param y The top edge
+         * @param width The width
+         * @param height The height
+         * @return this
+         */
+        public Builder region(int x, int y, int width, int height) {
+            this.x = nonNegative("x", x);
+            this.y = nonNegative("y", y);
+            this.width = nonNegative("width", width);
+            this.height = nonNegative("height", height);
+            return this;
+        }
+
+        public Builder inputFps(int fps) {
+            this.inputFps = greaterThanZero("fps", fps);
+            return this;
+        }
+
+        /**
+         * Frames per second in the output; 0 means the same as the input.
+         * Higher than the input only duplicates frames.
+         *
+         * @param fps A frame rate
+         * @return this
+         */
+        public Builder outputFps(int fps) {
+            this.outputFps = nonNegative("fps", fps);
+            return this;
+        }
+
+        public Builder codec(String codec) {
+            this.codec = notNull("codec", codec);
+            return this;
+        }
+
+        /**
+         * Set the encoder preset. Unless set, libx264 and libx265 use
+         * ultrafast and other encoders get none.
+         *
+         * @param preset A preset name, or null for none
+         * @return this
+         */
+        public Builder preset(String preset) {
+            this.preset = preset;
+            this.presetSet = true;
+            return this;
+        }
+
+        /**
+         * Set the constant rate factor. Unless set, libx264 and libx265 use
+         * 28 and other encoders get none.
+         *
+         * @param crf A CRF, or -1 for none
+         * @return this
+         */
+        public Builder crf(int crf) {
+            this.crf = crf;
+            this.crfSet = true;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = greaterThanZero("threads", threads);
+            return this;
+        }
+
+        public RecordingProfile build() {
+            return new RecordingProfile(this);
+        }
+    }
+
+    static final class FromSettings implements Provider<RecordingProfile> {
+
+        private final Settings settings;
+
+        @Inject
+        FromSettings(Settings settings) {
+            this.settings = settings;
+        }
+
+        @Override
+        public RecordingProfile get() {
+            return fromSettings(settings);
+        }
+    }
+}
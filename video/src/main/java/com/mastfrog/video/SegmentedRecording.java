@@ -0,0 +1,340 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import static com.mastfrog.video.VideoModule.log;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One ffmpeg for the life of the JVM, writing short segments with ffmpeg's
+ * segment muxer, cut at forced keyframes so every segment starts exactly
+ * where the last ended. Rather than restarting ffmpeg for each test, the
+ * segments a test spans are looked up from the times it started and finished
+ * and listed, with in and out points, in an ffconcat playlist per test, which
+ * players and <code>ffmpeg -f concat -safe 0 -i [clip] -c copy</code> can
+ * use as a single clip without re-encoding.
+ * <p>
+ * When only failures are kept, the segments are a ring (ffmpeg's
+ * <code>-segment_wrap</code>), usually in tmpfs, which ffmpeg overwrites as
+ * it goes round; when a test fails, its segments are copied out to a
+ * directory of their own once ffmpeg has finished writing the last of them,
+ * and everything else is simply overwritten.
+ *
+ * @author Tim Boudreau
+ */
+final class SegmentedRecording implements Runnable {
+
+    static final String CLIP_PROPERTY_PREFIX = "test.video.";
+    // How far past the end of a segment ffmpeg must be before it is
+    // certainly finished with it
+    private static final long SETTLE_MICROS = TimeUnit.MILLISECONDS.toMicros(500);
+    private static SegmentedRecording instance;
+    private final FfmpegProcess process;
+    private final File dir;
+    private final File keepDir;
+    private final long segmentMicros;
+    private final int wrap;
+    private final ScheduledExecutorService saver;
+    private final List<Save> pending = new ArrayList<>();
+    private volatile long stoppedAt;
+    private boolean stopped;
+
+    private SegmentedRecording(FfmpegProcess process, File dir, File keepDir, long segmentMicros, int wrap) {
+        this.process = process;
+        this.dir = dir;
+        this.keepDir = keepDir;
+        this.segmentMicros = segmentMicros;
+        this.wrap = wrap;
+        if (wrap > 0) {
+            ScheduledThreadPoolExecutor exe = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "video-clip-saver");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            saver = exe;
+        } else {
+            saver = null;
+        }
+    }
+
+    /**
+     * The ffmpeg output options which split the recording into segments.
+     *
+     * @param segmentSeconds The segment length
+     * @param wrap The number of segments in the ring, or 0 to keep them all
+     * @return Options
+     */
+    static List<String> segmentOptions(double segmentSeconds, int wrap) {
+        List<String> result = new ArrayList<>();
+        String seconds = String.format(Locale.US, "%.3f", segmentSeconds);
+        result.add("-force_key_frames");
+        result.add("expr:gte(t,n_forced*" + seconds + ")");
+        result.add("-f");
+        result.add("segment");
+        result.add("-segment_time");
+        result.add(seconds);
+        if (wrap > 0) {
+            result.add("-segment_wrap");
+            result.add(Integer.toString(wrap));
+        }
+        result.add("-reset_timestamps");
+        result.add("1");
+        return result;
+    }
+
+    /**
+     * Start recording, if no segmented recording is running in this JVM.
+     *
+     * @param process An ffmpeg whose output file is a segment name pattern
+     * such as seg-%05d.mp4
+     * @param dir The directory ffmpeg writes segments to
+     * @param keepDir The directory clips are written to
+     * @param segmentSeconds The segment length ffmpeg was told to use
+     * @param wrap The number of segments in the ring, or 0 to keep them all
+     * and write a clip for every test
+     * @return The recording which is running
+     * @throws IOException If ffmpeg cannot be started
+     */
+    static synchronized SegmentedRecording start(FfmpegProcess process, File dir, File keepDir,
+            double segmentSeconds, int wrap) throws IOException {
+        if (instance == null) {
+            SegmentedRecording result = new SegmentedRecording(process, dir, keepDir,
+                    (long) (segmentSeconds * 1000000), wrap);
+            process.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(result, "stop-segmented-video"));
+            instance = result;
+            log("Recording video segments to " + dir + (wrap > 0 ? " (last " + wrap + " only)" : ""));
+        }
+        return instance;
+    }
+
+    static synchronized SegmentedRecording current() {
+        return instance;
+    }
+
+    /**
+     * Called when a test finishes. Writes its clip, or if only failures are
+     * kept and it failed, arranges for its segments to be saved; and
+     * publishes where the clip will be as the system property
+     * <code>test.video.[class]#[method]</code>.
+     *
+     * @param className The test class
+     * @param method The test method
+     * @param startNanos When the test started
+     * @param endNanos When it finished
+     * @param failed Whether it failed
+     * @return The clip, or null if there is none
+     */
+    File testFinished(String className, String method, long startNanos, long endNanos, boolean failed) {
+        if (wrap > 0 && !failed) {
+            // Its segments will be overwritten as the ring goes round
+            return null;
+        }
+        long end = process.positionMicros(endNanos);
+        if (end < 0) {
+            return null;
+        }
+        // Started before ffmpeg was running means from the beginning
+        long start = Math.max(0, process.positionMicros(startNanos));
+        String name = (className + "." + method).replaceAll("[^A-Za-z0-9_.$-]", "_");
+        File clip;
+        if (wrap > 0) {
+            File clipDir = new File(keepDir, name);
+            clip = new File(clipDir, name + ".ffconcat");
+            save(new Save(process.currentOutput(), clipDir, clip, start, end));
+        } else {
+            clip = new File(dir, name + ".ffconcat");
+            if (!writeClip(clip, process.currentOutput().getName(), start, end, (int) (start / segmentMicros))) {
+                return null;
+            }
+        }
+        System.setProperty(CLIP_PROPERTY_PREFIX + className + "#" + method, clip.getPath());
+        log("Video clip for " + className + "#" + method + " in " + clip);
+        return clip;
+    }
+
+    private boolean writeClip(File clip, String pattern, long start, long end, int firstKept) {
+        int first = Math.max(firstKept, (int) (start / segmentMicros));
+        int last = (int) (end / segmentMicros);
+        if (first * segmentMicros > start) {
+            // The ring went round before the start could be saved
+            start = first * segmentMicros;
+        }
+        try (PrintWriter out = new PrintWriter(clip, StandardCharsets.UTF_8.name())) {
+            out.println("ffconcat version 1.0");
+            for (int i = first; i <= last; i++) {
+                out.println("file '" + String.format(Locale.US, pattern, i) + "'");
+                if (i == first) {
+                    out.println("inpoint " + seconds(start - i * segmentMicros));
+                }
+                if (i == last) {
+                    out.println("outpoint " + seconds(end - i * segmentMicros));
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Could not write video clip " + clip + ": " + ex);
+            return false;
+        }
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.US, "%.3f", micros / (double) TimeUnit.SECONDS.toMicros(1));
+    }
+
+    private void save(Save save) {
+        synchronized (pending) {
+            pending.add(save);
+        }
+        saver.schedule(save, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        synchronized (SegmentedRecording.class) {
+            if (stopped) {
+                // Stopped by the recorder, and now by the shutdown hook
+                return;
+            }
+            stopped = true;
+            if (instance == this) {
+                // So a later start() records again, rather than tests
+                // being clipped from segments which are no longer written
+                instance = null;
+            }
+        }
+        process.stop();
+        stoppedAt = System.nanoTime();
+        if (saver != null) {
+            // ffmpeg has finished every segment now
+            List<Save> remaining;
+            synchronized (pending) {
+                remaining = new ArrayList<>(pending);
+            }
+            for (Save save : remaining) {
+                save.copy();
+            }
+            saver.shutdownNow();
+            File[] ring = dir.listFiles();
+            if (ring != null) {
+                for (File f : ring) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * Copies a failed test's segments out of the ring, once ffmpeg has
+     * moved on from the last of them.
+     */
+    private final class Save implements Runnable {
+
+        private final File pattern;
+        private final File clipDir;
+        private final File clip;
+        private final long start;
+        private final long end;
+        private boolean done;
+
+        Save(File pattern, File clipDir, File clip, long start, long end) {
+            this.pattern = pattern;
+            this.clipDir = clipDir;
+            this.clip = clip;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            long last = end / segmentMicros;
+            long position = process.positionMicros(System.nanoTime());
+            if (process.isRunning() && pattern.equals(process.currentOutput())
+                    && position < (last + 1) * segmentMicros + SETTLE_MICROS) {
+                saver.schedule(this, 250, TimeUnit.MILLISECONDS);
+                return;
+            }
+            copy();
+        }
+
+        void copy() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            synchronized (pending) {
+                pending.remove(this);
+            }
+            if (!pattern.equals(process.currentOutput())) {
+                System.err.println("ffmpeg was restarted - cannot save video for " + clip.getName());
+                return;
+            }
+            // Once ffmpeg has stopped, the ring stops going round
+            long position = process.positionMicros(stoppedAt != 0 ? stoppedAt : System.nanoTime());
+            // Segments more than a ring's length back have been overwritten
+            int firstKept = (int) Math.max(0, position / segmentMicros - wrap + 1);
+            int first = Math.max(firstKept, (int) (start / segmentMicros));
+            int last = (int) (end / segmentMicros);
+            if (first * segmentMicros > start) {
+                System.err.println("Video window too short to hold all of " + clip.getName()
+                        + " - saving the last " + (last - first + 1) + " segments");
+            }
+            String name = pattern.getName();
+            if (!clipDir.exists() && !clipDir.mkdirs()) {
+                System.err.println("Could not create " + clipDir);
+                return;
+            }
+            try {
+                for (int i = first; i <= last; i++) {
+                    File src = new File(pattern.getParentFile(), String.format(Locale.US, name, i % wrap));
+                    File dest = new File(clipDir, String.format(Locale.US, name, i));
+                    Files.copy(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException ex) {
+                System.err.println("Could not save video for " + clip.getName() + ": " + ex);
+                return;
+            }
+            writeClip(clip, name, start, end, first);
+            log("Saved video of failed test to " + clip);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Marks where each test starts and finishes in a segmented recording (see
+ * the <code>video.segment.seconds</code> setting), and writes each test's
+ * clip when it finishes - or, with <code>video.keep=failures</code>, only
+ * if it failed. Does nothing when no segmented recording is
+ * running. Registered as a service, so runners which look up RunListeners
+ * with ServiceLoader, such as test-main's, pick it up; otherwise add it to
+ * the JUnitCore or RunNotifier running the tests, ahead of any listener
+ * which reports videos.
+ *
+ * @author Tim Boudreau
+ */
+@RunListener.ThreadSafe
+public final class VideoClips extends RunListener {
+
+    private final Map<Description, Long> started = new ConcurrentHashMap<>();
+    private final Set<Description> failed = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void testStarted(Description description) {
+        if (description.getMethodName() != null) {
+            // The recording may only be started by the test's injector,
+            // so note the time regardless
+            started.put(description, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void testFailure(Failure failure) {
+        // Assumption failures are skips, and do not count
+        failed.add(failure.getDescription());
+    }
+
+    @Override
+    public void testFinished(Description description) {
+        Long start = started.remove(description);
+        boolean failure = failed.remove(description);
+        SegmentedRecording recording = SegmentedRecording.current();
+        if (start != null && recording != null) {
+            recording.testFinished(description.getClassName(), description.getMethodName(),
+                    start, System.nanoTime(), failure);
+        }
+    }
+}
@@ -31,16 +31,30 @@ import com.mastfrog.settings.SettingsBuilder;
 import java.io.IOException;
 
 /**
- * Binds VideoRecorder
+ * Binds VideoRecorder, and the RecordingProfile it records with, if one is
+ * passed - otherwise the profile comes from settings.
  *
  * @author Tim Boudreau
  */
 public class VideoModule extends AbstractModule {
 
+    private final RecordingProfile profile;
+
+    public VideoModule() {
+        this(null);
+    }
+
+    public VideoModule(RecordingProfile profile) {
+        this.profile = profile;
+    }
+
     @Override
     protected void configure() {
         // XXX bind something different on Windows?
         bind(VideoRecorder.class).to(FfmpegVideoRecorder.class).asEagerSingleton();
+        if (profile != null) {
+            bind(RecordingProfile.class).toInstance(profile);
+        }
     }
 
     public static void main(String[] args) throws IOException, InterruptedException {
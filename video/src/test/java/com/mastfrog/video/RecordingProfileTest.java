@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Tim Boudreau.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mastfrog.video;
+
+import com.mastfrog.settings.Settings;
+import com.mastfrog.settings.SettingsBuilder;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class RecordingProfileTest {
+
+    @Test
+    public void testX264Defaults() throws IOException {
+        RecordingProfile profile = RecordingProfile.fromSettings(new SettingsBuilder().build());
+        assertEquals("libx264", profile.codec());
+        assertEquals("ultrafast", profile.preset());
+        assertEquals(28, profile.crf());
+        RecordingProfile x265 = RecordingProfile.builder().codec("libx265").build();
+        assertEquals("ultrafast", x265.preset());
+        assertEquals(28, x265.crf());
+    }
+
+    @Test
+    public void testNoX264OptionsForOtherEncoders() throws IOException {
+        RecordingProfile profile = RecordingProfile.fromSettings(new SettingsBuilder()
+                .add("video.codec", "mpeg4").build());
+        assertNull(profile.preset());
+        assertEquals(-1, profile.crf());
+        RecordingProfile mjpeg = RecordingProfile.builder().codec("mjpeg").build();
+        assertNull(mjpeg.preset());
+        assertEquals(-1, mjpeg.crf());
+    }
+
+    @Test
+    public void testExplicitSettingsWin() throws IOException {
+        RecordingProfile profile = RecordingProfile.fromSettings(new SettingsBuilder()
+                .add("video.codec", "libvpx-vp9").add("video.preset", "realtime")
+                .add("video.crf", "40").build());
+        assertEquals("realtime", profile.preset());
+        assertEquals(40, profile.crf());
+        RecordingProfile x264 = RecordingProfile.builder().preset(null).crf(-1).build();
+        assertNull(x264.preset());
+        assertEquals(-1, x264.crf());
+        assertEquals("medium", RecordingProfile.builder().preset("medium").build().preset());
+    }
+}